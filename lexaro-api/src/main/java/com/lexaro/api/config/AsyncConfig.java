@@ -1,24 +1,125 @@
 package com.lexaro.api.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    /**
+     * Declared as {@link ThreadPoolTaskExecutor} (not {@code Executor}) so the job runner
+     * can read pool occupancy when deciding whether to take a job locally.
+     *
+     * <p>Core size equals max size: a {@code ThreadPoolExecutor} only grows past its core
+     * size once the queue is full, so with core &lt; max the runner's claimed jobs would
+     * sit in the queue instead of running. Idle core threads still time out.
+     */
     @Bean(name = "ttsExecutor")
-    public Executor ttsExecutor() {
+    public ThreadPoolTaskExecutor ttsExecutor() {
         var ex = new ThreadPoolTaskExecutor();
         ex.setThreadNamePrefix("tts-");
-        ex.setCorePoolSize(4);      // tune as needed
+        ex.setCorePoolSize(8);      // tune as needed; keep equal to max (see above)
         ex.setMaxPoolSize(8);
+        ex.setAllowCoreThreadTimeOut(true);
         ex.setQueueCapacity(50);
         ex.initialize();
         return ex;
     }
+
+    /**
+     * Shared pool for the chunk-level work fanned out by a single job
+     * ({@code app.tts.parallel.global}). With blocking provider calls
+     * ({@code app.tts.async.enabled=false}) each call holds a thread here, so the size also
+     * caps concurrent provider calls on this node. On the default non-blocking path the
+     * threads only load checkpointed chunks and store finished ones; concurrent requests
+     * are capped by each provider's {@link com.lexaro.api.tts.ProviderLimiter}
+     * ({@code app.tts.limits.*.concurrency}) and, for Polly, its HTTP connection pool
+     * ({@code app.tts.polly.maxConnections}), and per job by the plan's parallelism.
+     *
+     * <p>Kept separate from {@code ttsExecutor} so a job thread waiting on its chunks can
+     * never deadlock behind queued jobs. Each job keeps at most its plan's parallelism in
+     * flight here, so the unbounded queue stays short and one huge document cannot crowd
+     * out the chunks of other jobs.
+     */
+    @Bean(name = "ttsChunkExecutor")
+    public ThreadPoolTaskExecutor ttsChunkExecutor(@Value("${app.tts.parallel.global:16}") int global) {
+        var ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("tts-chunk-");
+        ex.setCorePoolSize(Math.max(1, global));
+        ex.setMaxPoolSize(Math.max(1, global));
+        ex.setAllowCoreThreadTimeOut(true);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Hedged chunk requests ({@code app.tts.hedge.enabled}). On the blocking path it runs
+     * both legs while the chunk thread only waits: up to two calls per chunk thread, plus
+     * losers still draining, hence twice the chunk pool. On the non-blocking path it only
+     * fires hedge timers and admits the Polly leg. Threads time out when hedging is off.
+     */
+    @Bean(name = "ttsHedgeExecutor")
+    public ThreadPoolTaskExecutor ttsHedgeExecutor(@Value("${app.tts.parallel.global:16}") int global) {
+        var ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("tts-hedge-");
+        ex.setCorePoolSize(Math.max(2, 2 * global));
+        ex.setMaxPoolSize(Math.max(2, 2 * global));
+        ex.setAllowCoreThreadTimeOut(true);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Provider requests of segmented translation ({@code app.translate.parallel.global}).
+     * Each document keeps at most {@code app.translate.parallel.perDocument} batches in
+     * flight here, as the chunk pool does for TTS.
+     */
+    @Bean(name = "translateExecutor")
+    public ThreadPoolTaskExecutor translateExecutor(@Value("${app.translate.parallel.global:8}") int global) {
+        var ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("translate-");
+        ex.setCorePoolSize(Math.max(1, global));
+        ex.setMaxPoolSize(Math.max(1, global));
+        ex.setAllowCoreThreadTimeOut(true);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Sync OCR of PDF pages ({@code app.extract.ocr.globalParallelism}). Its threads mostly
+     * wait on the OCR provider, so they are kept off the CPU-sized {@code extractPool}; each
+     * document keeps at most {@code app.extract.ocr.parallelism} page groups in flight here.
+     */
+    @Bean(name = "ocrExecutor")
+    public ThreadPoolTaskExecutor ocrExecutor(@Value("${app.extract.ocr.globalParallelism:16}") int global) {
+        var ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("ocr-");
+        ex.setCorePoolSize(Math.max(1, global));
+        ex.setMaxPoolSize(Math.max(1, global));
+        ex.setAllowCoreThreadTimeOut(true);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Threads for parsing native PDF text in parallel page ranges
+     * ({@code app.extract.parallelism}, default one per core), shared by all concurrent
+     * extractions. Only PDFs long enough for more than one range use it; shorter PDFs and
+     * every other format are extracted on the caller's thread.
+     */
+    @Bean(name = "extractPool", destroyMethod = "shutdown")
+    public ForkJoinPool extractPool(@Value("${app.extract.parallelism:0}") int parallelism) {
+        int n = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(n, pool -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("extract-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+    }
 }
@@ -34,6 +34,10 @@ import java.util.concurrent.TimeUnit;
  *                                  5-minute TTL, max 10 000 entries.</li>
  *   <li>{@code voices-catalog}  — static Polly/Speechify voice catalog per plan tier.
  *                                  24-hour TTL, max 10 entries (one per plan tier variant).</li>
+ *   <li>{@code translation-memory} — translated text per source+target+segment SHA-256;
+ *                                  a segment's translation does not change. 7-day TTL,
+ *                                  bounded by the size of its keys and text (64 MB) rather
+ *                                  than by count, since a segment can be up to a few KB.</li>
  * </ul>
  *
  * <p>Security note: {@code document-meta} and {@code documents-list} cache keys MUST include
@@ -71,12 +75,21 @@ public class CacheConfig {
     @Value("${app.cache.voices-catalog.ttl-seconds:86400}")
     private long voicesCatalogTtl;
 
+    /** TTL for translated segments (seconds). Default 7 days. */
+    @Value("${app.cache.translation-memory.ttl-seconds:604800}")
+    private long translationMemoryTtl;
+
+    /** Approximate heap bound for translated segments (megabytes). Default 64 MB. */
+    @Value("${app.cache.translation-memory.max-mb:64}")
+    private long translationMemoryMaxMb;
+
     /**
      * Builds and returns the Spring {@link CacheManager} backed by Caffeine.
      *
      * <p>Each cache is constructed individually via {@link #buildCache(String, long, int)}
-     * and registered with a {@link SimpleCacheManager}. This gives full control over
-     * per-cache TTL and maximum entry count without relying on shared spec strings.
+     * (or {@link #buildWeighedCache(String, long, long)} when entries vary in size) and
+     * registered with a {@link SimpleCacheManager}. This gives full control over per-cache
+     * TTL and bound without relying on shared spec strings.
      *
      * @return configured CacheManager
      */
@@ -100,7 +113,10 @@ public class CacheConfig {
                 buildCache("document-meta", documentMetaTtl, 10_000),
 
                 // Voice catalog per plan tier: key = normalized plan string (e.g. "FREE", "PREMIUM")
-                buildCache("voices-catalog", voicesCatalogTtl, 10)
+                buildCache("voices-catalog", voicesCatalogTtl, 10),
+
+                // Segment translations: key = source + ':' + target + ':' + sha256(segment)
+                buildWeighedCache("translation-memory", translationMemoryTtl, translationMemoryMaxMb * 1024 * 1024)
         ));
         return manager;
     }
@@ -127,4 +143,41 @@ public class CacheConfig {
                 /* allowNullValues = */ false
         );
     }
+
+    /**
+     * Constructs a named {@link CaffeineCache} bounded by the approximate heap size of its
+     * entries instead of their count, for caches whose values vary widely in length.
+     *
+     * <p>An entry weighs two bytes per character of its key and value (UTF-16) plus a fixed
+     * {@link #ENTRY_OVERHEAD_BYTES} for the entry, the two String headers and their arrays.
+     * Values that are not {@link CharSequence}s weigh only the overhead.
+     *
+     * @param name       the cache name used in {@code @Cacheable(cacheNames = ...)}
+     * @param ttlSeconds time-to-live after write, in seconds
+     * @param maxBytes   approximate total size before Caffeine evicts
+     * @return a configured CaffeineCache instance
+     */
+    private CaffeineCache buildWeighedCache(String name, long ttlSeconds, long maxBytes) {
+        return new CaffeineCache(
+                name,
+                Caffeine.newBuilder()
+                        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                        .maximumWeight(Math.max(1, maxBytes))
+                        .weigher((Object key, Object value) -> weigh(key, value))
+                        .build(),
+                /* allowNullValues = */ false
+        );
+    }
+
+    /** Fixed per-entry cost: Caffeine node plus two String headers and array headers. */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    static int weigh(Object key, Object value) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * (chars(key) + chars(value));
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long chars(Object o) {
+        return o instanceof CharSequence cs ? cs.length() : 0;
+    }
 }
@@ -29,4 +29,18 @@ public class DocumentText {
     private String text;
     @Column(name = "char_count", nullable = false) private int charCount;
     @Column(name = "extracted_at", nullable = false) private Instant extractedAt;
+
+    /** {@code documents.object_key} the text was extracted from; null for legacy rows. */
+    @Column(name = "source_key") private String sourceKey;
+    /** SHA-256 (hex) of the extracted file's bytes. */
+    @Column(name = "source_sha256", length = 64) private String sourceSha256;
+    /** Page limit of the extraction; 0 = the whole document. */
+    @Column(name = "max_pages", nullable = false) private int maxPages;
+    /**
+     * Start of each page in {@link #text}, in code points (page 1 first); null for rows
+     * extracted before pages were kept. See {@code DocumentTextService#charOffsets}.
+     */
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "page_offsets", columnDefinition = "int[]")
+    private int[] pageOffsets;
 }
@@ -69,7 +69,11 @@ public class Job {
     @Builder.Default
     private Instant nextRunAt = Instant.now();
 
-    /** Wall-clock time when this job was last claimed by a runner instance. */
+    /**
+     * Lease timestamp: set when a runner claims the job and renewed by its heartbeat
+     * while the job runs. A RUNNING job whose lease is older than the lease timeout is
+     * reclaimed.
+     */
     @Column(name = "locked_at")
     private Instant lockedAt;
 
@@ -1,11 +1,18 @@
 package com.lexaro.api.domain;
 
+import java.util.List;
+
 /**
  * JSON-serializable parameters for a TTS job.
  *
  * <p>Stored in {@link Job#payload} as a JSON string so the job runner can
  * reconstruct all parameters needed to execute the audio synthesis without
  * an extra document lookup beyond what is already done for ownership/status checks.
+ *
+ * <p>The last fields are the checkpoint. They are rewritten by the runner as chunks
+ * complete, so a retried or recovered job can resume from the first unfinished chunk
+ * instead of re-synthesizing the whole document, or, for long-form synthesis, pick up the
+ * provider tasks it already submitted.
  */
 public record JobPayload(
         /** TTS voice ID (e.g. "Joanna", "kristy"). Null = plan default. */
@@ -17,5 +24,42 @@ public record JobPayload(
         /** True if the user is on an unlimited allowlist — bypasses quota recording. */
         boolean unlimited,
         /** Target language for translation, or null if translation is disabled. */
-        String targetLang
-) {}
+        String targetLang,
+        /**
+         * Fingerprint of the chunk list the cursor refers to (text, chunk size and voice
+         * settings). A resume is only valid if the retry produces the same fingerprint.
+         */
+        String chunkFingerprint,
+        /** Number of leading chunks whose audio is already persisted. Null = none. */
+        Integer chunksDone,
+        /** Indexes below {@code chunksDone} whose audio is empty, so not playable. Null = none. */
+        List<Integer> emptyChunks,
+        /**
+         * Provider-side long-form tasks submitted for {@code chunkFingerprint}, in text order.
+         * Recorded one by one as they are submitted. Null = none.
+         */
+        List<String> longFormTasks,
+        /** Number of tasks the text was split into; all are submitted once {@code longFormTasks} has this many. */
+        Integer longFormTotal,
+        /** Characters of the submitted text, charged to the quota when the tasks finish. */
+        Integer longFormChars
+) {
+
+    /** A fresh payload with no checkpoint. */
+    public JobPayload(String voice, String engine, String format, boolean unlimited, String targetLang) {
+        this(voice, engine, format, unlimited, targetLang, null, null, null, null, null, null);
+    }
+
+    /** Returns a copy with the checkpoint cursor advanced. */
+    public JobPayload withProgress(String chunkFingerprint, int chunksDone, List<Integer> emptyChunks) {
+        return new JobPayload(voice, engine, format, unlimited, targetLang, chunkFingerprint, chunksDone,
+                emptyChunks, longFormTasks, longFormTotal, longFormChars);
+    }
+
+    /** Returns a copy recording the long-form tasks submitted so far; nulls clear them. */
+    public JobPayload withLongFormTasks(String chunkFingerprint, List<String> longFormTasks,
+                                        Integer longFormTotal, Integer longFormChars) {
+        return new JobPayload(voice, engine, format, unlimited, targetLang, chunkFingerprint, null,
+                null, longFormTasks, longFormTotal, longFormChars);
+    }
+}
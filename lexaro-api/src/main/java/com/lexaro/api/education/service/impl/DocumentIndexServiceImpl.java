@@ -14,6 +14,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.Array;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,7 +33,8 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
     private final DocumentTextService textService;
     private final EntityManager entityManager;
 
-    private record DocText(String text, Integer pageCount) {}
+    /** {@code pageOffsets} as stored (code points); null for text extracted before pages were kept. */
+    private record DocText(String text, Integer pageCount, int[] pageOffsets) {}
 
     @Override
     @Transactional
@@ -45,7 +48,8 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
         // If userId is provided and text doesn't exist, trigger extraction first
         if (userId != null) {
             DocText existing = loadExtractedTextOrNull(docId);
-            if (existing == null || existing.text() == null || existing.text().isBlank()) {
+            if (existing == null || existing.text() == null || existing.text().isBlank()
+                    || existing.pageOffsets() == null) {
                 log.info("Triggering text extraction for document {} by user {}", docId, userId);
                 try {
                     textService.getOrExtract(userId, docId, 0);
@@ -61,7 +65,8 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
         DocText dt = loadExtractedText(docId);
 
         String text = dt.text();
-        int pageCount = (dt.pageCount() == null || dt.pageCount() <= 0) ? 1 : dt.pageCount();
+        int pageCount = dt.pageOffsets() != null ? dt.pageOffsets().length
+                : (dt.pageCount() == null || dt.pageCount() <= 0) ? 1 : dt.pageCount();
 
         int chunkChars = props.getDefaultChunkChars();
         int overlap = props.getDefaultOverlapChars();
@@ -70,7 +75,7 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
         chunkRepo.deleteByDocId(docId);
 
         // build page boundaries + chunk windows
-        List<int[]> pageBounds = buildPageBounds(text, pageCount);
+        List<int[]> pageBounds = buildPageBounds(text, pageCount, dt.pageOffsets());
         List<DocumentTextChunk> chunks = buildChunks(docId, text, pageBounds, chunkChars, overlap);
 
         chunkRepo.saveAll(chunks);
@@ -87,30 +92,38 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
     private DocText loadExtractedTextOrNull(Long docId) {
         List<DocText> rows = jdbcTemplate.query(
                 """
-                SELECT dt.text, d.pages
+                SELECT dt.text, d.pages, dt.page_offsets
                 FROM public.documents d
                 LEFT JOIN public.document_texts dt ON dt.doc_id = d.id
                 WHERE d.id = ?
                 """,
-                (rs, i) -> new DocText(rs.getString(1), (Integer) rs.getObject(2)),
+                (rs, i) -> new DocText(rs.getString(1), (Integer) rs.getObject(2), intArray(rs.getArray(3))),
                 docId
         );
         return rows.isEmpty() ? null : rows.get(0);
     }
 
+    private static int[] intArray(Array a) throws SQLException {
+        if (a == null) return null;
+        Integer[] boxed = (Integer[]) a.getArray();
+        int[] out = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) out[i] = boxed[i] == null ? 0 : boxed[i];
+        return out;
+    }
+
     /**
-     * Loads extracted text from document_texts table and page count from documents table.
+     * Loads extracted text and page offsets from document_texts and page count from documents.
      * The text is stored in document_texts.text (joined via doc_id), and page count is documents.pages.
      */
     private DocText loadExtractedText(Long docId) {
         List<DocText> rows = jdbcTemplate.query(
                 """
-                SELECT dt.text, d.pages
+                SELECT dt.text, d.pages, dt.page_offsets
                 FROM public.documents d
                 LEFT JOIN public.document_texts dt ON dt.doc_id = d.id
                 WHERE d.id = ?
                 """,
-                (rs, i) -> new DocText(rs.getString(1), (Integer) rs.getObject(2)),
+                (rs, i) -> new DocText(rs.getString(1), (Integer) rs.getObject(2), intArray(rs.getArray(3))),
                 docId
         );
 
@@ -124,13 +137,23 @@ public class DocumentIndexServiceImpl implements DocumentIndexService {
     }
 
     /**
-     * Best-effort page boundaries:
-     * 1) If extracted_text contains form-feed (\f), treat each as a page break.
-     * 2) Else fallback to roughly equal splits by page_count.
+     * Page boundaries:
+     * 1) The page offsets stored with the extraction, when present.
+     * 2) Else, if extracted_text contains form-feed (\f), treat each as a page break.
+     * 3) Else fallback to roughly equal splits by page_count.
      */
-    private List<int[]> buildPageBounds(String text, int pageCount) {
+    private List<int[]> buildPageBounds(String text, int pageCount, int[] pageOffsets) {
         List<int[]> bounds = new ArrayList<>();
 
+        if (pageOffsets != null) {
+            int[] starts = DocumentTextService.charOffsets(text, pageOffsets);
+            for (int i = 0; i < starts.length; i++) {
+                int end = i + 1 < starts.length ? starts[i + 1] : text.length();
+                bounds.add(new int[]{starts[i], end});
+            }
+            return bounds;
+        }
+
         int ff = text.indexOf('\f');
         if (ff >= 0) {
             String[] pages = text.split("\f");
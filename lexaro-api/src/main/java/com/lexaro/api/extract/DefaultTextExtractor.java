@@ -1,13 +1,17 @@
 package com.lexaro.api.extract;
 
+import com.lexaro.api.extract.ocr.OcrHeuristics;
 import com.lexaro.api.extract.ocr.OcrService;
 import com.lexaro.api.extract.ocr.TextractOcrService;
+import com.lexaro.api.tts.OrderedFanout;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
@@ -15,9 +19,19 @@ import org.springframework.stereotype.Service;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
@@ -34,9 +48,25 @@ import org.apache.poi.hwpf.extractor.WordExtractor;
  * - PDF - PDFBox native text, with Textract OCR fallback for scanned documents
  * - IMAGE/* - OCR via Textract sync API
  *
- * For multi-page scanned PDFs:
- * - Uses async Textract with S3 staging (if configured)
- * - Falls back to page-by-page sync OCR if async not available
+ * PDF pages are classified one by one: a page whose native text looks weak
+ * ({@link OcrHeuristics#looksWeak}) and that has images covering a meaningful share of
+ * it ({@link PdfPageImages}: scanned, or a header line over an image) is OCR'd and its
+ * OCR text replaces the native text; the other pages, including blank, title, equation
+ * and vector-figure pages, keep their native text.
+ * - Fully scanned multi-page PDFs use async Textract with S3 staging (if configured)
+ * - Otherwise only the weak pages are OCR'd with sync OCR, in parallel on the I/O-bound
+ *   {@code ocrExecutor} ({@code app.extract.ocr.parallelism})
+ *
+ * PDF text is kept per page ({@link #extractPages}); the other formats are one page.
+ * Native PDF text of longer documents is extracted in page ranges in parallel on the
+ * shared {@code extractPool} ({@code app.extract.pdf.parallel.*}).
+ *
+ * PDFs given as a file ({@link #extractPages(String, Path, int)}) are read from disk
+ * rather than loaded into memory, and PDFBox's stream caches keep at most
+ * {@code app.extract.pdf.memoryBudgetMb} per extraction on heap, spilling the rest to
+ * scratch files in {@code app.extract.tempDir}. The document opened for the whole
+ * extraction gets half of it; the copies parallel ranges or OCR groups load share the
+ * other half.
  */
 @Slf4j
 @Primary
@@ -56,32 +86,79 @@ public class DefaultTextExtractor implements TextExtractor {
     @Value("${app.extract.ocr.dpi:300}")
     private int ocrDpi;
 
+    /** Pages of one PDF rendered and OCR'd at once on {@code ocrExecutor}. */
+    @Value("${app.extract.ocr.parallelism:4}")
+    private int ocrParallelism;
+
+    /** A page with less native text than this, or too few letters, is OCR'd if it has images. */
+    @Value("${app.extract.ocr.weakPage.minChars:40}")
+    private int weakPageMinChars;
+
+    @Value("${app.extract.ocr.weakPage.minAlphaShare:0.5}")
+    private double weakPageMinAlphaShare;
+
+    /** Share of a text-weak page that images must cover for it to be worth OCR. */
+    @Value("${app.extract.ocr.weakPage.minImageShare:0.1}")
+    private double weakPageMinImageShare;
+
+    @Value("${app.extract.pdf.parallel.enabled:true}")
+    private boolean pdfParallel;
+
+    /** Fewest pages one parallel task extracts; shorter PDFs run on the calling thread. */
+    @Value("${app.extract.pdf.parallel.minPagesPerTask:25}")
+    private int pdfMinPagesPerTask;
+
+    /**
+     * Heap PDFBox may cache streams in per extraction: half for the main document, half
+     * split across the copies its parallel ranges or OCR groups load.
+     */
+    @Value("${app.extract.pdf.memoryBudgetMb:64}")
+    private int pdfMemoryBudgetMb;
+
+    /** Scratch-file directory; blank means java.io.tmpdir. */
+    @Value("${app.extract.tempDir:}")
+    private String tempDir;
+
     // Injected services
     private final OcrService ocrService;
     private final TextractOcrService textractService;
+    private final ForkJoinPool extractPool;
+    private final Executor ocrExecutor;
 
     /**
      * Constructor injection.
      * TextractOcrService is optional - if not available, async mode won't work.
      * OcrService is used for sync OCR (images, single pages).
+     * extractPool parses long PDFs in parallel page ranges, ocrExecutor holds the
+     * threads that wait on OCR calls (see AsyncConfig).
      */
     public DefaultTextExtractor(
             @Autowired(required = false) OcrService ocrService,
-            @Autowired(required = false) TextractOcrService textractService) {
+            @Autowired(required = false) TextractOcrService textractService,
+            @Qualifier("extractPool") ForkJoinPool extractPool,
+            @Qualifier("ocrExecutor") Executor ocrExecutor) {
         this.ocrService = ocrService;
         this.textractService = textractService;
+        this.extractPool = extractPool;
+        this.ocrExecutor = ocrExecutor;
     }
 
     @PostConstruct
     void init() {
         String providerName = ocrService != null ? ocrService.name() : "none";
         boolean asyncEnabled = textractService != null && textractService.isAsyncEnabled();
-        log.info("DefaultTextExtractor initialized: ocrEnabled={}, ocrProvider={}, asyncTextract={}, dpi={}, maxPages={}",
-                ocrEnabled, providerName, asyncEnabled, ocrDpi, ocrMaxPages);
+        log.info("DefaultTextExtractor initialized: ocrEnabled={}, ocrProvider={}, asyncTextract={}, dpi={}, maxPages={}, pdfParallelism={}",
+                ocrEnabled, providerName, asyncEnabled, ocrDpi, ocrMaxPages,
+                pdfParallel ? extractPool.getParallelism() : 1);
     }
 
     @Override
     public String extract(String mime, byte[] bytes, int maxPages) throws Exception {
+        return extractPages(mime, bytes, maxPages).joined();
+    }
+
+    @Override
+    public PagedText extractPages(String mime, byte[] bytes, int maxPages) throws Exception {
         final String m = (mime == null) ? "" : mime.toLowerCase(Locale.ROOT);
 
         // --- TEXT/* (txt, md, csv, json as text) ---
@@ -89,7 +166,7 @@ public class DefaultTextExtractor implements TextExtractor {
             String raw = new String(bytes, StandardCharsets.UTF_8);
             String norm = normalize(raw);
             log.debug("TEXT extractor: mime={} chars={}", m, norm.length());
-            return norm;
+            return PagedText.single(norm);
         }
 
         // --- DOCX ---
@@ -99,7 +176,7 @@ public class DefaultTextExtractor implements TextExtractor {
                  var extractor = new XWPFWordExtractor(doc)) {
                 String norm = normalize(extractor.getText());
                 log.debug("DOCX extractor: chars={}", norm.length());
-                return norm;
+                return PagedText.single(norm);
             }
         }
 
@@ -110,95 +187,216 @@ public class DefaultTextExtractor implements TextExtractor {
                  var extractor = new WordExtractor(doc)) {
                 String norm = normalize(extractor.getText());
                 log.debug("DOC extractor: chars={}", norm.length());
-                return norm;
+                return PagedText.single(norm);
             }
         }
 
         // --- PDF ---
         if (m.startsWith("application/pdf")) {
-            return extractPdf(bytes, maxPages);
+            return extractPdf(new PdfSource() {
+                @Override public PDDocument load(long heapBytes) throws IOException {
+                    return Loader.loadPDF(bytes, "", null, null, streamCache(heapBytes));
+                }
+                @Override public byte[] readAll() { return bytes; }
+            }, maxPages);
         }
 
         // --- Image/* (OCR) ---
         if (m.startsWith("image/")) {
-            return extractImage(bytes, m);
+            return PagedText.single(extractImage(bytes, m));
         }
 
         // Unknown format
         log.debug("Extractor: unsupported mime '{}' -> returning empty string", m);
-        return "";
+        return PagedText.single("");
     }
 
     /**
-     * Extract text from PDF.
-     * Tries native text first, falls back to OCR for scanned documents.
+     * Like {@link #extractPages(String, byte[], int)}, but a PDF is opened from the file
+     * (PDFBox reads objects from disk as pages need them) and only read into memory whole
+     * if it has to go to async Textract. Other formats are read into memory.
      */
-    private String extractPdf(byte[] bytes, int maxPages) throws Exception {
-        try (PDDocument doc = Loader.loadPDF(bytes)) {
+    @Override
+    public PagedText extractPages(String mime, Path file, int maxPages) throws Exception {
+        final String m = (mime == null) ? "" : mime.toLowerCase(Locale.ROOT);
+        if (!m.startsWith("application/pdf")) {
+            return extractPages(mime, Files.readAllBytes(file), maxPages);
+        }
+        File f = file.toFile();
+        return extractPdf(new PdfSource() {
+            @Override public PDDocument load(long heapBytes) throws IOException {
+                return Loader.loadPDF(f, streamCache(heapBytes));
+            }
+            @Override public byte[] readAll() throws IOException { return Files.readAllBytes(file); }
+        }, maxPages);
+    }
+
+    /** A PDF in memory or on disk. */
+    private interface PdfSource {
+        /** Loads an independent copy, caching at most {@code heapBytes} of streams on heap. */
+        PDDocument load(long heapBytes) throws IOException;
+
+        /** The whole file, for OCR services that take the document as bytes. */
+        byte[] readAll() throws IOException;
+    }
+
+    /** Mixed stream cache: up to {@code heapBytes} in memory, the rest in a scratch file. */
+    private StreamCacheCreateFunction streamCache(long heapBytes) {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(Math.max(1L << 20, heapBytes));
+        if (tempDir != null && !tempDir.isBlank()) setting.setTempDir(new File(tempDir));
+        return setting.streamCache;
+    }
+
+    /**
+     * Extract text from PDF, one entry per page.
+     * Tries native text first, then OCRs the pages whose native text looks weak.
+     */
+    private PagedText extractPdf(PdfSource pdf, int maxPages) throws Exception {
+        long budget = Math.max(1, pdfMemoryBudgetMb) * (1L << 20);
+        long copies = budget / 2; // shared by the copies open at any one time
+        try (PDDocument doc = pdf.load(budget - copies)) {
             int total = doc.getNumberOfPages();
             int limit = Math.min(total, pdfMaxPages);
             if (maxPages > 0) limit = Math.min(limit, maxPages);
 
-            // 1) Try native text extraction first (for text-based PDFs)
-            var stripper = new PDFTextStripper();
-            stripper.setStartPage(1);
-            stripper.setEndPage(limit);
-            String nativeText = normalize(stripper.getText(doc));
-            if (!nativeText.isBlank()) {
-                log.debug("PDF native text found (pages={}, chars={})", limit, nativeText.length());
-                return nativeText;
+            // 1) Try native text extraction first (for text-based PDFs). Parallel ranges
+            //    each load their own copy and share the copies' half of the heap budget.
+            int tasks = pdfParallel && limit >= 2 * pdfMinPagesPerTask
+                    ? PdfPageText.tasks(limit, extractPool, pdfMinPagesPerTask) : 1;
+            List<String> nativePages = tasks > 1
+                    ? PdfPageText.pages(() -> pdf.load(copies / tasks), limit, extractPool, pdfMinPagesPerTask)
+                    : PdfPageText.pages(doc, 1, limit);
+
+            // 2) Classify pages: a page with too little native text that is mostly picture
+            //    (scanned, or just a header line over an image) is weak and goes to OCR; the
+            //    rest keep their text, so blank or vector-only pages are never paid for.
+            List<Integer> weak = new ArrayList<>();
+            for (int i = 0; i < nativePages.size(); i++) {
+                if (OcrHeuristics.looksWeak(nativePages.get(i), weakPageMinChars, weakPageMinAlphaShare)
+                        && hasImages(doc, i)) weak.add(i);
+            }
+            if (weak.isEmpty()) {
+                log.debug("PDF native text found (pages={}, chars={})", limit,
+                        nativePages.stream().mapToInt(String::length).sum());
+                return new PagedText(nativePages);
             }
-
-            // 2) OCR fallback for scanned PDFs
             if (!ocrEnabled || ocrService == null) {
-                log.debug("PDF has no native text and OCR is disabled");
-                return "";
+                log.debug("PDF has {} weak pages of {} and OCR is disabled", weak.size(), limit);
+                return new PagedText(nativePages);
             }
 
-            int ocrPages = Math.min(limit, ocrMaxPages);
-
-            // 3) Multi-page PDF with async Textract available → use async path
-            if (total > 1 && textractService != null && textractService.isAsyncEnabled()) {
+            // 3) Fully scanned multi-page PDF with async Textract available → use async path
+            if (weak.size() == limit && total > 1 && textractService != null && textractService.isAsyncEnabled()) {
                 log.info("Using async Textract for multi-page PDF: {} pages", total);
                 String documentId = UUID.randomUUID().toString();
-                String text = normalize(textractService.ocrPdfAsync(bytes, documentId));
-                log.debug("Async Textract result: {} chars", text.length());
-                return text;
+                List<String> ocr = textractService.ocrPdfPagesAsync(pdf.readAll(), documentId).stream()
+                        .limit(limit)
+                        .map(DefaultTextExtractor::normalize)
+                        .toList();
+                log.debug("Async Textract result: {} pages", ocr.size());
+                return merge(nativePages, weak, weak.stream().map(i -> i < ocr.size() ? ocr.get(i) : "").toList());
             }
 
-            // 4) Single page or no async → page-by-page sync OCR
-            log.debug("Using sync OCR for PDF: {} pages", ocrPages);
-            return ocrPdfPageByPage(doc, ocrPages);
+            // 4) Otherwise sync OCR of the weak pages only, up to ocr.maxPages of them
+            List<Integer> toOcr = weak.subList(0, Math.min(weak.size(), ocrMaxPages));
+            log.debug("Using sync OCR for PDF: {} weak pages of {}", toOcr.size(), limit);
+            return merge(nativePages, toOcr, List.of(ocrPdfPages(pdf, doc, toOcr, copies)));
+        }
+    }
+
+    /**
+     * Whether images cover at least {@code weakPage.minImageShare} of page {@code index}.
+     * A page whose content cannot be walked counts as having images, so it is still OCR'd.
+     */
+    private boolean hasImages(PDDocument doc, int index) {
+        try {
+            return PdfPageImages.areaShare(doc.getPage(index)) >= weakPageMinImageShare;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not inspect images on PDF page {}: {}", index + 1, e.toString());
+            return true;
+        }
+    }
+
+    /**
+     * Native pages with page {@code replaced.get(j)} swapped for {@code ocrTexts.get(j)},
+     * unless the OCR text came back blank.
+     */
+    private static PagedText merge(List<String> nativePages, List<Integer> replaced, List<String> ocrTexts) {
+        List<String> pages = new ArrayList<>(nativePages);
+        for (int j = 0; j < replaced.size(); j++) {
+            String text = ocrTexts.get(j);
+            if (text != null && !text.isBlank()) pages.set(replaced.get(j), text);
         }
+        return new PagedText(pages);
     }
 
     /**
-     * OCR PDF page by page using sync Textract.
-     * Used for single-page PDFs or when async is not available.
+     * OCR the given pages (0-based) using sync OCR; element {@code j} is page
+     * {@code pages.get(j)}. Pages are split into up to {@code app.extract.ocr.parallelism}
+     * contiguous groups. The last group renders from {@code doc} on the calling thread once
+     * the others are submitted to {@code ocrExecutor}; a {@link PDDocument} is not
+     * thread-safe, so each of those renders from its own copy, together caching at most
+     * {@code copiesBudget} on heap.
      */
-    private String ocrPdfPageByPage(PDDocument doc, int ocrPages) throws Exception {
-        StringBuilder sb = new StringBuilder(ocrPages * 800);
+    private String[] ocrPdfPages(PdfSource pdf, PDDocument doc, List<Integer> pages, long copiesBudget) throws Exception {
+        String[] out = new String[pages.size()];
+        if (out.length == 0) return out;
+        int groups = Math.max(1, Math.min(ocrParallelism, pages.size()));
+        int perGroup = (pages.size() + groups - 1) / groups;
+        groups = (pages.size() + perGroup - 1) / perGroup;
+        long t0 = System.nanoTime();
+
+        if (groups == 1) {
+            ocrPdfPages(doc, pages, 0, pages.size(), out);
+        } else {
+            // Tasks start in index order with the window open for all of them, so the
+            // last group runs inline only after every other group is already submitted.
+            int last = groups - 1;
+            long groupBudget = copiesBudget / last;
+            OrderedFanout.runAsync(groups, groups,
+                    g -> {
+                        int from = g * perGroup;
+                        int to = Math.min(pages.size(), from + perGroup);
+                        String[] part = new String[to - from];
+                        if (g == last) {
+                            ocrPdfPages(doc, pages, from, to, part);
+                            return CompletableFuture.completedFuture(part);
+                        }
+                        return CompletableFuture.supplyAsync(() -> {
+                            try (PDDocument copy = pdf.load(groupBudget)) {
+                                ocrPdfPages(copy, pages, from, to, part);
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                            return part;
+                        }, ocrExecutor);
+                    },
+                    (g, part) -> System.arraycopy(part, 0, out, g * perGroup, part.length));
+        }
+
+        long totalChars = 0;
+        for (String text : out) totalChars += text.length();
+        log.info("Sync OCR summary (PDF): pages={}, groups={}, totalChars={}, tookMs={}",
+                pages.size(), groups, totalChars, (System.nanoTime() - t0) / 1_000_000);
+        return out;
+    }
 
-        for (int i = 0; i < ocrPages; i++) {
+    /** Renders and OCRs {@code pages[from..to)} of {@code doc} into {@code out[0..to-from)}, in order. */
+    private void ocrPdfPages(PDDocument doc, List<Integer> pages, int from, int to, String[] out) throws Exception {
+        for (int j = from; j < to; j++) {
             long pageStart = System.nanoTime();
+            int pageIndex = pages.get(j);
 
             // Render PDF page to image
-            BufferedImage page = PdfRender.render(doc, i, ocrDpi);
+            BufferedImage page = PdfRender.render(doc, pageIndex, ocrDpi);
 
             // OCR the page image
             String text = normalize(ocrService.ocr(page, null));
+            out[j - from] = text;
 
             long tookMs = (System.nanoTime() - pageStart) / 1_000_000;
-            log.debug("OCR page {} chars={} tookMs={}", (i + 1), text.length(), tookMs);
-
-            if (!text.isBlank()) {
-                if (sb.length() > 0) sb.append("\n\n");
-                sb.append(text);
-            }
+            log.debug("OCR page {} chars={} tookMs={}", pageIndex + 1, text.length(), tookMs);
         }
-
-        log.info("Sync OCR summary (PDF): pages={}, totalChars={}", ocrPages, sb.length());
-        return sb.toString();
     }
 
     /**
@@ -227,7 +425,7 @@ public class DefaultTextExtractor implements TextExtractor {
     /**
      * Normalize whitespace and control characters in extracted text.
      */
-    private static String normalize(String s) {
+    static String normalize(String s) {
         if (s == null) return "";
         String t = s.replace("\r\n", "\n").replace("\r", "\n")
                 .replaceAll("[\\p{Cntrl}&&[^\\r\\n\\t]]", " ");
@@ -0,0 +1,29 @@
+package com.lexaro.api.extract;
+
+import java.util.List;
+
+/**
+ * Extracted text split by page: {@code pages.get(i)} is the text of page {@code i + 1},
+ * empty for a page with no text. Formats without pages are a single page.
+ */
+public record PagedText(List<String> pages) {
+
+    public PagedText {
+        pages = pages == null ? List.of() : List.copyOf(pages);
+    }
+
+    public static PagedText single(String text) {
+        return new PagedText(List.of(text == null ? "" : text));
+    }
+
+    /** All pages, separated by blank lines. */
+    public String joined() {
+        StringBuilder sb = new StringBuilder();
+        for (String p : pages) {
+            if (p.isBlank()) continue;
+            if (sb.length() > 0) sb.append("\n\n");
+            sb.append(p);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.lexaro.api.extract;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+
+/**
+ * How much of a PDF page is covered by images, XObject or inline, including those drawn
+ * from form XObjects. Only the content stream is walked: images are placed, never decoded.
+ *
+ * <p>A page with little native text is worth OCR only if there is a picture to read;
+ * blank, title, equation or vector-figure pages have none.
+ */
+final class PdfPageImages {
+    private PdfPageImages() {}
+
+    /** Summed image area over the page's crop box area, capped at 1. */
+    static double areaShare(PDPage page) throws IOException {
+        PDRectangle box = page.getCropBox();
+        double pageArea = (double) box.getWidth() * box.getHeight();
+        if (pageArea <= 0) return 0;
+
+        var engine = new ImageArea(page);
+        engine.processPage(page);
+        return Math.min(1.0, engine.area / pageArea);
+    }
+
+    /** Adds up the area of the unit square each drawn image is mapped onto. */
+    private static final class ImageArea extends PDFGraphicsStreamEngine {
+        private final Point2D.Float current = new Point2D.Float();
+        private double area;
+
+        ImageArea(PDPage page) {
+            super(page);
+        }
+
+        @Override
+        public void drawImage(PDImage image) {
+            Matrix m = getGraphicsState().getCurrentTransformationMatrix();
+            area += Math.abs((double) m.getScaleX() * m.getScaleY() - (double) m.getShearX() * m.getShearY());
+        }
+
+        @Override public void moveTo(float x, float y) { current.setLocation(x, y); }
+        @Override public void lineTo(float x, float y) { current.setLocation(x, y); }
+        @Override public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) { current.setLocation(x3, y3); }
+        @Override public Point2D getCurrentPoint() { return current; }
+
+        @Override public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {}
+        @Override public void clip(int windingRule) {}
+        @Override public void closePath() {}
+        @Override public void endPath() {}
+        @Override public void strokePath() {}
+        @Override public void fillPath(int windingRule) {}
+        @Override public void fillAndStrokePath(int windingRule) {}
+        @Override public void shadingFill(COSName shadingName) {}
+    }
+}
@@ -0,0 +1,111 @@
+package com.lexaro.api.extract;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Native PDF text per page, normalized page by page. Element {@code i} of a result is
+ * always page {@code from + i}; pages the stripper skips (no content stream) are empty.
+ *
+ * <p>{@link #pages(Opener, int, ForkJoinPool, int)} splits the page range across a pool.
+ * A {@link PDDocument} is not thread-safe, so each range loads its own copy of the
+ * document; PDFBox parses objects lazily, so a range only materializes its own pages.
+ */
+final class PdfPageText {
+    private PdfPageText() {}
+
+    /** Loads one independent copy of the document; called once per range. */
+    @FunctionalInterface
+    interface Opener {
+        PDDocument open() throws IOException;
+    }
+
+    /** Pages {@code from..to} (1-based, inclusive) of an open document, on the calling thread. */
+    static List<String> pages(PDDocument doc, int from, int to) throws IOException {
+        var s = new PageStripper(from);
+        s.setStartPage(from);
+        s.setEndPage(to);
+        s.writeText(doc, s.out);
+        while (s.pages.size() < to - from + 1) s.pages.add("");
+        return s.pages;
+    }
+
+    /**
+     * Ranges {@link #pages(Opener, int, ForkJoinPool, int)} splits {@code pageCount} pages
+     * into: at most the pool's parallelism, each at least {@code minPagesPerTask} pages.
+     */
+    static int tasks(int pageCount, ForkJoinPool pool, int minPagesPerTask) {
+        return Math.max(1, Math.min(pool.getParallelism(), pageCount / Math.max(1, minPagesPerTask)));
+    }
+
+    /**
+     * Pages {@code 1..pageCount} of the PDF {@code opener} loads, split into
+     * {@link #tasks} ranges and merged in page order. A single range runs on the calling
+     * thread.
+     */
+    static List<String> pages(Opener opener, int pageCount, ForkJoinPool pool, int minPagesPerTask) throws Exception {
+        int tasks = tasks(pageCount, pool, minPagesPerTask);
+        if (tasks < 2) {
+            try (PDDocument doc = opener.open()) {
+                return pages(doc, 1, pageCount);
+            }
+        }
+
+        int perTask = (pageCount + tasks - 1) / tasks;
+        List<ForkJoinTask<List<String>>> parts = new ArrayList<>(tasks);
+        for (int start = 1; start <= pageCount; start += perTask) {
+            int from = start;
+            int to = Math.min(pageCount, start + perTask - 1);
+            parts.add(pool.submit(() -> {
+                try (PDDocument doc = opener.open()) {
+                    return pages(doc, from, to);
+                }
+            }));
+        }
+
+        List<String> out = new ArrayList<>(pageCount);
+        try {
+            for (ForkJoinTask<List<String>> part : parts) out.addAll(part.get());
+        } catch (ExecutionException e) {
+            parts.forEach(p -> p.cancel(true));
+            if (e.getCause() instanceof Exception ex) throw ex;
+            throw e;
+        } catch (InterruptedException | CancellationException e) {
+            parts.forEach(p -> p.cancel(true));
+            throw e;
+        }
+        return out;
+    }
+
+    /** One pass of {@link PDFTextStripper}, cut at each page end. */
+    private static final class PageStripper extends PDFTextStripper {
+        private final List<String> pages = new ArrayList<>();
+        private final StringWriter out = new StringWriter();
+        private final int firstPage;
+        private int pageStart;
+
+        PageStripper(int firstPage) throws IOException {
+            this.firstPage = firstPage;
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            output.flush();
+            while (pages.size() < getCurrentPageNo() - firstPage) pages.add("");
+            StringBuffer buf = out.getBuffer();
+            pages.add(DefaultTextExtractor.normalize(buf.substring(pageStart)));
+            pageStart = buf.length();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.lexaro.api.extract;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * High-level text extraction entry point (routes by MIME type).
  *
@@ -22,6 +25,23 @@ public interface TextExtractor {
      */
     String extract(String mime, byte[] bytes, int maxPages) throws Exception;
 
+    /**
+     * Like {@link #extract(String, byte[], int)}, but keeps page boundaries. Formats
+     * without pages come back as a single page.
+     */
+    default PagedText extractPages(String mime, byte[] bytes, int maxPages) throws Exception {
+        return PagedText.single(extract(mime, bytes, maxPages));
+    }
+
+    /**
+     * Like {@link #extractPages(String, byte[], int)}, for content already on disk.
+     * Implementations should read large paged formats (PDF) from the file instead of
+     * loading it into memory; the default reads the whole file.
+     */
+    default PagedText extractPages(String mime, Path file, int maxPages) throws Exception {
+        return extractPages(mime, Files.readAllBytes(file), maxPages);
+    }
+
     /** Convenience overload: extract all pages. */
     default String extract(String mime, byte[] bytes) throws Exception {
         return extract(mime, bytes, 0);
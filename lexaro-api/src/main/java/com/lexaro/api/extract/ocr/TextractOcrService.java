@@ -18,7 +18,6 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * AWS Textract OCR service supporting both sync and async operations.
@@ -156,9 +155,19 @@ public class TextractOcrService implements OcrService {
      * @return Extracted text from all pages, or empty string on failure
      */
     public String ocrPdfAsync(byte[] pdfBytes, String documentId) {
+        return String.join("\n", ocrPdfPagesAsync(pdfBytes, documentId));
+    }
+
+    /**
+     * Like {@link #ocrPdfAsync}, but returns the text of each page: element {@code i} is
+     * page {@code i + 1}, empty where Textract found no lines.
+     *
+     * @return text per page, or an empty list on failure
+     */
+    public List<String> ocrPdfPagesAsync(byte[] pdfBytes, String documentId) {
         if (!isAsyncEnabled()) {
             log.warn("Async Textract not enabled (no staging bucket configured)");
-            return "";
+            return List.of();
         }
 
         String stagingKey = documentId + "-" + UUID.randomUUID() + ".pdf";
@@ -173,19 +182,20 @@ public class TextractOcrService implements OcrService {
             String jobId = startAsyncTextDetection(stagingService.getBucket(), stagingService.getFullKey(stagingKey));
 
             // 3. Poll for completion and get results
-            String text = waitForAsyncResult(jobId);
+            List<String> pages = waitForAsyncPages(jobId);
 
             long tookMs = System.currentTimeMillis() - startTime;
-            log.info("Async Textract complete: jobId={}, chars={}, tookMs={}", jobId, text.length(), tookMs);
+            log.info("Async Textract complete: jobId={}, pages={}, chars={}, tookMs={}", jobId, pages.size(),
+                    pages.stream().mapToInt(String::length).sum(), tookMs);
 
-            return text;
+            return pages;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Async Textract interrupted");
-            return "";
+            return List.of();
         } catch (Exception e) {
             log.error("Async Textract failed: {}", e.getMessage(), e);
-            return "";
+            return List.of();
         } finally {
             // 4. Cleanup staging object
             try {
@@ -235,6 +245,11 @@ public class TextractOcrService implements OcrService {
      * @throws TextractException    if job fails
      */
     public String waitForAsyncResult(String jobId) throws InterruptedException {
+        return String.join("\n", waitForAsyncPages(jobId));
+    }
+
+    /** Like {@link #waitForAsyncResult}, but returns the text of each page. */
+    public List<String> waitForAsyncPages(String jobId) throws InterruptedException {
         long startTime = System.currentTimeMillis();
         long timeoutMs = timeoutSeconds * 1000;
 
@@ -248,7 +263,7 @@ public class TextractOcrService implements OcrService {
 
             if (status == JobStatus.SUCCEEDED) {
                 log.debug("Async Textract job {} succeeded", jobId);
-                return extractAllPagesText(jobId, response);
+                return extractAllPages(jobId, response);
             }
 
             if (status == JobStatus.FAILED) {
@@ -276,7 +291,7 @@ public class TextractOcrService implements OcrService {
     /**
      * Extract text from all pages of an async job result, handling pagination.
      */
-    private String extractAllPagesText(String jobId, GetDocumentTextDetectionResponse firstResponse) {
+    private List<String> extractAllPages(String jobId, GetDocumentTextDetectionResponse firstResponse) {
         List<Block> allBlocks = new ArrayList<>(firstResponse.blocks());
         String nextToken = firstResponse.nextToken();
 
@@ -292,19 +307,26 @@ public class TextractOcrService implements OcrService {
             nextToken = response.nextToken();
         }
 
-        return extractTextFromBlocks(allBlocks);
+        return extractPagesFromBlocks(allBlocks);
     }
 
     /**
-     * Extract LINE text from blocks, preserving reading order.
+     * Extract LINE text from blocks, preserving reading order, grouped by the block's
+     * (1-based) page.
      */
-    private String extractTextFromBlocks(List<Block> blocks) {
-        if (blocks == null) return "";
-
-        return blocks.stream()
-                .filter(block -> block.blockType() == BlockType.LINE)
-                .map(Block::text)
-                .collect(Collectors.joining("\n"));
+    private List<String> extractPagesFromBlocks(List<Block> blocks) {
+        if (blocks == null) return List.of();
+
+        List<StringBuilder> pages = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block.blockType() != BlockType.LINE || block.text() == null) continue;
+            int page = block.page() == null ? 1 : Math.max(1, block.page());
+            while (pages.size() < page) pages.add(new StringBuilder());
+            StringBuilder sb = pages.get(page - 1);
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(block.text());
+        }
+        return pages.stream().map(StringBuilder::toString).toList();
     }
 
     private void logTextractError(String mode, TextractException ex) {
@@ -2,8 +2,36 @@ package com.lexaro.api.repo;
 
 import com.lexaro.api.domain.DocumentText;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
 import java.util.Optional;
 
 public interface DocumentTextRepository extends JpaRepository<DocumentText, Long> {
     Optional<DocumentText> findByDocId(Long docId);
+
+    /** Everything but the text itself, for checking a stored extraction without loading it. */
+    interface Meta {
+        String getMime();
+        int getCharCount();
+        Instant getExtractedAt();
+        String getSourceKey();
+        String getSourceSha256();
+        int getMaxPages();
+        int[] getPageOffsets();
+    }
+
+    Optional<Meta> findMetaByDocId(Long docId);
+
+    /**
+     * {@code length} characters (code points) of the stored text from offset {@code start};
+     * a negative length reads to the end. Only the slice leaves the database.
+     */
+    @Query(value = """
+            select case when :length < 0 then substr(text, :start + 1)
+                        else substr(text, :start + 1, :length) end
+            from document_texts where doc_id = :docId
+            """, nativeQuery = true)
+    String findTextSlice(@Param("docId") Long docId, @Param("start") int start, @Param("length") int length);
 }
@@ -1,22 +1,31 @@
 package com.lexaro.api.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lexaro.api.domain.AudioStatus;
 import com.lexaro.api.domain.DocStatus;
+import com.lexaro.api.domain.Document;
 import com.lexaro.api.domain.DocumentPurpose;
 import com.lexaro.api.domain.JobPayload;
-import com.lexaro.api.extract.TextExtractor;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.storage.StorageService;
+import com.lexaro.api.tts.SpeechMark;
+import com.lexaro.api.tts.SpeechMarkIndex;
 import com.lexaro.api.tts.TtsVoiceCatalogService;
+import com.lexaro.api.web.dto.AudioSegmentsResponse;
+import com.lexaro.api.web.dto.SpeechMarksResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -24,33 +33,48 @@ import java.util.regex.Pattern;
 public class DocumentAudioService {
 
     private final DocumentRepository docs;
-    private final DocumentAudioWorker worker;   // async
     private final PlanService plans;
     private final TtsQuotaService quota;
     private final StorageService storage;
-    private final TextExtractor extractor;
+    private final DocumentTextService textService;
     private final TtsVoiceCatalogService voices; // Polly catalog only
     private final JobService jobService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
 
     @Value("${app.translate.conservativeMultiplier:1.3}")
     private double translateMultiplier;
 
-    private static final Pattern WS = Pattern.compile("\\s+");
+    /**
+     * Validates the request, reserves quota and enqueues the TTS job.
+     *
+     * <p>Not transactional itself: sizing the text may download and extract the file, which
+     * runs first, outside any database transaction; only the claim, reservation and enqueue
+     * below run in one.
+     */
+    public void start(Long userId, Long docId, String voice, String engine, String format, String targetLang) {
+        var doc = findStartable(userId, docId);
+        // Already generating or done: the claim below would refuse it anyway, so skip the peek.
+        if (doc.getAudioStatus() == AudioStatus.PROCESSING || doc.getAudioStatus() == AudioStatus.READY) {
+            return;
+        }
 
-    private static String normalizeWhitespace(String s) {
-        if (s == null) return "";
-        String t = s.replaceAll("[\\p{Cntrl}&&[^\\r\\n\\t]]", " ").trim();
-        return WS.matcher(t).replaceAll(" ");
-    }
+        // ---------------- Peek text size (pre-translate) ----------------
+        // From the stored extraction's metadata; only a document that was never extracted
+        // is extracted here, once, and the worker then reuses that text.
+        int fullChars;
+        try {
+            fullChars = textService.fullTextChars(doc);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to peek text size: " + e.getMessage());
+        }
 
-    private static int countChars(String s) {
-        String t = normalizeWhitespace(s);
-        if (t.isEmpty()) return 0;
-        return t.length();
+        tx.executeWithoutResult(status -> claimAndEnqueue(userId, docId, voice, engine, format, targetLang, fullChars));
     }
 
-    @Transactional
-    public void start(Long userId, Long docId, String voice, String engine, String format, String targetLang) {
+    private Document findStartable(Long userId, Long docId) {
         var doc = docs.findByIdAndUserId(docId, userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
 
@@ -60,6 +84,12 @@ public class DocumentAudioService {
         if (doc.getObjectKey() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stored file for this document");
         }
+        return doc;
+    }
+
+    private void claimAndEnqueue(Long userId, Long docId, String voice, String engine, String format,
+                                 String targetLang, int fullChars) {
+        var doc = findStartable(userId, docId);
         // Atomically transition audio_status NONE/FAILED → PROCESSING.
         // Returns 0 if another request already claimed the slot (PROCESSING) or audio is READY,
         // preventing duplicate job dispatch under concurrent requests.
@@ -107,38 +137,23 @@ public class DocumentAudioService {
             log.debug("Skipping Polly validation for non-Polly voice '{}'", reqVoice);
         }
 
-        // ---------------- Peek planned chars (pre-translate) ----------------
+        // ---------------- Planned chars ----------------
         int perDocCapChars = plans.ttsMaxCharsForPlan(plan);
-        int plannedChars;
-        try {
-            byte[] bytes = storage.getBytes(doc.getObjectKey());
-            String raw = extractor.extract(doc.getMime(), bytes, 0);
-            String text = normalizeWhitespace(raw);
-
-            if (text.isBlank()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No extractable text in file");
-            }
-
-            int baseChars = Math.min(countChars(text), perDocCapChars);
-
-            boolean willTranslate = targetLang != null
-                    && !targetLang.isBlank()
-                    && !"auto".equalsIgnoreCase(targetLang)
-                    && !"same".equalsIgnoreCase(targetLang);
+        int baseChars = Math.min(fullChars, perDocCapChars);
 
-            plannedChars = willTranslate
-                    ? Math.min((int) Math.ceil(baseChars * translateMultiplier), perDocCapChars)
-                    : baseChars;
+        boolean willTranslate = targetLang != null
+                && !targetLang.isBlank()
+                && !"auto".equalsIgnoreCase(targetLang)
+                && !"same".equalsIgnoreCase(targetLang);
 
-        } catch (ResponseStatusException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to peek text size: " + e.getMessage());
-        }
+        int plannedChars = willTranslate
+                ? Math.min((int) Math.ceil(baseChars * translateMultiplier), perDocCapChars)
+                : baseChars;
 
+        // Holds the planned chars until the worker charges the actual count (or the job
+        // fails for good), so concurrent starts cannot together overspend a cap.
         if (!unlimited) {
-            quota.ensureWithinDailyCap(userId, plan, plannedChars);
-            quota.ensureWithinMonthlyCap(userId, plan, plannedChars);
+            quota.reserve(userId, docId, plan, plannedChars);
         }
 
         // ---------------- Mark & dispatch ----------------
@@ -164,7 +179,7 @@ public class DocumentAudioService {
         doc.setAudioError(null);
         docs.save(doc);
 
-        // Enqueue a durable job instead of dispatching directly to the @Async worker.
+        // Enqueue a durable job instead of dispatching directly to the worker.
         // The JobRunner polls the job table and dispatches to DocumentAudioWorker,
         // providing restart-safety: if the API dies mid-job, the runner picks it up
         // again on restart. The payload stores voice/engine/format so the runner
@@ -173,4 +188,93 @@ public class DocumentAudioService {
         jobService.enqueue(userId, docId, "TTS",
                 new JobPayload(reqVoice, gatedEngine, fmt, unlimited, targetLang));
     }
+
+    /**
+     * Segments of an in-progress generation that are already playable, in order.
+     *
+     * <p>The worker checkpoints every finished chunk under the running job's prefix and
+     * advances the cursor in the job payload only over a contiguous prefix, so the
+     * first {@code chunksDone} chunk objects form a valid, growing playlist. Presigned
+     * URLs are served inline so players can stream them directly. Each PCM chunk is stored
+     * with its own WAV header; chunks without audio are recorded in the payload and left
+     * out, so segment indexes can have gaps. Nothing is read from storage: presigning is
+     * local, so a poll costs one job lookup.
+     *
+     * @param from first segment index to return; clients pass one past the last index they
+     *             already have to receive only new segments
+     * @return the ready segments, or an empty list if no job is running or nothing is done yet
+     */
+    public AudioSegmentsResponse segments(Long userId, Long docId, int from, int ttlSeconds) {
+        int ttl = Math.max(60, Math.min(ttlSeconds, 3600));
+
+        var job = jobService.findActive(docId, "TTS")
+                .filter(j -> userId.equals(j.getUserId()))
+                .orElse(null);
+        JobPayload payload = job == null ? null : readPayload(job.getPayload());
+        String fmt = payload == null || payload.format() == null ? "mp3" : payload.format();
+        if (payload == null || payload.chunksDone() == null) {
+            return new AudioSegmentsResponse(AudioStatus.PROCESSING.name(), false, fmt, List.of(), null);
+        }
+
+        String contentType = switch (fmt) {
+            case "ogg_vorbis", "ogg" -> "audio/ogg";
+            case "pcm" -> "audio/wave";
+            default    -> "audio/mpeg";
+        };
+        String prefix = TtsCheckpoint.jobChunkPrefix(job.getId());
+        Set<Integer> empty = payload.emptyChunks() == null ? Set.of() : Set.copyOf(payload.emptyChunks());
+        int start = Math.max(0, from);
+        List<AudioSegmentsResponse.Segment> segments = new ArrayList<>(Math.max(0, payload.chunksDone() - start));
+        for (int i = start; i < payload.chunksDone(); i++) {
+            if (empty.contains(i)) continue;
+            String key = TtsCheckpoint.chunkKey(prefix, i);
+            String url = storage.presignGet(key, ttl, contentType, "inline").url();
+            segments.add(new AudioSegmentsResponse.Segment(i, url));
+        }
+        return new AudioSegmentsResponse(AudioStatus.PROCESSING.name(), false, fmt, segments, null);
+    }
+
+    /**
+     * Speech marks of the finished audio whose time (ms) or char offset falls in
+     * {@code [from, to)}, read by range from the sidecar so only the matching blocks of the
+     * index are fetched.
+     *
+     * @param byChars true to select by char offset in the synthesized text, false by time
+     */
+    @Transactional(readOnly = true)
+    public SpeechMarksResponse speechMarks(Long userId, Long docId, boolean byChars, long from, long to, int limit) {
+        var doc = docs.findByIdAndUserId(docId, userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
+        if (doc.getAudioStatus() != AudioStatus.READY || doc.getAudioObjectKey() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Audio not ready");
+        }
+
+        int max = Math.max(1, Math.min(limit, 5000));
+        String key = SpeechMarkIndex.sidecarKey(doc.getAudioObjectKey());
+        List<SpeechMark> marks;
+        try {
+            marks = SpeechMarkIndex.read((off, len) -> storage.getRange(key, off, len),
+                    byChars ? SpeechMarkIndex.Axis.CHARS : SpeechMarkIndex.Axis.TIME, from, to, max + 1);
+        } catch (Exception e) {
+            log.debug("Speech marks unreadable docId={} key={}: {}", docId, key, e.toString());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No speech marks for this audio");
+        }
+
+        boolean truncated = marks.size() > max;
+        List<SpeechMarksResponse.Mark> out = new ArrayList<>(Math.min(marks.size(), max));
+        for (SpeechMark m : truncated ? marks.subList(0, max) : marks) {
+            out.add(new SpeechMarksResponse.Mark(m.type().name().toLowerCase(Locale.ROOT), m.timeMs(), m.start(), m.end()));
+        }
+        return new SpeechMarksResponse(docId, out, truncated);
+    }
+
+    private JobPayload readPayload(String json) {
+        if (json == null || json.isBlank()) return null;
+        try {
+            return objectMapper.readValue(json, JobPayload.class);
+        } catch (Exception e) {
+            log.warn("Unreadable job payload for segment listing: {}", e.getMessage());
+            return null;
+        }
+    }
 }
@@ -1,26 +1,41 @@
 package com.lexaro.api.service;
 
 import com.lexaro.api.domain.AudioStatus;
+import com.lexaro.api.domain.Document;
 import com.lexaro.api.domain.Plan;
-import com.lexaro.api.extract.TextExtractor;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.storage.StorageService;
 import com.lexaro.api.translate.TranslateService;
+import com.lexaro.api.tts.AudioAssembler;
+import com.lexaro.api.tts.DelegatingTtsService;
+import com.lexaro.api.tts.LongFormSynthesizer;
+import com.lexaro.api.tts.OrderedFanout;
+import com.lexaro.api.tts.SpeechMark;
+import com.lexaro.api.tts.SpeechMarkIndex;
 import com.lexaro.api.tts.TextChunker;
 import com.lexaro.api.tts.TtsMetrics;
 import com.lexaro.api.tts.TtsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 @Slf4j
@@ -32,13 +47,22 @@ public class DocumentAudioWorker {
     private final StorageService storage;
     private final TtsService tts;
     private final PlanService plans;
-    private final TextExtractor extractor;
+    private final DocumentTextService textService;
     private final TtsQuotaService quota;
     /** Micrometer counters/timers for TTS job observability. */
     private final TtsMetrics ttsMetrics;
+    /** Provider-side synthesis for long documents (see {@link PlanService#ttsLongFormFor}). */
+    private final LongFormSynthesizer longForm;
+    /** Lease-fenced document writes for attempts run from the job table (see {@link TtsCheckpoint#lease}). */
+    private final JobService jobService;
+    private final TransactionTemplate tx;
 
     private final @Autowired(required = false) TranslateService translate;
 
+    /** Shared pool for chunk loads, stores and (blocking path only) provider calls, across all jobs (see AsyncConfig). */
+    @Qualifier("ttsChunkExecutor")
+    private final Executor ttsChunkExecutor;
+
     private static final Pattern WS = Pattern.compile("\\s+");
 
     private static String normalizeWhitespace(String s) {
@@ -47,7 +71,7 @@ public class DocumentAudioWorker {
         return WS.matcher(t).replaceAll(" ");
     }
 
-    @Async("ttsExecutor")
+    /** Synthesizes without checkpointing; see {@link #process(Long, Long, String, String, String, boolean, String, TtsCheckpoint)}. */
     public void process(Long userId,
                         Long docId,
                         String voice,
@@ -55,9 +79,61 @@ public class DocumentAudioWorker {
                         String format,
                         boolean unlimited,
                         String targetLang) {
+        process(userId, docId, voice, engine, format, unlimited, targetLang, TtsCheckpoint.NONE);
+    }
+
+    /**
+     * Runs synchronously on the calling thread. {@link com.lexaro.api.worker.JobRunner}
+     * already executes jobs on {@code ttsExecutor} and reads the document status as soon
+     * as this returns, so the method must not hop to another thread.
+     *
+     * <p>Up to {@link PlanService#ttsChunkParallelismForPlan} chunks are synthesized at once
+     * on the shared {@code ttsChunkExecutor} and reassembled in their original order.
+     * With {@link PlanService#ttsAsyncEnabled}, both providers are called through their
+     * non-blocking clients, so pool threads only do the short work around each request and
+     * none waits on the network.
+     *
+     * <p>Each synthesized chunk is persisted through {@code checkpoint} before the cursor
+     * advances, so a retry of the same job reads the finished chunks back from storage and
+     * only calls the TTS provider for the rest. The intermediate objects are deleted once
+     * the merged audio is stored.
+     *
+     * <p>Chunks pass through an {@link AudioAssembler} so the result is one well-formed
+     * file (single VBR header, continuous Ogg granules, WAV header for PCM) rather than
+     * concatenated chunk files, written to a {@link StorageService#openUpload streaming
+     * upload}. Heap use per job is bounded by the upload part size plus the chunks in
+     * flight, not by the document length. Only Ogg reaches storage part by part while
+     * chunks are synthesized: MP3 and WAV headers need totals known after the last chunk,
+     * so those assemblers spill the audio to a local temp file (up to the document's audio
+     * size on disk) and the whole upload happens in {@link AudioAssembler#finish}.
+     *
+     * <p>Long documents on plans configured for it are instead submitted to the provider as
+     * long-form tasks that write to storage directly; the job is parked in the {@code job}
+     * table while they run (see {@link LongFormCheckpoint}) and no audio passes through
+     * this node unless the text needed more than one task. A claim that finds every task
+     * recorded checks them before extracting or translating anything.
+     *
+     * <p>Sentence/word timings are collected per chunk, shifted by the chunk's start time
+     * and text offset, and stored as a {@link SpeechMarkIndex} sidecar next to the audio.
+     *
+     * <p>For a job, the document's READY or FAILED is written only while the job's lease
+     * is held ({@link JobService#saveAudioOutcome}), and the quota is charged in the same
+     * transaction as READY. Once the lease is reported lost, no further chunk is
+     * synthesized and the attempt ends without touching the document.
+     */
+    public void process(Long userId,
+                        Long docId,
+                        String voice,
+                        String engine,
+                        String format,
+                        boolean unlimited,
+                        String targetLang,
+                        TtsCheckpoint checkpoint) {
 
         log.info("TTS start docId={}, userId={}, voice={}, engine={}, format={}, targetLang={}",
                 docId, userId, voice, engine, format, targetLang);
+        ttsMetrics.incStarted();
+        long jobStart = System.nanoTime();
 
         var doc = docs.findByIdAndUserId(docId, userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
@@ -67,10 +143,37 @@ public class DocumentAudioWorker {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stored file for this document");
             }
 
-            byte[] bytes = storage.getBytes(doc.getObjectKey());
+            String v = (voice == null || voice.isBlank()) ? plans.defaultTtsVoice() : voice;
+            String e = (engine == null || engine.isBlank()) ? plans.defaultTtsEngine() : engine.toLowerCase(Locale.ROOT);
+            String f = (format == null || format.isBlank()) ? "mp3" : format.toLowerCase(Locale.ROOT);
 
-            String text = extractor.extract(doc.getMime(), bytes, 0);
-            text = normalizeWhitespace(text);
+            String ext = switch (f) {
+                case "ogg_vorbis" -> "ogg";
+                case "pcm" -> "wav";
+                default -> "mp3";
+            };
+
+            String contentType = switch (ext) {
+                case "ogg" -> "audio/ogg";
+                case "wav" -> "audio/wav";
+                default -> "audio/mpeg";
+            };
+
+            LongFormCheckpoint longFormCheckpoint = checkpoint instanceof LongFormCheckpoint lf ? lf : null;
+            LongFormCheckpoint.Tasks parked = longFormCheckpoint == null ? null : longFormCheckpoint.longFormTasks();
+            if (parked != null && parked.submitted()) {
+                // Checked before any text work: extraction or translation may not reproduce
+                // the text the tasks were submitted for.
+                String key = longFormResult(userId, docId, parked, ext, contentType, longFormCheckpoint);
+                longFormDone(doc, key, ext, v, userId, parked.chars(), unlimited, checkpoint, jobStart);
+                return;
+            }
+
+            // Stored extraction when there is one (the start path usually made it), so the
+            // file is not downloaded and extracted, or OCR'd, a second time.
+            long stageStart = System.nanoTime();
+            String text = normalizeWhitespace(textService.fullText(doc).getText());
+            ttsMetrics.recordStage(TtsMetrics.STAGE_EXTRACT, System.nanoTime() - stageStart);
 
             if (text.isBlank()) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No extractable text in file");
@@ -87,77 +190,157 @@ public class DocumentAudioWorker {
                     && !"same".equalsIgnoreCase(targetLang);
 
             if (doTranslate) {
+                stageStart = System.nanoTime();
                 text = translate.translate(text, "auto", targetLang);
                 text = normalizeWhitespace(text);
                 if (text.length() > perDocCap) text = text.substring(0, perDocCap);
+                ttsMetrics.recordStage(TtsMetrics.STAGE_TRANSLATE, System.nanoTime() - stageStart);
             }
 
-            int safeChunk = plans.ttsSafeChunkChars();
-            List<String> chunks = TextChunker.splitBySentences(text, safeChunk);
-            log.debug("TTS chunks docId={}, count={}", docId, chunks.size());
-
-            String v = (voice == null || voice.isBlank()) ? plans.defaultTtsVoice() : voice;
-            String e = (engine == null || engine.isBlank()) ? plans.defaultTtsEngine() : engine.toLowerCase(Locale.ROOT);
-            String f = (format == null || format.isBlank()) ? "mp3" : format.toLowerCase(Locale.ROOT);
-
             String lang = doTranslate ? targetLang : null;
 
             Plan plan = doc.getPlanAtUpload();
 
-            ByteArrayOutputStream mix = new ByteArrayOutputStream();
-
-            for (String c : chunks) {
-                if (c == null || c.isBlank()) continue;
-
-                byte[] audio = tts.synthesize(plan, c, v, e, f, lang);
-                if (audio == null || audio.length == 0) continue;
-
-                // MP3 frames can be concatenated safely for most encoders
-                mix.write(audio);
+            boolean useLongForm = longFormCheckpoint != null && plans.ttsLongFormFor(plan, e, f, text.length());
+            if (parked != null && (!useLongForm || !parked.fingerprint().equals(longFormFingerprint(text, v, e, f, lang)))) {
+                // A partial submission for other text; its tasks will never be used.
+                discardLongForm(parked, longFormCheckpoint);
             }
-
-            byte[] merged = mix.toByteArray();
-            if (merged.length == 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No audio could be generated");
+            if (useLongForm) {
+                submitLongForm(userId, docId, text, v, e, f, lang, longFormCheckpoint);
+                ttsMetrics.recordJob("parked", System.nanoTime() - jobStart);
+                return;
             }
 
-            String ext = switch (f) {
-                case "ogg_vorbis" -> "ogg";
-                case "pcm" -> "pcm";
-                default -> "mp3";
-            };
-
-            String contentType = switch (ext) {
-                case "ogg" -> "audio/ogg";
-                case "pcm" -> "audio/wave";
-                default -> "audio/mpeg";
-            };
+            // Pack chunks to the routed provider's request limit to minimize round trips.
+            // Offsets only; each chunk String is cut from the text when its task runs.
+            final String source = text;
+            TextChunker.Limit limit = plans.ttsChunkLimit(e);
+            List<TextChunker.Span> chunks = TextChunker.spans(source, limit);
+            ttsMetrics.recordChunking(DelegatingTtsService.providerFor(e), chunks, limit);
+            log.debug("TTS chunks docId={}, count={}, limit={}", docId, chunks.size(), limit);
+            // Checkpointed chunks double as playback segments, so PCM is stored with a WAV
+            // header of its own; the assembler strips it again on resume.
+            String chunkContentType = "wav".equals(ext) ? "audio/wave" : contentType;
+            int pcmSampleRate = plans.ttsPcmSampleRate();
+
+            boolean persist = checkpoint.chunkKeyPrefix() != null;
+            String fingerprint = chunkFingerprint(text, limit, v, e, f, lang);
+            int resumeFrom = persist ? Math.min(checkpoint.completedChunks(fingerprint), chunks.size()) : 0;
+            if (resumeFrom > 0) {
+                log.info("TTS resume docId={} from chunk {}/{}", docId, resumeFrom, chunks.size());
+            }
 
+            int parallelism = plans.ttsChunkParallelismForPlan(plan);
             String key = "aud/u/%d/%d/%s.%s".formatted(userId, doc.getId(), UUID.randomUUID(), ext);
-            storage.put(key, merged, contentType);
 
-            if (!unlimited) {
-                quota.addMonthlyUsage(userId, text.length());
-                quota.addDailyUsage(userId, text.length());
+            boolean wantMarks = plans.ttsSpeechMarksEnabled();
+
+            // Chunks are synthesized (and checkpointed) concurrently but consumed in order,
+            // so the cursor only ever advances over a contiguous prefix and the audio can be
+            // streamed through the assembler into the final object.
+            boolean[] advancing = {persist};
+            StorageService.Upload out = storage.openUpload(key, contentType);
+            long bytesOut;
+            stageStart = System.nanoTime();
+            try (AudioAssembler assembler = AudioAssembler.forFormat(ext, out, plans.ttsPcmSampleRate());
+                 SpeechMarkIndex.Writer marks = new SpeechMarkIndex.Writer()) {
+                // Checkpoint write and marks for a freshly synthesized chunk.
+                ChunkFinisher finisher = (i, c, audio) -> {
+                    if (audio == null) audio = new byte[0];
+                    if (persist) {
+                        storage.put(checkpoint.chunkKey(i), AudioAssembler.standalone(ext, audio, pcmSampleRate), chunkContentType);
+                    }
+                    return new SynthesizedChunk(audio, wantMarks && audio.length > 0 ? chunkMarks(plan, c, v, e, f, lang) : List.of());
+                };
+                OrderedFanout.Sink<SynthesizedChunk> sink = (i, chunk) -> {
+                    if (checkpoint.leaseLost()) throw new TtsCheckpoint.LeaseLostException();
+                    if (advancing[0] && i >= resumeFrom) {
+                        advancing[0] = checkpoint.advance(fingerprint, i + 1, chunk.audio().length == 0);
+                    }
+                    long startMs = assembler.durationMillis();
+                    assembler.append(chunk.audio());
+                    if (wantMarks && chunk.audio().length > 0) {
+                        addMarks(marks, chunk.marks(), startMs, chunks.get(i));
+                    }
+                };
+
+                if (plans.ttsAsyncEnabled()) {
+                    // Non-blocking providers: a pooled thread loads or admits each chunk and
+                    // stores its result, but none is held while the request is in flight.
+                    OrderedFanout.runAsync(chunks.size(), parallelism, i -> CompletableFuture
+                            .supplyAsync(() -> i < resumeFrom ? loadChunk(checkpoint, i) : null, ttsChunkExecutor)
+                            .thenCompose(resumed -> {
+                                if (resumed != null) return CompletableFuture.completedFuture(new SynthesizedChunk(resumed, List.of()));
+                                if (checkpoint.leaseLost()) throw new TtsCheckpoint.LeaseLostException();
+                                String c = chunks.get(i).text(source);
+                                CompletableFuture<byte[]> audio = c.isBlank()
+                                        ? CompletableFuture.completedFuture(null)
+                                        : tts.synthesizeAsync(plan, c, v, e, f, lang);
+                                return audio.thenApplyAsync(a -> {
+                                    try {
+                                        return finisher.finish(i, c, a);
+                                    } catch (Exception ex) {
+                                        throw new CompletionException(ex);
+                                    }
+                                }, ttsChunkExecutor);
+                            }), sink);
+                } else {
+                    OrderedFanout.run(ttsChunkExecutor, chunks.size(), parallelism, i -> {
+                        byte[] audio = i < resumeFrom ? loadChunk(checkpoint, i) : null;
+                        if (audio != null) return new SynthesizedChunk(audio, List.of());
+                        if (checkpoint.leaseLost()) throw new TtsCheckpoint.LeaseLostException();
+
+                        String c = chunks.get(i).text(source);
+                        return finisher.finish(i, c, c.isBlank() ? null : tts.synthesize(plan, c, v, e, f, lang));
+                    }, sink);
+                }
+
+                bytesOut = assembler.audioBytes();
+                if (bytesOut == 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No audio could be generated");
+                }
+                // Ogg parts were already uploaded during synthesis; MP3 and WAV are uploaded
+                // from their spill file here, so this stage is the whole transfer for them.
+                ttsMetrics.recordStage(TtsMetrics.STAGE_SYNTHESIZE, System.nanoTime() - stageStart);
+                stageStart = System.nanoTime();
+                assembler.finish();
+                out.close();
+                if (marks.size() > 0) storeMarks(key, marks);
+                ttsMetrics.recordStage(TtsMetrics.STAGE_UPLOAD, System.nanoTime() - stageStart);
+            } catch (Exception ex) {
+                out.abort();
+                throw ex;
             }
 
-            doc.setAudioObjectKey(key);
-            doc.setAudioFormat(ext);
-            doc.setAudioVoice(v);
-            doc.setAudioStatus(AudioStatus.READY);
-            doc.setAudioError(null);
-            docs.save(doc);
+            if (!markReady(doc, key, ext, v, userId, text.length(), unlimited, checkpoint)) {
+                deleteQuietly(key); // the job's new holder stores audio of its own
+                deleteQuietly(SpeechMarkIndex.sidecarKey(key));
+                throw new TtsCheckpoint.LeaseLostException();
+            }
+
+            if (checkpoint.chunkKeyPrefix() != null) {
+                deleteChunks(checkpoint, chunks.size());
+            }
 
             // Increment the global succeeded counter so Prometheus can track completion rate.
             ttsMetrics.incSucceeded();
+            ttsMetrics.recordJob("success", System.nanoTime() - jobStart);
 
             log.info("TTS success docId={}, bytesOut={}, key={}",
-                    docId, merged.length, key);
+                    docId, bytesOut, key);
 
         } catch (Exception ex) {
+            if (ex instanceof TtsCheckpoint.LeaseLostException || checkpoint.leaseLost()) {
+                // The job was reclaimed; its new holder owns the document's status.
+                ttsMetrics.recordJob("lease_lost", System.nanoTime() - jobStart);
+                log.warn("TTS abandoned docId={}: job lease lost ({})", docId, ex.toString());
+                return;
+            }
             // Increment the global failed counter before persisting status so the metric
             // reflects every terminal failure even if the subsequent save throws.
             ttsMetrics.incFailed();
+            ttsMetrics.recordJob("failure", System.nanoTime() - jobStart);
 
             log.error("TTS failed docId={}, userId={}, reason={}", docId, userId, ex.toString(), ex);
 
@@ -168,7 +351,253 @@ public class DocumentAudioWorker {
 
             String msg = ex.getMessage() == null ? "TTS failed" : ex.getMessage();
             doc.setAudioError(msg.substring(0, Math.min(250, msg.length())));
+            saveOutcome(doc, checkpoint);
+        }
+    }
+
+    /**
+     * Points the document at its finished audio and charges the actual chars against the
+     * start's reservation, in one transaction.
+     *
+     * @return {@code false} if the job's lease was lost; neither write was made
+     */
+    private boolean markReady(Document doc, String key, String ext, String voice, Long userId, int chars,
+                              boolean unlimited, TtsCheckpoint checkpoint) {
+        doc.setAudioObjectKey(key);
+        doc.setAudioFormat(ext);
+        doc.setAudioVoice(voice);
+        doc.setAudioStatus(AudioStatus.READY);
+        doc.setAudioError(null);
+        return Boolean.TRUE.equals(tx.execute(status -> {
+            if (!saveOutcome(doc, checkpoint)) return false;
+            if (!unlimited) {
+                quota.commit(userId, doc.getId(), chars);
+            }
+            return true;
+        }));
+    }
+
+    /** Saves the document's audio fields, conditional on the job's lease when there is one. */
+    private boolean saveOutcome(Document doc, TtsCheckpoint checkpoint) {
+        JobService.Lease lease = checkpoint.lease();
+        if (lease == null) {
             docs.save(doc);
+            return true;
+        }
+        return jobService.saveAudioOutcome(lease, doc);
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storage.delete(key);
+        } catch (Exception ex) {
+            log.debug("Could not delete {}: {}", key, ex.getMessage());
+        }
+    }
+
+    /**
+     * Long-form synthesis ({@link LongFormSynthesizer}): the provider writes the audio to
+     * storage itself. The first attempt submits one task per
+     * {@link LongFormSynthesizer#maxBilledChars} of text, recording each task before the
+     * next is submitted, and parks the job. A retry after a failed submission carries on
+     * after the last recorded task.
+     */
+    private void submitLongForm(Long userId, Long docId, String text, String voice, String engine, String format,
+                                String lang, LongFormCheckpoint checkpoint) throws Exception {
+        TextChunker.Limit limit = longFormLimit();
+        String fingerprint = longFormFingerprint(text, voice, engine, format, lang);
+        String prefix = "aud/u/%d/%d/".formatted(userId, docId);
+
+        List<TextChunker.Span> spans = TextChunker.spans(text, limit);
+        LongFormCheckpoint.Tasks recorded = checkpoint.longFormTasks();
+        int from = recorded != null && fingerprint.equals(recorded.fingerprint()) ? recorded.ids().size() : 0;
+        for (int i = from; i < spans.size(); i++) {
+            if (checkpoint.leaseLost()) throw new TtsCheckpoint.LeaseLostException();
+            String id = longForm.start(spans.get(i).text(text), voice, engine, format, prefix).id();
+            if (!checkpoint.longFormStarted(fingerprint, id, spans.size(), text.length())) {
+                throw new TtsCheckpoint.LeaseLostException();
+            }
+        }
+        log.info("TTS long-form docId={} submitted {} task(s)", docId, spans.size() - from);
+        checkpoint.awaitLongForm();
+    }
+
+    /**
+     * Checks the recorded tasks once. Text that needed several tasks has their outputs
+     * joined like chunks, one task's audio in memory at a time. If a task failed, the
+     * job waits for the others to finish too, then deletes every output and fails, so
+     * the retry starts from fresh tasks without leaving orphaned audio behind.
+     *
+     * @return storage key of the finished audio, or null if the job was parked again
+     */
+    private String longFormResult(Long userId, Long docId, LongFormCheckpoint.Tasks recorded, String ext,
+                                  String contentType, LongFormCheckpoint checkpoint) throws Exception {
+        List<LongFormSynthesizer.Task> tasks = new ArrayList<>(recorded.ids().size());
+        LongFormSynthesizer.Task failed = null;
+        boolean running = false;
+        for (String id : recorded.ids()) {
+            LongFormSynthesizer.Task t = longForm.status(id);
+            if (t.state() == LongFormSynthesizer.State.FAILED && failed == null) failed = t;
+            running |= t.state() == LongFormSynthesizer.State.RUNNING;
+            tasks.add(t);
+        }
+        if (running) {
+            checkpoint.awaitLongForm();
+            return null;
+        }
+        if (failed != null) {
+            deleteOutputs(tasks);
+            checkpoint.forgetLongForm(); // the retry submits fresh tasks
+            throw new IllegalStateException("Long-form synthesis task failed: " + failed.error());
+        }
+        if (tasks.size() == 1) return tasks.get(0).outputKey();
+
+        String key = "aud/u/%d/%d/%s.%s".formatted(userId, docId, UUID.randomUUID(), ext);
+        StorageService.Upload out = storage.openUpload(key, contentType);
+        try (AudioAssembler assembler = AudioAssembler.forFormat(ext, out, plans.ttsPcmSampleRate())) {
+            for (LongFormSynthesizer.Task t : tasks) assembler.append(storage.getBytes(t.outputKey()));
+            assembler.finish();
+            out.close();
+        } catch (Exception ex) {
+            out.abort();
+            throw ex;
+        }
+        deleteOutputs(tasks);
+        return key;
+    }
+
+    /** Marks the document READY on the long-form audio, or leaves it PROCESSING if the job was parked. */
+    private void longFormDone(Document doc, String key, String ext, String voice, Long userId, int chars,
+                              boolean unlimited, TtsCheckpoint checkpoint, long jobStart) {
+        if (key == null) { // parked until the provider's tasks have finished
+            ttsMetrics.recordJob("parked", System.nanoTime() - jobStart);
+            return;
+        }
+        if (!markReady(doc, key, ext, voice, userId, chars, unlimited, checkpoint)) {
+            throw new TtsCheckpoint.LeaseLostException();
+        }
+        ttsMetrics.incSucceeded();
+        ttsMetrics.recordJob("success", System.nanoTime() - jobStart);
+        log.info("TTS success (long-form) docId={}, key={}", doc.getId(), key);
+    }
+
+    /**
+     * Drops tasks recorded for text this attempt will not synthesize, deleting the outputs
+     * of those already finished. Outputs of tasks still running are not known yet and
+     * stay in the bucket.
+     */
+    private void discardLongForm(LongFormCheckpoint.Tasks recorded, LongFormCheckpoint checkpoint) {
+        List<LongFormSynthesizer.Task> done = new ArrayList<>();
+        for (String id : recorded.ids()) {
+            try {
+                LongFormSynthesizer.Task t = longForm.status(id);
+                if (t.state() == LongFormSynthesizer.State.RUNNING) {
+                    log.info("Abandoning running long-form task {}; its output is not cleaned up", id);
+                }
+                done.add(t);
+            } catch (Exception ex) {
+                log.debug("Could not check long-form task {}: {}", id, ex.getMessage());
+            }
+        }
+        deleteOutputs(done);
+        checkpoint.forgetLongForm();
+    }
+
+    private void deleteOutputs(List<LongFormSynthesizer.Task> tasks) {
+        for (LongFormSynthesizer.Task t : tasks) {
+            if (t.state() == LongFormSynthesizer.State.SUCCEEDED && t.outputKey() != null) deleteQuietly(t.outputKey());
+        }
+    }
+
+    /** Plain text: every char billed. */
+    private TextChunker.Limit longFormLimit() {
+        return TextChunker.Limit.of(longForm.maxBilledChars());
+    }
+
+    private String longFormFingerprint(String text, String voice, String engine, String format, String lang) {
+        return chunkFingerprint(text, longFormLimit(), voice, engine, format, lang);
+    }
+
+    /**
+     * Identifies the exact chunk list a checkpoint belongs to. Translation or extraction
+     * may not be deterministic across attempts, so a cursor is only reused when the
+     * normalized text and every synthesis setting match.
+     */
+    private static String chunkFingerprint(String text, TextChunker.Limit limit, String voice, String engine,
+                                           String format, String lang) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            // The limit is written twice, as when billed and raw sizes could differ, so cursors
+            // saved before that keep matching.
+            md.update("%d/%d|%s|%s|%s|%s|".formatted(limit.maxChars(), limit.maxChars(), voice, engine, format, lang)
+                    .getBytes(StandardCharsets.UTF_8));
+            md.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record SynthesizedChunk(byte[] audio, List<SpeechMark> marks) {}
+
+    @FunctionalInterface
+    private interface ChunkFinisher {
+        SynthesizedChunk finish(int index, String chunk, byte[] audio) throws Exception;
+    }
+
+    /** Provider timings for a chunk; a failure only costs read-along detail, not the job. */
+    private List<SpeechMark> chunkMarks(Plan plan, String chunk, String voice, String engine, String format, String lang) {
+        try {
+            return tts.speechMarks(plan, chunk, voice, engine, format, lang);
+        } catch (Exception ex) {
+            log.debug("Speech marks unavailable for chunk: {}", ex.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Shifts a chunk's marks to document time and offsets. Without provider marks (other
+     * providers, resumed chunks) the chunk itself becomes one sentence-level mark.
+     */
+    private static void addMarks(SpeechMarkIndex.Writer out, List<SpeechMark> chunkMarks,
+                                 long startMs, TextChunker.Span chunk) throws IOException {
+        if (chunkMarks.isEmpty()) {
+            out.add(new SpeechMark(SpeechMark.Type.SENTENCE, startMs, chunk.start(), chunk.end()));
+            return;
+        }
+        for (SpeechMark m : chunkMarks) out.add(m.shift(startMs, chunk.start()));
+    }
+
+    /** Stores the read-along sidecar next to the audio; missing marks never fail a job. */
+    private void storeMarks(String audioKey, SpeechMarkIndex.Writer marks) {
+        String key = SpeechMarkIndex.sidecarKey(audioKey);
+        StorageService.Upload up = storage.openUpload(key, "application/octet-stream");
+        try {
+            marks.writeTo(up);
+            up.close();
+        } catch (Exception ex) {
+            up.abort();
+            log.warn("Speech marks not stored key={}: {}", key, ex.toString());
+        }
+    }
+
+    /** Reads back a checkpointed chunk; null (re-synthesize) if the object is gone. */
+    private byte[] loadChunk(TtsCheckpoint checkpoint, int index) {
+        try {
+            return storage.getBytes(checkpoint.chunkKey(index));
+        } catch (Exception ex) {
+            log.warn("Checkpointed chunk {} unreadable ({}); re-synthesizing", checkpoint.chunkKey(index), ex.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteChunks(TtsCheckpoint checkpoint, int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                storage.delete(checkpoint.chunkKey(i));
+            } catch (Exception ex) {
+                log.debug("Could not delete checkpoint chunk {}: {}", checkpoint.chunkKey(i), ex.getMessage());
+            }
         }
     }
 }
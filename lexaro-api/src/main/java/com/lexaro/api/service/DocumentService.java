@@ -8,6 +8,7 @@ import com.lexaro.api.domain.User;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.repo.UserRepository;
 import com.lexaro.api.storage.StorageService;
+import com.lexaro.api.tts.SpeechMarkIndex;
 import com.lexaro.api.web.dto.*;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.CacheEvict;
@@ -253,7 +254,8 @@ public class DocumentService {
 
         String contentType = switch (ext) {
             case "ogg" -> "audio/ogg";
-            case "pcm" -> "audio/wave";
+            case "wav" -> "audio/wav";
+            case "pcm" -> "audio/wave"; // headerless, from before WAV wrapping
             default    -> "audio/mpeg"; // mp3
         };
 
@@ -289,6 +291,7 @@ public class DocumentService {
         }
         if (doc.getAudioObjectKey() != null) {
             try { storage.delete(doc.getAudioObjectKey()); } catch (Exception ignored) {}
+            try { storage.delete(SpeechMarkIndex.sidecarKey(doc.getAudioObjectKey())); } catch (Exception ignored) {}
         }
 
         doc.setDeletedAt(Instant.now());
@@ -4,16 +4,48 @@ import com.lexaro.api.domain.Document;
 import com.lexaro.api.domain.DocumentText;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.repo.DocumentTextRepository;
+import com.lexaro.api.extract.PagedText;
 import com.lexaro.api.extract.TextExtractor;
 import com.lexaro.api.storage.StorageService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
 
+/**
+ * The one store of extracted document text ({@code document_texts}). The text endpoint,
+ * education indexing, the TTS start path and the audio worker all read it here, so a file
+ * is downloaded and extracted (or OCR'd) once, not once per feature.
+ *
+ * <p>A stored row is reused while it matches the document's current file: the same
+ * {@code object_key}, the same SHA-256 when the client supplied one, and a whole-document
+ * extraction where the caller needs the full text.
+ *
+ * <p>Extraction keeps page boundaries: {@code page_offsets} records where each page
+ * starts in the stored text, so indexing cites real pages and {@link #pages} reads a page
+ * range without loading the rest of the document.
+ *
+ * <p>The file is streamed to a temp file ({@code app.extract.tempDir}) and extracted from
+ * there, so a large upload is never held in memory whole; the temp file is deleted once
+ * extraction ends.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DocumentTextService {
@@ -23,6 +55,10 @@ public class DocumentTextService {
     private final TextExtractor extractor;
     private final PlanService plans;
 
+    /** Where downloads wait for extraction; blank means java.io.tmpdir. */
+    @Value("${app.extract.tempDir:}")
+    private String tempDir;
+
     @Transactional(readOnly = true)
     public DocumentText getCached(Long userId, Long docId) {
         var doc = mustOwn(userId, docId);
@@ -32,41 +68,212 @@ public class DocumentTextService {
     @Transactional
     public DocumentText getOrExtract(Long userId, Long docId, int maxPagesHint) {
         var doc = mustOwn(userId, docId);
+        int maxPages = Math.max(0, maxPagesHint);
 
         var cached = texts.findByDocId(doc.getId()).orElse(null);
-        if (cached != null) return cached;
+        if (cached != null && cached.getPageOffsets() != null
+                && sameSource(doc, cached.getSourceKey(), cached.getSourceSha256())
+                && covers(cached.getMaxPages(), maxPages)) {
+            return cached;
+        }
+        return extractAndStore(doc, cached, maxPages);
+    }
+
+    /** Pages {@code pageStart..pageEnd} (1-based, inclusive) of a document's text. */
+    public record PageSlice(String mime, int charCount, Instant extractedAt,
+                            int pageStart, int pageEnd, int pageCount, String text) {}
+
+    /**
+     * Text of pages {@code pageStart..pageEnd}, clamped to the document's pages. Reads
+     * only that slice of the stored text; extracts the whole document first if there is
+     * no current page-aware extraction.
+     */
+    @Transactional
+    public PageSlice pages(Long userId, Long docId, int pageStart, int pageEnd) {
+        var doc = mustOwn(userId, docId);
+
+        var meta = texts.findMetaByDocId(doc.getId()).orElse(null);
+        if (meta != null && meta.getPageOffsets() != null && meta.getMaxPages() == 0
+                && sameSource(doc, meta.getSourceKey(), meta.getSourceSha256())) {
+            int[] offsets = meta.getPageOffsets();
+            int from = clampPage(pageStart, offsets.length);
+            int to = Math.max(from, clampPage(pageEnd, offsets.length));
+            int start = offsets[from - 1];
+            int length = to < offsets.length ? offsets[to] - start : -1;
+            String text = texts.findTextSlice(doc.getId(), start, length);
+            return new PageSlice(meta.getMime(), meta.getCharCount(), meta.getExtractedAt(),
+                    from, to, offsets.length, text == null ? "" : text.strip());
+        }
+
+        var row = extractAndStore(doc, texts.findByDocId(doc.getId()).orElse(null), 0);
+        int[] offsets = charOffsets(row.getText(), row.getPageOffsets());
+        int from = clampPage(pageStart, offsets.length);
+        int to = Math.max(from, clampPage(pageEnd, offsets.length));
+        int end = to < offsets.length ? offsets[to] : row.getText().length();
+        return new PageSlice(row.getMime(), row.getCharCount(), row.getExtractedAt(),
+                from, to, offsets.length, row.getText().substring(offsets[from - 1], end).strip());
+    }
 
+    private static int clampPage(int page, int pageCount) {
+        return Math.max(1, Math.min(page, pageCount));
+    }
+
+    /**
+     * {@code page_offsets} (code points) as indexes into {@code text} (UTF-16 chars, as
+     * {@link String#substring} counts them). Null or empty offsets mean one page.
+     */
+    public static int[] charOffsets(String text, int[] pageOffsets) {
+        if (pageOffsets == null || pageOffsets.length == 0) return new int[]{0};
+        int[] out = new int[pageOffsets.length];
+        int cp = 0, idx = 0;
+        int cpLength = text.codePointCount(0, text.length());
+        for (int i = 0; i < pageOffsets.length; i++) {
+            int target = Math.min(pageOffsets[i], cpLength);
+            if (target > cp) {
+                idx = text.offsetByCodePoints(idx, target - cp);
+                cp = target;
+            }
+            out[i] = idx;
+        }
+        return out;
+    }
+
+    /**
+     * Full text of {@code doc} (normalized and capped to the plan's per-document limit),
+     * extracting and storing it first if there is no current extraction.
+     *
+     * <p>Not transactional itself: called from the worker, the download and extraction run
+     * outside any database transaction.
+     */
+    public DocumentText fullText(Document doc) {
+        var cached = texts.findByDocId(doc.getId()).orElse(null);
+        if (cached != null && cached.getMaxPages() == 0
+                && sameSource(doc, cached.getSourceKey(), cached.getSourceSha256())) {
+            return cached;
+        }
+        return extractAndStore(doc, cached, 0);
+    }
+
+    /**
+     * Character count of {@link #fullText}, read from the stored row's metadata without
+     * loading the text. Extracts only if {@code doc} has never been extracted in full, so
+     * callers must not hold a database transaction open around it.
+     */
+    public int fullTextChars(Document doc) {
+        var meta = texts.findMetaByDocId(doc.getId()).orElse(null);
+        if (meta != null && meta.getMaxPages() == 0
+                && sameSource(doc, meta.getSourceKey(), meta.getSourceSha256())) {
+            return meta.getCharCount();
+        }
+        return fullText(doc).getCharCount();
+    }
+
+    private DocumentText extractAndStore(Document doc, DocumentText stale, int maxPages) {
         if (doc.getObjectKey() == null)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No stored file for this document");
 
-        byte[] bytes = storage.getBytes(doc.getObjectKey());
-        String raw;
+        PagedText paged;
+        String sha256;
+        Path file = null;
         try {
-            raw = extractor.extract(doc.getMime(), bytes, maxPagesHint > 0 ? maxPagesHint : 0);
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to extract text: " + e.getMessage());
+            file = (tempDir == null || tempDir.isBlank())
+                    ? Files.createTempFile("lexaro-extract-", ".bin")
+                    : Files.createTempFile(Path.of(tempDir), "lexaro-extract-", ".bin");
+            storage.download(doc.getObjectKey(), file);
+            sha256 = sha256Hex(file);
+            try {
+                paged = extractor.extractPages(doc.getMime(), file, maxPages);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to extract text: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to download docId=" + doc.getId() + " for extraction", e);
+        } finally {
+            deleteQuietly(file);
         }
-        if (raw == null) raw = "";
-        String text = raw.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", " ")
-                .replaceAll("\\s+", " ").trim();
-        if (text.isBlank())
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No extractable text in file");
 
-        // Apply per-document cap by planAtUpload (no lazy load of User)
+        // Whitespace is collapsed within each page; pages are joined by one space and their
+        // starts recorded, so page structure survives without form feeds in the text.
+        // Per-document cap by planAtUpload (no lazy load of User); pages past it are dropped.
         int cap = plans.ttsMaxCharsForPlan(doc.getPlanAtUpload());
-        if (text.length() > cap) text = text.substring(0, cap);
+        StringBuilder sb = new StringBuilder();
+        int[] offsets = new int[Math.max(1, paged.pages().size())];
+        int pageCount = 0;
+        int codePoints = 0;
+        for (String raw : paged.pages()) {
+            if (sb.length() >= cap) break;
+            String page = raw == null ? "" : raw.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", " ")
+                    .replaceAll("\\s+", " ").trim();
+            if (!page.isEmpty() && sb.length() > 0) {
+                sb.append(' ');
+                codePoints++;
+            }
+            offsets[pageCount++] = codePoints;
+            sb.append(page);
+            codePoints += page.codePointCount(0, page.length());
+        }
+        if (sb.length() > cap) {
+            sb.setLength(Character.isHighSurrogate(sb.charAt(cap - 1)) ? cap - 1 : cap);
+        }
+        String text = sb.toString();
+        if (text.isBlank())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No extractable text in file");
 
-        var created = DocumentText.builder()
+        var row = stale != null ? stale : DocumentText.builder()
                 .document(doc)               // @MapsId will carry doc.id on INSERT
-                .mime(doc.getMime())
-                .text(text)
-                .charCount(text.length())
-                .extractedAt(Instant.now())
                 .build();
+        row.setMime(doc.getMime());
+        row.setText(text);
+        row.setCharCount(text.length());
+        row.setExtractedAt(Instant.now());
+        row.setSourceKey(doc.getObjectKey());
+        row.setSourceSha256(sha256);
+        row.setMaxPages(maxPages);
+        row.setPageOffsets(Arrays.copyOf(offsets, Math.max(1, pageCount)));
+
+        try {
+            return texts.save(row); // not saveAndFlush()
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            // A concurrent caller stored the same extraction first; ours is just as current.
+            log.debug("document_texts docId={} stored concurrently: {}", doc.getId(), e.getMessage());
+            return row;
+        }
+    }
+
+    /**
+     * Whether an extraction of the first {@code storedMaxPages} pages (0 = all) holds
+     * everything a caller asking for {@code maxPages} (0 = all) needs.
+     */
+    static boolean covers(int storedMaxPages, int maxPages) {
+        return storedMaxPages == 0 || (maxPages > 0 && storedMaxPages >= maxPages);
+    }
+
+    /** Whether a stored extraction came from the file {@code doc} points at now. */
+    private static boolean sameSource(Document doc, String sourceKey, String sourceSha256) {
+        if (sourceKey == null || !sourceKey.equals(doc.getObjectKey())) return false;
+        String expected = doc.getSha256();
+        return expected == null || expected.isBlank() || expected.equalsIgnoreCase(sourceSha256);
+    }
 
-        return texts.save(created); // not saveAndFlush()
+    private static String sha256Hex(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            for (int n; (n = in.read(buf)) > 0; ) md.update(buf, 0, n);
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete extraction temp file {}: {}", file, e.toString());
+        }
+    }
 
     private Document mustOwn(Long userId, Long docId) {
         return docs.findByIdAndUserIdAndDeletedAtIsNull(docId, userId)
@@ -2,12 +2,14 @@ package com.lexaro.api.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lexaro.api.domain.Document;
 import com.lexaro.api.domain.Job;
 import com.lexaro.api.domain.JobPayload;
 import com.lexaro.api.repo.JobRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -19,7 +21,11 @@ import java.sql.ResultSet;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Manages the durable job queue.
@@ -33,6 +39,17 @@ import java.util.List;
  * <p>Claim uses an atomic {@code UPDATE...FOR UPDATE SKIP LOCKED...RETURNING id}
  * via JdbcTemplate to prevent two runner instances from claiming the same job.
  * This is safe for horizontal-scale deployments with multiple API instances.
+ *
+ * <p>A claim is a lease: the runner renews {@code locked_at} on a heartbeat
+ * ({@link #renewLeases}) and terminal transitions are fenced on
+ * {@code (locked_by, attempts)}, so a runner that lost its lease cannot overwrite
+ * the outcome of whoever took the job over.
+ *
+ * <p>Every successful enqueue issues {@code pg_notify(}{@value #JOB_CHANNEL}{@code , jobId)}
+ * inside the enqueuing transaction. Postgres delivers the notification only when that
+ * transaction commits, so listeners never see a job id before its row is visible.
+ * A {@link JobEnqueuedEvent} is also published for the enqueuing node itself, which
+ * lets {@link com.lexaro.api.worker.JobRunner} hand the job to a local worker directly.
  */
 @Slf4j
 @Service
@@ -42,6 +59,17 @@ public class JobService {
     private final JobRepository jobs;
     private final JdbcTemplate jdbc;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher events;
+
+    /** Postgres NOTIFY channel used to wake runners when a job is enqueued. */
+    public static final String JOB_CHANNEL = "job_enqueued";
+
+    /**
+     * Published after a new job row is inserted. Listeners should use
+     * {@code @TransactionalEventListener(phase = AFTER_COMMIT)} so the job is only
+     * acted on once it is visible to other transactions.
+     */
+    public record JobEnqueuedEvent(Long jobId, String type) {}
 
     @Value("${app.jobs.base-retry-seconds:10}")
     private int baseRetrySeconds;
@@ -87,6 +115,8 @@ public class JobService {
 
         try {
             Job saved = jobs.save(job);
+            notifyEnqueued(saved.getId());
+            events.publishEvent(new JobEnqueuedEvent(saved.getId(), type));
             log.debug("Enqueued job id={} type={} docId={} userId={}", saved.getId(), type, docId, userId);
             return saved;
         } catch (DataIntegrityViolationException e) {
@@ -168,81 +198,325 @@ public class JobService {
         return claimed;
     }
 
+    /**
+     * Claims a single PENDING job by ID for this runner, used for the local hand-off path
+     * where the enqueuing node runs the job itself instead of waiting for a claim loop.
+     *
+     * <p>The {@code status = 'PENDING'} predicate makes this race-safe with {@link #claimBatch}
+     * on other nodes: whichever UPDATE commits first wins, the other affects zero rows.
+     *
+     * @param jobId    the job to claim
+     * @param workerId the claiming runner's identifier
+     * @return the claimed job, or empty if it was already claimed elsewhere or is not yet due
+     */
+    @Transactional
+    public Optional<Job> claimById(Long jobId, String workerId) {
+        final String sql = """
+                UPDATE job
+                SET    status    = 'RUNNING',
+                       locked_at = NOW(),
+                       locked_by = ?,
+                       attempts  = attempts + 1,
+                       updated_at = NOW()
+                WHERE  id = ?
+                  AND  status = 'PENDING'
+                  AND  next_run_at <= NOW()
+                """;
+        int updated = jdbc.update(sql, workerId, jobId);
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        return jobs.findById(jobId);
+    }
+
+    /**
+     * Returns a job this runner claimed but could not start (e.g. the executor rejected
+     * the hand-off) straight to PENDING, undoing the attempt increment from the claim.
+     *
+     * <p>The {@code locked_by} predicate ensures a runner can only release its own claim.
+     *
+     * @param jobId    the claimed job
+     * @param workerId the runner that claimed it
+     */
+    @Transactional
+    public void releaseClaim(Long jobId, String workerId) {
+        final String sql = """
+                UPDATE job
+                SET    status      = 'PENDING',
+                       locked_at   = NULL,
+                       locked_by   = NULL,
+                       attempts    = GREATEST(attempts - 1, 0),
+                       next_run_at = NOW(),
+                       updated_at  = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                """;
+        int updated = jdbc.update(sql, jobId, workerId);
+        if (updated > 0) {
+            log.debug("Released claim on job {} (workerId={})", jobId, workerId);
+        }
+    }
+
+    // ---- Queries ----
+
+    /** The PENDING or RUNNING job of {@code type} for a document, if any. */
+    @Transactional(readOnly = true)
+    public Optional<Job> findActive(Long docId, String type) {
+        return jobs.findFirstByDocIdAndTypeAndStatusIn(docId, type, List.of("PENDING", "RUNNING"));
+    }
+
+    // ---- Leases ----
+
+    /**
+     * Heartbeat: extends the lease ({@code locked_at = NOW()}) on every job this runner is
+     * still executing, in one batched round-trip.
+     *
+     * <p>Each renewal is fenced on {@code (locked_by, attempts)}. {@code attempts} is
+     * incremented by every claim, so it acts as a fencing token: once a lease has expired
+     * and the job was reset or re-claimed, the stale holder's renewal matches zero rows.
+     *
+     * @param workerId the runner renewing its leases
+     * @param leases   job ID → attempt number captured at claim time
+     * @return IDs of jobs whose lease could not be renewed (lost to recovery or another runner)
+     */
+    @Transactional
+    public Set<Long> renewLeases(String workerId, Map<Long, Integer> leases) {
+        if (leases.isEmpty()) return Set.of();
+        final String sql = """
+                UPDATE job
+                SET    locked_at  = NOW(),
+                       updated_at = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                  AND  attempts  = ?
+                """;
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(leases.entrySet());
+        int[][] counts = jdbc.batchUpdate(sql, entries, entries.size(), (ps, e) -> {
+            ps.setLong(1, e.getKey());
+            ps.setString(2, workerId);
+            ps.setInt(3, e.getValue());
+        });
+
+        Set<Long> lost = new HashSet<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                if (c == 0) lost.add(entries.get(i).getKey());
+                i++;
+            }
+        }
+        return lost;
+    }
+
+    // ---- Progress ----
+
+    /**
+     * Persists a running job's checkpoint cursor by rewriting its payload. Also renews
+     * the lease, since a job that is making progress is evidently alive.
+     *
+     * <p>Fenced on {@code (locked_by, attempts)} like the terminal transitions, so a runner
+     * that lost its lease cannot move the cursor of the job's new holder.
+     *
+     * @param jobId    the running job
+     * @param workerId the runner that claimed the job
+     * @param attempt  the attempt number returned by the claim (fencing token)
+     * @param payload  the payload including the advanced cursor
+     * @return {@code false} if the lease was lost and the cursor was not saved
+     */
+    @Transactional
+    public boolean saveProgress(Long jobId, String workerId, int attempt, Object payload) {
+        final String sql = """
+                UPDATE job
+                SET    payload    = ?,
+                       locked_at  = NOW(),
+                       updated_at = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                  AND  attempts  = ?
+                """;
+        return jdbc.update(sql, serializePayload(payload), jobId, workerId, attempt) > 0;
+    }
+
+    /**
+     * Parks a running job that is waiting on work done elsewhere (provider-side long-form
+     * synthesis): it goes back to PENDING with the given payload and is claimed again after
+     * {@code delay}. The attempt counter is rolled back, as in {@link #releaseClaim}, so
+     * waiting does not use up the job's retry budget.
+     *
+     * <p>Fenced on {@code (locked_by, attempts)} like {@link #saveProgress}.
+     *
+     * @return {@code false} if the lease was lost and the job was not parked
+     */
+    @Transactional
+    public boolean defer(Long jobId, String workerId, int attempt, Object payload, Duration delay) {
+        final String sql = """
+                UPDATE job
+                SET    status      = 'PENDING',
+                       payload     = ?,
+                       attempts    = GREATEST(attempts - 1, 0),
+                       next_run_at = NOW() + make_interval(secs => ?),
+                       locked_at   = NULL,
+                       locked_by   = NULL,
+                       updated_at  = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                  AND  attempts  = ?
+                """;
+        boolean applied = jdbc.update(sql, serializePayload(payload), delay.toSeconds(),
+                jobId, workerId, attempt) > 0;
+        if (!applied) {
+            log.warn("Job {} not deferred: lease lost (workerId={}, attempt={})", jobId, workerId, attempt);
+        }
+        return applied;
+    }
+
+    // ---- Document outcome ----
+
+    /** A claim as the runner holds it: the {@code (locked_by, attempts)} fencing token of one job. */
+    public record Lease(Long jobId, String workerId, int attempt) {}
+
+    /**
+     * Writes a document's audio outcome ({@code audio_status}, key, format, voice, error)
+     * on behalf of a running job, provided {@code lease} still holds the job. The lease
+     * check is part of the same UPDATE, so a runner that lost its lease cannot replace
+     * the new holder's result with its own READY or FAILED.
+     *
+     * @return {@code false} if the lease was lost (or the document is gone) and nothing was written
+     */
+    @Transactional
+    public boolean saveAudioOutcome(Lease lease, Document doc) {
+        final String sql = """
+                UPDATE documents
+                SET    audio_status     = ?,
+                       audio_object_key = ?,
+                       audio_format     = ?,
+                       audio_voice      = ?,
+                       audio_error      = ?
+                WHERE  id = ?
+                  AND  EXISTS (SELECT 1 FROM job
+                               WHERE  id        = ?
+                                 AND  status    = 'RUNNING'
+                                 AND  locked_by = ?
+                                 AND  attempts  = ?)
+                """;
+        boolean applied = jdbc.update(sql, doc.getAudioStatus().name(), doc.getAudioObjectKey(),
+                doc.getAudioFormat(), doc.getAudioVoice(), doc.getAudioError(), doc.getId(),
+                lease.jobId(), lease.workerId(), lease.attempt()) > 0;
+        if (!applied) {
+            log.warn("Document {} audio {} not saved: lease lost (job={}, workerId={}, attempt={})",
+                    doc.getId(), doc.getAudioStatus(), lease.jobId(), lease.workerId(), lease.attempt());
+        }
+        return applied;
+    }
+
     // ---- Terminal state transitions ----
 
     /**
-     * Marks the job as successfully completed.
+     * Marks the job as successfully completed, provided the caller still holds its lease.
      *
-     * @param jobId the job ID to update
+     * @param jobId    the job ID to update
+     * @param workerId the runner that claimed the job
+     * @param attempt  the attempt number returned by the claim (fencing token)
+     * @return {@code false} if the lease was lost and the result was not recorded
      */
     @Transactional
-    public void markSucceeded(Long jobId) {
-        jobs.findById(jobId).ifPresent(j -> {
-            j.setStatus("SUCCEEDED");
-            j.setLockedAt(null);
-            j.setLockedBy(null);
-            j.setError(null);
-            j.setUpdatedAt(Instant.now());
-            jobs.save(j);
+    public boolean markSucceeded(Long jobId, String workerId, int attempt) {
+        final String sql = """
+                UPDATE job
+                SET    status     = 'SUCCEEDED',
+                       locked_at  = NULL,
+                       locked_by  = NULL,
+                       error      = NULL,
+                       updated_at = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                  AND  attempts  = ?
+                """;
+        boolean applied = jdbc.update(sql, jobId, workerId, attempt) > 0;
+        if (applied) {
             log.debug("Job {} SUCCEEDED", jobId);
-        });
+        } else {
+            log.warn("Job {} success not recorded: lease lost (workerId={}, attempt={})", jobId, workerId, attempt);
+        }
+        return applied;
     }
 
     /**
-     * Marks the job as failed, scheduling a retry if eligible.
+     * Marks the job as failed, scheduling a retry if eligible, provided the caller still
+     * holds its lease.
      *
-     * <p>If {@code retryable} is true and {@code job.attempts < maxAttempts}, the job
+     * <p>If {@code retryable} is true and {@code attempt < maxAttempts}, the job
      * is reset to PENDING with an exponential {@code next_run_at} delay. Otherwise,
      * the job is permanently set to FAILED.
      *
      * <p>Retry delay: {@code min(baseRetrySeconds * 2^attempts, maxRetrySeconds)}.
      *
      * @param jobId     the job ID to update
+     * @param workerId  the runner that claimed the job
+     * @param attempt   the attempt number returned by the claim (fencing token)
      * @param error     human-readable error description (truncated to 2000 chars)
      * @param retryable whether this failure type should be retried
+     * @return {@code false} if the lease was lost and the failure was not recorded
      */
     @Transactional
-    public void markFailed(Long jobId, String error, boolean retryable) {
-        jobs.findById(jobId).ifPresent(j -> {
-            String truncated = error == null ? null
-                    : error.substring(0, Math.min(2000, error.length()));
-            j.setError(truncated);
-            j.setUpdatedAt(Instant.now());
-
-            if (retryable && j.getAttempts() < maxAttempts) {
-                // Exponential backoff: 10s, 20s, 40s, 80s, 160s (capped at maxRetrySeconds)
-                long delaySecs = Math.min(
-                        (long) baseRetrySeconds * (1L << j.getAttempts()),
-                        maxRetrySeconds
-                );
-                j.setStatus("PENDING");
-                j.setNextRunAt(Instant.now().plusSeconds(delaySecs));
-                j.setLockedAt(null);
-                j.setLockedBy(null);
-                log.debug("Job {} scheduled for retry in {}s (attempt {})", jobId, delaySecs, j.getAttempts());
-            } else {
-                j.setStatus("FAILED");
-                log.warn("Job {} permanently FAILED after {} attempt(s): {}", jobId, j.getAttempts(), truncated);
-            }
-            jobs.save(j);
-        });
+    public boolean markFailed(Long jobId, String workerId, int attempt, String error, boolean retryable) {
+        String truncated = error == null ? null
+                : error.substring(0, Math.min(2000, error.length()));
+
+        boolean retry = retryable && attempt < maxAttempts;
+        // Exponential backoff: 10s, 20s, 40s, 80s, 160s (capped at maxRetrySeconds)
+        long delaySecs = retry
+                ? Math.min((long) baseRetrySeconds * (1L << Math.min(attempt, 30)), maxRetrySeconds)
+                : 0;
+
+        final String sql = """
+                UPDATE job
+                SET    status      = ?,
+                       error       = ?,
+                       next_run_at = CASE WHEN ? THEN NOW() + make_interval(secs => ?) ELSE next_run_at END,
+                       locked_at   = NULL,
+                       locked_by   = NULL,
+                       updated_at  = NOW()
+                WHERE  id        = ?
+                  AND  status    = 'RUNNING'
+                  AND  locked_by = ?
+                  AND  attempts  = ?
+                """;
+        boolean applied = jdbc.update(sql,
+                retry ? "PENDING" : "FAILED", truncated, retry, delaySecs,
+                jobId, workerId, attempt) > 0;
+
+        if (!applied) {
+            log.warn("Job {} failure not recorded: lease lost (workerId={}, attempt={})", jobId, workerId, attempt);
+        } else if (retry) {
+            log.debug("Job {} scheduled for retry in {}s (attempt {})", jobId, delaySecs, attempt);
+        } else {
+            log.warn("Job {} permanently FAILED after {} attempt(s): {}", jobId, attempt, truncated);
+        }
+        return applied;
     }
 
-    // ---- Stuck-job recovery ----
+    // ---- Lease-expiry recovery ----
 
     /**
-     * Resets RUNNING jobs whose {@code locked_at} is older than {@code stuckTimeout}
-     * back to PENDING so they can be re-claimed after an API restart or crash.
+     * Resets RUNNING jobs whose lease has expired back to PENDING so they can be
+     * re-claimed after a crash, restart or network partition.
      *
-     * <p>A job is considered "stuck" if it has been in RUNNING state for longer than
-     * {@code stuckTimeout} without completing. This recovers from JVM crashes or
-     * network partitions where the runner never reported a terminal state.
+     * <p>Live workers renew {@code locked_at} on every heartbeat, so a job is only
+     * considered abandoned when no heartbeat has arrived for {@code leaseTimeout} —
+     * however long the job itself legitimately runs. The stale holder, if it is still
+     * alive, is fenced off by {@link #markSucceeded}/{@link #markFailed} because the next
+     * claim increments {@code attempts}.
      *
-     * @param stuckTimeout age threshold; jobs older than this are reset
+     * @param leaseTimeout how long after the last heartbeat a lease is considered expired
      */
     @Transactional
-    public void resetStuckJobs(Duration stuckTimeout) {
-        Instant cutoff = Instant.now().minus(stuckTimeout);
+    public void resetExpiredLeases(Duration leaseTimeout) {
         final String sql = """
                 UPDATE job
                 SET    status     = 'PENDING',
@@ -251,16 +525,24 @@ public class JobService {
                        next_run_at = NOW(),
                        updated_at  = NOW()
                 WHERE  status     = 'RUNNING'
-                  AND  locked_at  < ?
+                  AND  locked_at  < NOW() - make_interval(secs => ?)
                 """;
-        int reset = jdbc.update(sql, java.sql.Timestamp.from(cutoff));
+        int reset = jdbc.update(sql, leaseTimeout.toSeconds());
         if (reset > 0) {
-            log.warn("Reset {} stuck job(s) locked before {}", reset, cutoff);
+            log.warn("Reset {} job(s) with leases older than {}s", reset, leaseTimeout.toSeconds());
         }
     }
 
     // ---- Helpers ----
 
+    /**
+     * Sends {@code NOTIFY job_enqueued, '<jobId>'} on the current transaction's connection.
+     * Delivery is deferred by Postgres until commit and dropped on rollback.
+     */
+    private void notifyEnqueued(Long jobId) {
+        jdbc.queryForList("SELECT pg_notify(?, ?)", JOB_CHANNEL, String.valueOf(jobId));
+    }
+
     private String serializePayload(Object payload) {
         if (payload == null) return null;
         try {
@@ -0,0 +1,51 @@
+package com.lexaro.api.service;
+
+import java.util.List;
+
+/**
+ * A {@link TtsCheckpoint} that can also park the job while provider-side long-form tasks
+ * run (see {@link com.lexaro.api.tts.LongFormSynthesizer}): the worker returns without a
+ * result, and a later claim finds the submitted tasks in {@link #longFormTasks()}.
+ *
+ * <p>Task ids are recorded one at a time as they are submitted, so tasks started by an
+ * attempt that fails half way through are still known to the next one. Once every task
+ * is recorded, the next claim checks them without extracting or translating the text
+ * again.
+ */
+public interface LongFormCheckpoint extends TtsCheckpoint {
+
+    /**
+     * Tasks recorded for this job.
+     *
+     * @param fingerprint chunk fingerprint of the text they were submitted for
+     * @param ids         submitted task ids, in text order
+     * @param total       number of tasks the text needs
+     * @param chars       characters of the text, charged once the tasks finish
+     */
+    record Tasks(String fingerprint, List<String> ids, int total, int chars) {
+        /** Whether every task of the text has been submitted. */
+        public boolean submitted() {
+            return ids.size() >= total;
+        }
+    }
+
+    /** Tasks recorded so far, or null if there are none. */
+    Tasks longFormTasks();
+
+    /**
+     * Records one more submitted task for {@code fingerprint}, durably, before the next one
+     * is submitted. Tasks recorded for another fingerprint are replaced.
+     *
+     * @return {@code false} if the lease was lost and the task was not recorded
+     */
+    boolean longFormStarted(String fingerprint, String taskId, int total, int chars);
+
+    /**
+     * Parks the job until the recorded tasks have had time to progress. The worker returns
+     * right after this call and leaves the document PROCESSING.
+     */
+    void awaitLongForm();
+
+    /** Drops the recorded tasks so the next attempt submits new ones. */
+    void forgetLongForm();
+}
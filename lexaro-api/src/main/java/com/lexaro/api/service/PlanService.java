@@ -2,6 +2,8 @@ package com.lexaro.api.service;
 
 import com.lexaro.api.domain.Plan;
 import com.lexaro.api.domain.User;
+import com.lexaro.api.tts.DelegatingTtsService;
+import com.lexaro.api.tts.TextChunker;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -55,7 +57,28 @@ public class PlanService {
     // --- Defaults & guardrails ---
     @Value("${app.tts.defaultEngine:standard}") private String defaultEngine;   // "standard" by default
     @Value("${app.tts.defaultVoice:Joanna}")    private String defaultVoice;    // "Joanna" by default
-    @Value("${app.tts.safeChunkChars:3000}")    private int safeChunkChars;
+    @Value("${app.tts.pcmSampleRate:16000}")    private int pcmSampleRate;      // Polly PCM default
+    @Value("${app.tts.speechMarks:false}")      private boolean speechMarks;     // read-along timings (a second billed request per chunk)
+    @Value("${app.tts.async.enabled:true}")     private boolean asyncTts;        // non-blocking provider calls
+
+    // --- Per-request chunk limits (billed chars / raw request chars), by provider ---
+    // Chunks go out as plain text, where every character is billed and counted, so the
+    // smaller of the two applies.
+    @Value("${app.tts.limits.polly.billedChars:3000}")          private int pollyBilled;
+    @Value("${app.tts.limits.polly.maxChars:3000}")             private int pollyMaxChars;
+    @Value("${app.tts.limits.speechify.billedChars:5000}")      private int speechifyBilled;
+    @Value("${app.tts.limits.speechify.maxChars:5000}")         private int speechifyMaxChars;
+
+    // --- Long-form: provider-side synthesis tasks instead of in-process chunks ---
+    @Value("${app.tts.longform.enabled:false}")   private boolean longFormEnabled;
+    @Value("${app.tts.longform.minChars:20000}")  private int longFormMinChars;
+    @Value("${app.tts.longform.plans:free}")      private String longFormPlansCsv;
+
+    // --- Per-job chunk fan-out (provider calls in flight for one document) ---
+    @Value("${app.tts.parallel.free:2}")          private int parallelFree;
+    @Value("${app.tts.parallel.premium:4}")       private int parallelPremium;
+    @Value("${app.tts.parallel.business:6}")      private int parallelBusiness;
+    @Value("${app.tts.parallel.businessPlus:8}")  private int parallelBusinessPlus;
 
     // --- Feature gates ---
     @Value("${app.tts.requireVerifiedEmail:false}") private boolean requireVerifiedEmail;
@@ -221,7 +244,47 @@ public class PlanService {
     }
 
     // --- defaults / guardrails ---
-    public int    ttsSafeChunkChars() { return safeChunkChars <= 0 ? 3000 : safeChunkChars; }
+    /**
+     * Request size the chunker packs against for the provider {@code engine} routes to
+     * (see {@link DelegatingTtsService#providerFor}). Chunks are plain text. A
+     * Speechify-routed chunk must also fit Polly, which serves it on fallback and hedging.
+     */
+    public TextChunker.Limit ttsChunkLimit(String engine) {
+        int polly = Math.min(pollyBilled, pollyMaxChars);
+        if (DelegatingTtsService.PROVIDER_SPEECHIFY.equals(DelegatingTtsService.providerFor(engine))) {
+            return TextChunker.Limit.of(Math.min(Math.min(speechifyBilled, speechifyMaxChars), polly));
+        }
+        return TextChunker.Limit.of(polly);
+    }
+    /** Sample rate of raw 16-bit mono PCM from the providers, used for the WAV header. */
+    public int    ttsPcmSampleRate()  { return pcmSampleRate <= 0 ? 16000 : pcmSampleRate; }
+    /** Whether the worker requests sentence/word timings from providers that support them. */
+    public boolean ttsSpeechMarksEnabled() { return speechMarks; }
+    /** Whether chunks are synthesized through the providers' non-blocking clients without holding a thread. */
+    public boolean ttsAsyncEnabled() { return asyncTts; }
+    /**
+     * Whether a document of {@code chars} characters goes to the provider as long-form
+     * synthesis tasks rather than chunk by chunk: Polly-routed, MP3 or Ogg (PCM needs a WAV
+     * header written here), on one of {@code app.tts.longform.plans} and at least
+     * {@code app.tts.longform.minChars} long.
+     */
+    public boolean ttsLongFormFor(Plan plan, String engine, String format, int chars) {
+        if (!longFormEnabled || plan == null || chars < longFormMinChars) return false;
+        if (!DelegatingTtsService.PROVIDER_POLLY.equals(DelegatingTtsService.providerFor(engine))) return false;
+        if (!"mp3".equals(format) && !"ogg_vorbis".equals(format)) return false;
+        return csvHasIgnoreCase(longFormPlansCsv, planToken(plan));
+    }
+    /** Max chunks of one document synthesized concurrently for this plan (at least 1). */
+    public int ttsChunkParallelismForPlan(Plan plan) {
+        if (plan == null) return Math.max(1, parallelFree);
+        int v = switch (plan) {
+            case FREE          -> parallelFree;
+            case PREMIUM       -> parallelPremium;
+            case BUSINESS      -> parallelBusiness;
+            case BUSINESS_PLUS -> parallelBusinessPlus;
+        };
+        return Math.max(1, v);
+    }
     public String defaultTtsEngine()  {
         return (defaultEngine == null || defaultEngine.isBlank())
                 ? "standard"
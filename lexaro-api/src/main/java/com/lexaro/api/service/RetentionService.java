@@ -4,6 +4,7 @@ import com.lexaro.api.domain.AudioStatus;
 import com.lexaro.api.domain.DocStatus;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.storage.StorageService;
+import com.lexaro.api.tts.SpeechMarkIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -32,7 +33,8 @@ public class RetentionService {
 
     /**
      * Sweeps expired documents in small batches. Runs at fixed delay configured by
-     * {@code app.retention.scanMillis}.
+     * {@code app.retention.scanMillis}. Shared {@code tts-cache/} audio is not touched; the
+     * bucket lifecycle rule expires it.
      */
     @Scheduled(fixedDelayString = "${app.retention.scanMillis}")
     @Transactional
@@ -67,6 +69,7 @@ public class RetentionService {
                     if (d.getAudioObjectKey() != null) {
                         try {
                             storage.delete(d.getAudioObjectKey());
+                            storage.delete(SpeechMarkIndex.sidecarKey(d.getAudioObjectKey()));
                         } catch (Exception ex) {
                             log.warn("Retention: delete audio_object_key failed docId={} key={} reason={}",
                                     d.getId(), d.getAudioObjectKey(), ex.toString());
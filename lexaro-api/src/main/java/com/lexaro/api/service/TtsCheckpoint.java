@@ -0,0 +1,81 @@
+package com.lexaro.api.service;
+
+/**
+ * Persistence hooks that let {@link DocumentAudioWorker} resume a synthesis after a
+ * failure, retry or node crash instead of re-synthesizing (and re-billing) every chunk.
+ *
+ * <p>The worker stores each finished chunk's audio under {@link #chunkKey(int)} and then
+ * calls {@link #advance}; on the next attempt {@link #completedChunks} tells it how many
+ * leading chunks it can read back from storage. The cursor is tied to a fingerprint of
+ * the chunk list so a retry whose text or voice settings differ starts over.
+ *
+ * <p>Because chunks are persisted in order, the checkpointed prefix doubles as a playable
+ * segment list while the job is still running (see {@link DocumentAudioService#segments}).
+ *
+ * <p>A {@link LongFormCheckpoint} can also park the job while provider-side long-form
+ * tasks run.
+ */
+public interface TtsCheckpoint {
+
+    /** No checkpointing: every attempt synthesizes the document from scratch. */
+    TtsCheckpoint NONE = new TtsCheckpoint() {
+        @Override public String chunkKeyPrefix() { return null; }
+        @Override public int completedChunks(String fingerprint) { return 0; }
+        @Override public boolean advance(String fingerprint, int completed, boolean lastEmpty) { return false; }
+        @Override public JobService.Lease lease() { return null; }
+        @Override public boolean leaseLost() { return false; }
+    };
+
+    /** Stops an attempt whose job was reclaimed elsewhere; nothing it produced may be saved. */
+    final class LeaseLostException extends RuntimeException {
+        LeaseLostException() {
+            super("Job lease lost", null, false, false);
+        }
+    }
+
+    /** Storage key prefix for intermediate chunk objects, or null to disable chunk persistence. */
+    String chunkKeyPrefix();
+
+    /** Storage key of the audio for chunk {@code index}. */
+    default String chunkKey(int index) {
+        return chunkKey(chunkKeyPrefix(), index);
+    }
+
+    /** Prefix under which a durable job's chunk audio is stored. */
+    static String jobChunkPrefix(Long jobId) {
+        return "aud/tmp/jobs/%d/".formatted(jobId);
+    }
+
+    static String chunkKey(String prefix, int index) {
+        return prefix + "%05d".formatted(index);
+    }
+
+    /**
+     * Number of leading chunks already persisted for {@code fingerprint}; 0 when there is
+     * no cursor or it belongs to a different chunk list.
+     */
+    int completedChunks(String fingerprint);
+
+    /**
+     * Records that chunks {@code [0, completed)} are persisted; {@code lastEmpty} marks
+     * chunk {@code completed - 1} as having no audio, so it is left out of the segment list.
+     *
+     * @return {@code false} if the cursor could not be saved (e.g. the job's lease was
+     *         lost); the caller should stop persisting chunks for this attempt
+     */
+    boolean advance(String fingerprint, int completed, boolean lastEmpty);
+
+    /**
+     * The job claim this attempt runs under, or null when it is not run from the job table.
+     * The worker writes the document's outcome through {@link JobService#saveAudioOutcome}
+     * with it, so a stale attempt cannot overwrite the result of the job's new holder.
+     */
+    JobService.Lease lease();
+
+    /**
+     * Whether this attempt has lost its lease: the heartbeat found the job reclaimed, or a
+     * fenced write such as {@link #advance} matched nothing. The worker then stops
+     * synthesizing and leaves the document to the new holder.
+     */
+    boolean leaseLost();
+}
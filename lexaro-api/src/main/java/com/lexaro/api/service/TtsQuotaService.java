@@ -3,10 +3,13 @@ package com.lexaro.api.service;
 import com.lexaro.api.domain.Plan;
 import com.lexaro.api.repo.TtsTopupRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -16,6 +19,20 @@ import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.util.Optional;
 
+/**
+ * TTS character quotas: monthly (plan cap plus top-ups) and daily, both in chars.
+ *
+ * <p>Admission goes through a reservation ledger ({@code tts_quota_reservation}).
+ * {@link #reserve} holds a job's planned chars in one database call that checks both
+ * caps against usage, top-ups and every other live hold, so concurrent starts on any
+ * node cannot together overspend a cap. The worker then {@link #commit}s the actual
+ * count, or the runner {@link #release}s the hold when the job fails for good. The hold is
+ * what a commit charges against, so only the first commit for a hold counts. Holds expire
+ * {@code app.tts.quota.reservationTtlMinutes} after the last {@link #extendReservations},
+ * which the job heartbeat calls, so one left behind by a lost job stops counting on its own
+ * while a long-running one keeps it.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TtsQuotaService {
@@ -26,6 +43,10 @@ public class TtsQuotaService {
     /** Optional: present only if you wired the top-ups repo. */
     private final Optional<TtsTopupRepository> topups;
 
+    /** How long an uncommitted reservation counts against the caps. */
+    @Value("${app.tts.quota.reservationTtlMinutes:360}")
+    private long reservationTtlMinutes;
+
     /* ---------- keys ---------- */
 
     /** e.g. "2025-10" in UTC */
@@ -93,35 +114,114 @@ public class TtsQuotaService {
         return Math.max(0L, remaining);
     }
 
-    /* ---------- guards ---------- */
+    /* ---------- reservations. Units = chars. ---------- */
 
-    /** 402 if (used + planned) > (base cap + top-ups). Units = chars. */
-    public void ensureWithinMonthlyCap(long userId, Plan plan, long plannedChars) {
-        long base = plans.monthlyCapForPlan(plan);
-        if (base == Long.MAX_VALUE) return; // unlimited
-        long extra = monthTopups(userId);
-        long used  = currentMonthly(userId);
+    /**
+     * Reserves {@code plannedChars} for {@code docId}, replacing any earlier hold for that
+     * document. 429 if the daily cap would be exceeded, 402 if the monthly cap (plus
+     * top-ups) would be; counted against both are usage so far and the user's other live
+     * holds. Joins the caller's transaction, so the hold disappears if the start rolls back.
+     * Unlimited plans skip the checks but still get a hold, since {@link #commit} charges
+     * usage only against one.
+     */
+    public void reserve(long userId, long docId, Plan plan, long plannedChars) {
+        long monthCap = plans.monthlyCapForPlan(plan);
+        long dayCap = plans.dailyCapForPlan(plan);
+        Long month = monthCap == Long.MAX_VALUE ? null : monthCap;
+        Long day = dayCap <= 0 || dayCap == Long.MAX_VALUE ? null : dayCap;
 
-        if (used + plannedChars > base + extra) {
-            long remaining = Math.max(0L, base + extra - used);
+        final String sql = "select admitted, month_remaining, day_remaining from tts_reserve_chars(?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbc.query(sql, rs -> {
+            if (rs.getBoolean("admitted")) return;
+            long dayRemaining = rs.getLong("day_remaining");
+            if (day != null && plannedChars > dayRemaining) {
+                throw new ResponseStatusException(
+                        HttpStatus.TOO_MANY_REQUESTS,
+                        "Daily TTS limit reached. Remaining=" + dayRemaining + " chars, requested=" + plannedChars
+                );
+            }
             throw new ResponseStatusException(
                     HttpStatus.PAYMENT_REQUIRED,
-                    "Monthly TTS limit reached. Remaining=" + remaining + " chars, requested=" + plannedChars
+                    "Monthly TTS limit reached. Remaining=" + rs.getLong("month_remaining")
+                            + " chars, requested=" + plannedChars
             );
+        }, userId, docId, clampNonNegative(plannedChars), month, day,
+                monthKey(), dayKey(), (int) Math.min(Integer.MAX_VALUE, reservationTtlMinutes * 60));
+    }
+
+    /**
+     * Charges {@code actualChars} to this month and today and drops the document's hold,
+     * in one statement. The actual count may differ from the reservation either way; the
+     * difference is simply never charged or charged on top.
+     *
+     * <p>Both counters are written only for a hold the statement deleted, so a commit
+     * repeated by a retried attempt, or one racing {@link #release}, charges nothing.
+     */
+    @CacheEvict(
+            cacheNames = "tts-quota",
+            key = "#userId + ':' + T(java.time.YearMonth).now(T(java.time.ZoneOffset).UTC).toString()"
+    )
+    public void commit(long userId, long docId, long actualChars) {
+        actualChars = clampNonNegative(actualChars);
+        if (actualChars == 0) {
+            release(docId);
+            return;
+        }
+        final String sql = """
+            with released as (
+                delete from tts_quota_reservation where doc_id = ? and user_id = ?
+                returning user_id
+            ), month as (
+                insert into tts_usage (user_id, period_ym, chars_used, updated_at)
+                select user_id, ?, ?, now() from released
+                on conflict (user_id, period_ym)
+                do update set chars_used = tts_usage.chars_used + EXCLUDED.chars_used,
+                              updated_at = now()
+            )
+            insert into tts_usage_day (user_id, period_ymd, chars_used, updated_at)
+            select user_id, ?, ?, now() from released
+            on conflict (user_id, period_ymd)
+            do update set chars_used = tts_usage_day.chars_used + EXCLUDED.chars_used,
+                          updated_at = now()
+            """;
+        int charged = jdbc.update(sql, docId, userId, monthKey(), actualChars, dayKey(), actualChars);
+        if (charged == 0) {
+            log.warn("No TTS quota hold for docId={} userId={}; {} chars not charged", docId, userId, actualChars);
         }
     }
 
-    /** 429 if (used + planned) > daily cap. (Top-ups do NOT affect daily caps.) Units = chars. */
-    public void ensureWithinDailyCap(long userId, Plan plan, long plannedChars) {
-        long cap = plans.dailyCapForPlan(plan); // chars; 0 or MAX_VALUE means unlimited
-        if (cap <= 0 || cap == Long.MAX_VALUE) return;
-        long used = currentDaily(userId);
-        if (used + plannedChars > cap) {
-            long remaining = Math.max(0, cap - used);
-            throw new ResponseStatusException(
-                    HttpStatus.TOO_MANY_REQUESTS,
-                    "Daily TTS limit reached. Remaining=" + remaining + " chars, requested=" + plannedChars
-            );
+    /** Drops the document's hold without charging anything. */
+    public void release(long docId) {
+        jdbc.update("delete from tts_quota_reservation where doc_id = ?", docId);
+    }
+
+    /**
+     * Pushes out the expiry of the holds of every document whose job {@code workerId} is
+     * running, so a synthesis that outlasts the TTL keeps counting against the caps. Only
+     * holds with less than half the TTL left are rewritten.
+     */
+    public void extendReservations(String workerId) {
+        final String sql = """
+            update tts_quota_reservation r
+            set    expires_at = now() + make_interval(secs => ?)
+            from   job j
+            where  j.doc_id    = r.doc_id
+              and  j.status    = 'RUNNING'
+              and  j.locked_by = ?
+              and  r.expires_at < now() + make_interval(secs => ?)
+            """;
+        int ttl = (int) Math.min(Integer.MAX_VALUE, reservationTtlMinutes * 60);
+        jdbc.update(sql, ttl, workerId, ttl / 2);
+    }
+
+    /** Deletes expired holds. They already stopped counting; this only keeps the table small. */
+    @Scheduled(fixedDelayString = "${app.tts.quota.sweepMillis:600000}")
+    public void purgeExpiredReservations() {
+        try {
+            int n = jdbc.update("delete from tts_quota_reservation where expires_at <= now()");
+            if (n > 0) log.info("Purged {} expired TTS quota reservations", n);
+        } catch (Exception e) {
+            log.warn("TTS quota reservation sweep failed: {}", e.getMessage());
         }
     }
 
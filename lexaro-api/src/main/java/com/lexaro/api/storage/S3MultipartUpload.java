@@ -0,0 +1,132 @@
+package com.lexaro.api.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams an object to S3 as a multipart upload, holding at most one part in memory.
+ *
+ * <p>The multipart upload is only created once the first part fills up; objects smaller
+ * than one part are sent with a single {@code PutObject} on {@link #close()}. Each full
+ * part is uploaded from the reused buffer without copying. The buffer starts at
+ * {@value #INITIAL_BUFFER} bytes and doubles up to the part size, so a small object (a
+ * marks sidecar, a short document) never costs a whole part of heap. If anything fails, or
+ * the caller calls {@link #abort()}, the multipart upload is aborted so S3 drops the parts.
+ */
+@Slf4j
+class S3MultipartUpload extends StorageService.Upload {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String key;
+    private final String contentType;
+    private final int partSize;
+
+    static final int INITIAL_BUFFER = 64 * 1024;
+
+    private byte[] buf = new byte[0];
+    private int len;
+
+    private String uploadId;
+    private final List<CompletedPart> parts = new ArrayList<>();
+    private boolean closed;
+
+    S3MultipartUpload(S3Client s3, String bucket, String key, String contentType, int partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentType = contentType;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int n) throws IOException {
+        ensureOpen();
+        while (n > 0) {
+            if (len == buf.length) grow(len + n);
+            int take = Math.min(n, buf.length - len);
+            System.arraycopy(b, off, buf, len, take);
+            len += take;
+            off += take;
+            n -= take;
+            if (len == partSize) flushPart();
+        }
+    }
+
+    /** Doubles the buffer (at least to {@code needed}), never past one part. */
+    private void grow(int needed) {
+        int size = Math.max(Math.max(INITIAL_BUFFER, buf.length * 2), needed);
+        buf = Arrays.copyOf(buf, Math.min(size, partSize));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            if (uploadId == null) {
+                s3.putObject(r -> r.bucket(bucket).key(key).contentType(contentType), body());
+            } else {
+                if (len > 0) flushPart();
+                s3.completeMultipartUpload(r -> r.bucket(bucket).key(key).uploadId(uploadId)
+                        .multipartUpload(m -> m.parts(parts)));
+            }
+            closed = true;
+        } catch (RuntimeException | IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (closed) return;
+        closed = true;
+        len = 0;
+        if (uploadId == null) return;
+        try {
+            s3.abortMultipartUpload(r -> r.bucket(bucket).key(key).uploadId(uploadId));
+        } catch (RuntimeException e) {
+            log.warn("Abort of multipart upload {} for key={} failed: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private void flushPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = s3.createMultipartUpload(r -> r.bucket(bucket).key(key).contentType(contentType))
+                        .uploadId();
+            }
+            int partNumber = parts.size() + 1;
+            String etag = s3.uploadPart(r -> r.bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber),
+                    body()).eTag();
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+            len = 0;
+        } catch (RuntimeException e) {
+            abort();
+            throw new IOException("Multipart upload of " + key + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Request body over the filled part of the buffer; the provider may be re-read on retry. */
+    private RequestBody body() {
+        final int n = len;
+        return RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buf, 0, n), n, contentType);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Upload for " + key + " is closed");
+    }
+}
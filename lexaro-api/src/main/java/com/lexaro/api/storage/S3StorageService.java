@@ -13,9 +13,14 @@ import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignReques
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -24,13 +29,15 @@ public class S3StorageService implements StorageService {
     private final S3Client s3;
     private final S3Presigner presigner;
     private final String bucket;
+    private final int partSizeBytes;
 
     public S3StorageService(
             @Value("${app.storage.bucket}") String bucket,
             @Value("${app.storage.endpoint}") String endpoint,
             @Value("${app.storage.accessKey}") String accessKey,
             @Value("${app.storage.secretKey}") String secretKey,
-            @Value("${app.storage.region:us-east-1}") String region
+            @Value("${app.storage.region:us-east-1}") String region,
+            @Value("${app.storage.multipart.part-size-mb:8}") int partSizeMb
     ) {
         var creds = StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
         var s3cfg = S3Configuration.builder()
@@ -52,6 +59,8 @@ public class S3StorageService implements StorageService {
                 .build();
 
         this.bucket = bucket;
+        // S3 rejects non-final parts under 5 MiB
+        this.partSizeBytes = Math.max(5, partSizeMb) * 1024 * 1024;
     }
 
     @Override
@@ -137,17 +146,76 @@ public class S3StorageService implements StorageService {
         return head.contentLength();
     }
 
+    @Override
+    public Map<String, Long> sizes(String prefix) {
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (S3Object o : s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents()) {
+            out.put(o.key(), o.size());
+        }
+        return out;
+    }
+
     @Override
     public void delete(String objectKey) {
         s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey).build());
     }
 
+    /**
+     * Reads the bucket's lifecycle configuration (read-only; needs
+     * {@code s3:GetLifecycleConfiguration}) and returns the shortest day-based expiration
+     * of an enabled rule whose prefix filter covers {@code prefix}.
+     */
+    @Override
+    public Integer expiryDays(String prefix) {
+        List<LifecycleRule> rules;
+        try {
+            rules = s3.getBucketLifecycleConfiguration(b -> b.bucket(bucket)).rules();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return -1; // bucket has no lifecycle configuration
+            throw e;
+        }
+        int days = -1;
+        for (LifecycleRule r : rules) {
+            if (r.status() != ExpirationStatus.ENABLED || r.expiration() == null || r.expiration().days() == null) continue;
+            String covers = rulePrefix(r);
+            if (covers == null || !prefix.startsWith(covers)) continue;
+            int d = r.expiration().days();
+            if (days < 0 || d < days) days = d;
+        }
+        return days;
+    }
+
+    /** The key prefix a rule applies to, or null if it also filters on tags or size (it may skip objects). */
+    private static String rulePrefix(LifecycleRule r) {
+        LifecycleRuleFilter f = r.filter();
+        if (f == null) return r.prefix() == null ? "" : r.prefix();
+        if (f.tag() != null || f.and() != null || f.objectSizeGreaterThan() != null || f.objectSizeLessThan() != null) {
+            return null;
+        }
+        return f.prefix() == null ? "" : f.prefix();
+    }
+
     @Override
     public byte[] getBytes(String objectKey) {
         var resp = s3.getObjectAsBytes(b -> b.bucket(bucket).key(objectKey));
         return resp.asByteArray();
     }
 
+    @Override
+    public void download(String objectKey, Path target) throws IOException {
+        try (var in = s3.getObject(b -> b.bucket(bucket).key(objectKey))) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public byte[] getRange(String objectKey, long offset, int length) {
+        if (length <= 0) return new byte[0];
+        var resp = s3.getObjectAsBytes(b -> b.bucket(bucket).key(objectKey)
+                .range("bytes=%d-%d".formatted(offset, offset + length - 1)));
+        return resp.asByteArray();
+    }
+
     @Override
     public void put(String objectKey, byte[] bytes, String contentType) {
         s3.putObject(
@@ -155,4 +223,9 @@ public class S3StorageService implements StorageService {
                 RequestBody.fromBytes(bytes)
         );
     }
+
+    @Override
+    public Upload openUpload(String objectKey, String contentType) {
+        return new S3MultipartUpload(s3, bucket, objectKey, contentType, partSizeBytes);
+    }
 }
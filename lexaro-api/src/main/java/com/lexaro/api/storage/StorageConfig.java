@@ -14,11 +14,12 @@ public class StorageConfig {
             @Value("${app.storage.endpoint:}") String endpoint,
             @Value("${app.storage.accessKey:}") String accessKey,
             @Value("${app.storage.secretKey:}") String secretKey,
-            @Value("${app.storage.region:us-east-1}") String region
+            @Value("${app.storage.region:us-east-1}") String region,
+            @Value("${app.storage.multipart.part-size-mb:8}") int partSizeMb
     ) {
         if ("s3".equalsIgnoreCase(provider)) {
             // builds the concrete S3 impl here (no separate bean registered)
-            return new S3StorageService(bucket, endpoint, accessKey, secretKey, region);
+            return new S3StorageService(bucket, endpoint, accessKey, secretKey, region, partSizeMb);
         }
         // default fallback
         return new NoopStorageService();
@@ -1,5 +1,11 @@
 package com.lexaro.api.storage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 
 public interface StorageService {
@@ -27,5 +33,60 @@ public interface StorageService {
     void delete(String objectKey);
 
     byte[] getBytes(String objectKey);
+
+    // Bytes [offset, offset + length) of the object, fewer if it ends sooner. The default
+    // reads the whole object; S3 overrides this with a ranged GET.
+    default byte[] getRange(String objectKey, long offset, int length) {
+        byte[] all = getBytes(objectKey);
+        int from = (int) Math.min(offset, all.length);
+        return Arrays.copyOfRange(all, from, (int) Math.min(all.length, from + (long) length));
+    }
+
+    // Writes the whole object to target, replacing it. The default goes through
+    // getBytes(); S3 overrides this to stream the body so heap use does not grow with it.
+    default void download(String objectKey, Path target) throws IOException {
+        Files.write(target, getBytes(objectKey));
+    }
+
     void put(String objectKey, byte[] bytes, String contentType);
+
+    // Size of every object under prefix, by key, or null if this store cannot list; callers
+    // then fall back to size() per key. S3 lists up to 1000 keys per request.
+    default Map<String, Long> sizes(String prefix) {
+        return null;
+    }
+
+    // Age in days at which the store itself deletes objects under prefix (a bucket lifecycle
+    // rule on S3/MinIO, configured with the bucket, never by the app); -1 if no rule covers
+    // the prefix, null if this store has no lifecycle rules to inspect.
+    default Integer expiryDays(String prefix) {
+        return null;
+    }
+
+    // Streaming write: close() publishes the object, abort() discards whatever was sent.
+    // Nothing is visible under the key until close() succeeds.
+    abstract class Upload extends OutputStream {
+        public abstract void abort();
+    }
+
+    // Default buffers in memory and delegates to put(); S3 overrides this with a multipart
+    // upload so heap use stays bounded by the part size.
+    default Upload openUpload(String objectKey, String contentType) {
+        return new Upload() {
+            private final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            private boolean done;
+
+            @Override public void write(int b) { buf.write(b); }
+            @Override public void write(byte[] b, int off, int len) { buf.write(b, off, len); }
+
+            @Override
+            public void close() throws IOException {
+                if (done) return;
+                done = true;
+                put(objectKey, buf.toByteArray(), contentType);
+            }
+
+            @Override public void abort() { done = true; buf.reset(); }
+        };
+    }
 }
@@ -1,5 +1,6 @@
 package com.lexaro.api.translate;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.util.LinkedMultiValueMap;
@@ -12,7 +13,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
-public class LibreTranslateService implements TranslateService {
+public class LibreTranslateService implements TranslateService, SegmentTranslator {
 
     private final String baseUrl;               // e.g. http://localhost:5000
     private final String apiKey;                // optional
@@ -80,6 +81,43 @@ public class LibreTranslateService implements TranslateService {
         }
     }
 
+    /**
+     * One {@code /translate} request with {@code q} as an array. Unlike {@link #translate},
+     * failures are thrown so the caller can retry; {@code detectedLanguage} is only
+     * reported by the server when {@code source} is {@code auto}.
+     */
+    @Override
+    public List<Translation> translate(List<String> segments, String source, String target) {
+        if (segments.isEmpty()) return List.of();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("q", segments);
+        body.put("source", (source == null || source.isBlank()) ? "auto" : source);
+        body.put("target", target);
+        body.put("format", "text");
+        if (!apiKey.isBlank()) body.put("api_key", apiKey);
+
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<JsonNode> res = rt.postForEntity(baseUrl + "/translate", new HttpEntity<>(body, headers), JsonNode.class);
+        JsonNode json = res.getBody();
+        JsonNode texts = json == null ? null : json.get("translatedText");
+        if (texts == null || !texts.isArray() || texts.size() != segments.size()) {
+            throw new IllegalStateException("Unexpected translate response status=" + res.getStatusCode()
+                    + " for " + segments.size() + " segments");
+        }
+        JsonNode detected = json.get("detectedLanguage");
+
+        List<Translation> out = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            JsonNode d = detected != null && detected.isArray() ? detected.get(i) : null;
+            String lang = d == null || !d.hasNonNull("language") ? null : d.get("language").asText();
+            out.add(new Translation(texts.get(i).asText(), lang));
+        }
+        return out;
+    }
+
     @Override
     public List<Language> languages() {
         Instant now = Instant.now();
@@ -0,0 +1,16 @@
+package com.lexaro.api.translate;
+
+import java.util.List;
+
+/** A provider that translates several segments in one request. */
+public interface SegmentTranslator {
+
+    /**
+     * Translates {@code segments} in order. Throws if the request fails; there is no
+     * silent fall back to the source text.
+     */
+    List<Translation> translate(List<String> segments, String source, String target) throws Exception;
+
+    /** {@code detectedLanguage} is the provider's guess at the source language, or null. */
+    record Translation(String text, String detectedLanguage) {}
+}
@@ -0,0 +1,255 @@
+package com.lexaro.api.translate;
+
+import com.lexaro.api.tts.OrderedFanout;
+import com.lexaro.api.tts.TextChunker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translates long text as sentence-aligned segments instead of one request.
+ *
+ * <p>The text is cut into segments of whole sentences ({@link TextChunker#spans}) and
+ * segments are packed into batches, one provider request each. Up to
+ * {@code parallelism} batches of a document are in flight at once on the shared
+ * {@code translateExecutor} ({@link OrderedFanout}), so one large document cannot take
+ * the whole pool. A failed batch is retried with backoff, then each of its segments on its
+ * own; a segment that still fails fails the whole call rather than leaving it untranslated.
+ *
+ * <p>Every translated segment goes into the translation memory (the
+ * {@code translation-memory} cache) keyed by source, target and the segment's SHA-256, so
+ * a retried job or a re-generated document only sends the segments not yet translated.
+ * A segment the provider reports as already being in the target language keeps its
+ * original text, and is remembered that way too. The provider only detects the language
+ * while translating, so such a segment is still sent (and billed) once.
+ *
+ * <p>Meters: {@code translate.request.latency{outcome}}, one sample per provider request
+ * with outcome {@code success} or {@code failure}, and {@code translate.segments{outcome}}
+ * with outcome {@code translated}, {@code same_language}, {@code cached} or {@code failed}.
+ */
+@Slf4j
+public class SegmentingTranslateService implements TranslateService {
+
+    /**
+     * @param maxSegmentChars  segment size; a sentence longer than this is split by words
+     * @param maxBatchChars    raw chars per provider request
+     * @param maxBatchSegments segments per provider request
+     * @param parallelism      batches of one document in flight at once
+     * @param maxAttempts      attempts per batch, and per segment after a batch gives up
+     * @param backoffMs        delay before the first retry, doubled on each later one
+     */
+    public record Settings(int maxSegmentChars, int maxBatchChars, int maxBatchSegments,
+                           int parallelism, int maxAttempts, long backoffMs) {
+        public Settings {
+            maxSegmentChars = Math.max(1, maxSegmentChars);
+            maxBatchChars = Math.max(maxSegmentChars, maxBatchChars);
+            maxBatchSegments = Math.max(1, maxBatchSegments);
+            parallelism = Math.max(1, parallelism);
+            maxAttempts = Math.max(1, maxAttempts);
+            backoffMs = Math.max(0, backoffMs);
+        }
+    }
+
+    private final SegmentTranslator provider;
+    private final TranslateService languages;
+    private final Executor executor;
+    /** Translation memory; null disables it. */
+    private final Cache memory;
+    private final Settings settings;
+    private final MeterRegistry reg;
+
+    public SegmentingTranslateService(SegmentTranslator provider,
+                                      TranslateService languages,
+                                      Executor executor,
+                                      Cache memory,
+                                      Settings settings,
+                                      MeterRegistry reg) {
+        this.provider = provider;
+        this.languages = languages;
+        this.executor = executor;
+        this.memory = memory;
+        this.settings = settings;
+        this.reg = reg;
+    }
+
+    /** A segment still to translate: its index among all segments, text and memory key. */
+    private record Pending(int index, String text, String key) {}
+
+    @Override
+    public String translate(String text, String source, String target) {
+        if (text == null || text.isBlank() || target == null || target.isBlank()) return text;
+
+        String src = (source == null || source.isBlank()) ? "auto" : source.toLowerCase(Locale.ROOT);
+        String tgt = target.toLowerCase(Locale.ROOT);
+        if (src.equals(tgt)) return text;
+
+        List<TextChunker.Span> spans = TextChunker.spans(text, settings.maxSegmentChars());
+        String[] out = new String[spans.size()];
+
+        List<Pending> pending = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            String segment = spans.get(i).text(text);
+            String key = src + ':' + tgt + ':' + sha256Hex(segment);
+            String remembered = memory == null ? null : memory.get(key, String.class);
+            if (remembered != null) {
+                out[i] = remembered;
+            } else {
+                pending.add(new Pending(i, segment, key));
+            }
+        }
+        segments("cached").increment(spans.size() - pending.size());
+
+        List<List<Pending>> batches = batches(pending);
+        try {
+            OrderedFanout.run(executor, batches.size(), settings.parallelism(),
+                    b -> translateBatch(batches.get(b), src, tgt),
+                    (b, translated) -> {
+                        List<Pending> batch = batches.get(b);
+                        for (int j = 0; j < batch.size(); j++) out[batch.get(j).index()] = translated.get(j);
+                    });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Translation failed: " + e.getMessage(), e);
+        }
+
+        log.debug("Translated {} segments ({} from memory, {} batches) {} -> {}",
+                spans.size(), spans.size() - pending.size(), batches.size(), src, tgt);
+        return String.join(" ", out);
+    }
+
+    @Override
+    public List<Language> languages() {
+        return languages.languages();
+    }
+
+    /** Packs segments in order into batches bounded by segment count and raw chars. */
+    private List<List<Pending>> batches(List<Pending> pending) {
+        List<List<Pending>> out = new ArrayList<>();
+        List<Pending> cur = new ArrayList<>();
+        int chars = 0;
+        for (Pending p : pending) {
+            if (!cur.isEmpty() && (cur.size() >= settings.maxBatchSegments()
+                    || chars + p.text().length() > settings.maxBatchChars())) {
+                out.add(cur);
+                cur = new ArrayList<>();
+                chars = 0;
+            }
+            cur.add(p);
+            chars += p.text().length();
+        }
+        if (!cur.isEmpty()) out.add(cur);
+        return out;
+    }
+
+    /**
+     * Translates one batch, retrying it as a whole and then segment by segment.
+     * Returns the final text per segment, in order.
+     */
+    private List<String> translateBatch(List<Pending> batch, String src, String tgt) throws Exception {
+        List<String> texts = batch.stream().map(Pending::text).toList();
+        try {
+            return accept(batch, withRetry(texts, src, tgt), tgt);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                segments("failed").increment();
+                throw e;
+            }
+            log.warn("Translate batch of {} segments failed, retrying per segment: {}", batch.size(), e.toString());
+        }
+
+        List<String> out = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            try {
+                out.addAll(accept(List.of(p), withRetry(List.of(p.text()), src, tgt), tgt));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                segments("failed").increment();
+                throw e;
+            }
+        }
+        return out;
+    }
+
+    private List<SegmentTranslator.Translation> withRetry(List<String> texts, String src, String tgt) throws Exception {
+        long delay = settings.backoffMs();
+        for (int attempt = 1; ; attempt++) {
+            long t0 = System.nanoTime();
+            try {
+                List<SegmentTranslator.Translation> results = provider.translate(texts, src, tgt);
+                if (results == null || results.size() != texts.size()) {
+                    throw new IllegalStateException("Provider returned "
+                            + (results == null ? 0 : results.size()) + " results for " + texts.size() + " segments");
+                }
+                latency("success").record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                return results;
+            } catch (Exception e) {
+                latency("failure").record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                if (attempt >= settings.maxAttempts()) throw e;
+                log.debug("Translate request attempt {} failed: {}", attempt, e.toString());
+                if (delay > 0) Thread.sleep(delay);
+                delay *= 2;
+            }
+        }
+    }
+
+    /** Records meters and the translation memory for a successful request. */
+    private List<String> accept(List<Pending> batch, List<SegmentTranslator.Translation> results, String tgt) {
+        List<String> out = new ArrayList<>(batch.size());
+        for (int j = 0; j < batch.size(); j++) {
+            Pending p = batch.get(j);
+            SegmentTranslator.Translation t = results.get(j);
+            boolean keep = sameLanguage(t.detectedLanguage(), tgt) || t.text() == null;
+            String result = keep ? p.text() : t.text();
+            segments(keep ? "same_language" : "translated").increment();
+            if (memory != null) memory.put(p.key(), result);
+            out.add(result);
+        }
+        return out;
+    }
+
+    /** "en" matches "en", "EN" and "en-US"; an undetected language matches nothing. */
+    private static boolean sameLanguage(String detected, String tgt) {
+        if (detected == null || detected.isBlank()) return false;
+        String d = detected.toLowerCase(Locale.ROOT);
+        return d.equals(tgt) || d.startsWith(tgt + "-") || tgt.startsWith(d + "-");
+    }
+
+    private Timer latency(String outcome) {
+        return Timer.builder("translate.request.latency")
+                .description("Provider translate request latency")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(reg);
+    }
+
+    private Counter segments(String outcome) {
+        return Counter.builder("translate.segments")
+                .description("Translation segments by outcome")
+                .tag("outcome", outcome)
+                .register(reg);
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.lexaro.api.translate;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.Executor;
+
 /**
  * Translation wiring. By default translation is DISABLED.
  *
@@ -15,7 +20,9 @@ import org.springframework.context.annotation.Configuration;
 public class TranslateConfig {
 
     /**
-     * When translation is ENABLED, register the real provider (Libre).
+     * When translation is ENABLED, register the real provider (Libre), fronted by
+     * {@link SegmentingTranslateService} so long documents are translated as parallel,
+     * retried, cached batches of sentences rather than one request.
      */
     @Bean
     @ConditionalOnProperty(name = "app.translate.enabled", havingValue = "true")
@@ -25,12 +32,26 @@ public class TranslateConfig {
             @Value("${app.translate.apiKey:}") String apiKey,
             @Value("${app.translate.http.connectTimeout:5000}") int connectTimeoutMs,
             @Value("${app.translate.http.readTimeout:30000}") int readTimeoutMs,
-            @Value("${app.translate.languagesTtlSeconds:3600}") long languagesTtlSeconds
+            @Value("${app.translate.languagesTtlSeconds:3600}") long languagesTtlSeconds,
+            @Value("${app.translate.segment.maxChars:1000}") int segmentMaxChars,
+            @Value("${app.translate.batch.maxChars:6000}") int batchMaxChars,
+            @Value("${app.translate.batch.maxSegments:20}") int batchMaxSegments,
+            @Value("${app.translate.parallel.perDocument:4}") int perDocument,
+            @Value("${app.translate.retry.maxAttempts:3}") int maxAttempts,
+            @Value("${app.translate.retry.backoffMs:500}") long backoffMs,
+            @Qualifier("translateExecutor") Executor translateExecutor,
+            CacheManager cacheManager,
+            MeterRegistry registry
     ) {
         if (!"libre".equalsIgnoreCase(provider)) {
             throw new IllegalStateException("Unsupported translation provider: " + provider);
         }
-        return new LibreTranslateService(baseUrl, apiKey, connectTimeoutMs, readTimeoutMs, languagesTtlSeconds);
+        var libre = new LibreTranslateService(baseUrl, apiKey, connectTimeoutMs, readTimeoutMs, languagesTtlSeconds);
+        return new SegmentingTranslateService(libre, libre, translateExecutor,
+                cacheManager.getCache("translation-memory"),
+                new SegmentingTranslateService.Settings(segmentMaxChars, batchMaxChars, batchMaxSegments,
+                        perDocument, maxAttempts, backoffMs),
+                registry);
     }
 
     /**
@@ -0,0 +1,114 @@
+package com.lexaro.api.tts;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Joins independently synthesized TTS chunks into one well-formed audio file.
+ *
+ * <p>Chunks are passed to {@link #append} in playback order and {@link #finish} writes
+ * whatever has to come last (or first) to the output stream. Each format keeps only
+ * bounded state in memory:
+ * <ul>
+ *   <li>MP3 ({@code mp3}): frames are re-synced per chunk, ID3 and Xing/Info/VBRI tag
+ *       frames are dropped, and one Xing header with a seek TOC is written in front.
+ *       Frames are spilled to a temp file until the totals are known.</li>
+ *   <li>Ogg ({@code ogg}): chunk header pages are dropped when they match the first
+ *       chunk's, and audio pages are renumbered with continuous granule positions.
+ *       Pages are written through as they arrive.</li>
+ *   <li>PCM ({@code wav}): raw 16-bit mono samples are wrapped in a RIFF/WAVE header.
+ *       Samples are spilled to a temp file until the data length is known.</li>
+ * </ul>
+ *
+ * <p>Only Ogg is streamed: the MP3 and WAV headers carry totals, and a multipart upload
+ * cannot rewrite bytes it has sent, so for those formats nothing reaches {@code out}
+ * before {@link #finish} and the temp file grows to the size of the audio. That costs
+ * local disk and moves the upload after synthesis, in exchange for a seekable MP3 with
+ * the right duration and a WAV with valid lengths.
+ *
+ * <p>The underlying stream is never closed here; {@link #close()} only releases temp files.
+ */
+public abstract class AudioAssembler implements Closeable {
+
+    protected final OutputStream out;
+    protected long audioBytes;
+
+    protected AudioAssembler(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * @param ext           output extension as stored on the document: {@code mp3}, {@code ogg} or {@code wav}
+     * @param pcmSampleRate sample rate of raw PCM chunks; only used for {@code wav}
+     */
+    public static AudioAssembler forFormat(String ext, OutputStream out, int pcmSampleRate) throws IOException {
+        return switch (ext) {
+            case "ogg" -> new OggPageAssembler(out);
+            case "wav" -> new WavAssembler(out, pcmSampleRate);
+            default -> new Mp3FrameAssembler(out);
+        };
+    }
+
+    /**
+     * One chunk as a file that plays on its own, e.g. a progressive-playback segment. MP3
+     * and Ogg chunks already are; raw PCM ({@code wav}) gets a WAV header, which
+     * {@link #append} strips again when the chunk is later joined.
+     */
+    public static byte[] standalone(String ext, byte[] chunk, int pcmSampleRate) {
+        return "wav".equals(ext) ? WavAssembler.standalone(chunk, pcmSampleRate) : chunk;
+    }
+
+    /** Adds the next chunk; empty or unparseable chunks contribute nothing. */
+    public abstract void append(byte[] chunk) throws IOException;
+
+    /** Completes the file. Must be called once, after the last {@link #append}. */
+    public abstract void finish() throws IOException;
+
+    /** Playback length of everything appended so far; used to place per-chunk timings. */
+    public abstract long durationMillis();
+
+    /** Audio payload accepted so far, excluding container headers. */
+    public long audioBytes() {
+        return audioBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /** Append-only temp file for payload that has to be written after a header. */
+    static final class Spill implements Closeable {
+        private final Path file;
+        private final OutputStream os;
+        private boolean closed;
+
+        Spill() throws IOException {
+            this.file = Files.createTempFile("lexaro-audio-", ".part");
+            this.os = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            os.write(b, off, len);
+        }
+
+        void copyTo(OutputStream target) throws IOException {
+            os.flush();
+            Files.copy(file, target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                os.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.lexaro.api.tts;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lexaro.api.domain.Plan;
+import com.lexaro.api.storage.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed synthesis cache in front of the provider router.
+ *
+ * <p>Each request is keyed by a SHA-256 of (provider, voice, engine, format, language,
+ * whitespace-normalized text), so identical chunks are synthesized once no matter which
+ * document or user they come from — re-generation after a failure, re-uploaded PDFs,
+ * boilerplate pages. The audio lives in storage under {@code tts-cache/}; this class only
+ * keeps a Caffeine index of which keys exist, bounded by {@code maxEntries} (LRU) and
+ * expiring {@code ttl} after last access. The index is a per-node hint, so dropping an
+ * entry never deletes the object: other nodes may still index it. Objects are removed only by
+ * a bucket lifecycle rule on {@link #PREFIX} ({@code lifecycle.json}, checked at startup via
+ * {@link StorageService#expiryDays}).
+ *
+ * <p>Because entries are shared across documents and users, deleting a document (or purging
+ * it in {@code RetentionService}) leaves its cached chunks in place; they outlive it for up
+ * to the rule's expiry ({@code app.tts.cache.ttl-days}).
+ *
+ * <p>Speech marks for a chunk are a separate, billed provider request; they are kept next to
+ * the chunk's audio under the same hash ({@code .marks}, a {@link SpeechMarkIndex}), so a
+ * chunk served from the cache needs no marks request either.
+ *
+ * <p>On an index miss the cache can optionally probe storage ({@code probeStorage}), which
+ * shares entries across nodes and restarts at the cost of one HEAD request per miss.
+ * Storage errors never fail a synthesis: the cache degrades to a pass-through.
+ *
+ * <p>Meters: {@code tts.cache.lookups{result=hit|miss}} (hit rate = hit / total),
+ * {@code tts.cache.saved_chars} (characters not sent to a provider) and
+ * {@code tts.cache.entries}.
+ */
+@Slf4j
+public class CachingTtsService implements TtsService {
+
+    /** Storage prefix of all cached chunks. */
+    public static final String PREFIX = "tts-cache/";
+
+    private static final Pattern WS = Pattern.compile("\\s+");
+
+    private final TtsService delegate;
+    private final StorageService storage;
+    private final boolean probeStorage;
+    private final Cache<String, Boolean> index;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter savedChars;
+
+    public CachingTtsService(TtsService delegate,
+                             StorageService storage,
+                             MeterRegistry reg,
+                             long maxEntries,
+                             Duration ttl,
+                             boolean probeStorage) {
+        this.delegate = delegate;
+        this.storage = storage;
+        this.probeStorage = probeStorage;
+        this.index = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(ttl)
+                .build();
+
+        this.hits = Counter.builder("tts.cache.lookups").tag("result", "hit")
+                .description("TTS chunk cache lookups").register(reg);
+        this.misses = Counter.builder("tts.cache.lookups").tag("result", "miss")
+                .description("TTS chunk cache lookups").register(reg);
+        this.savedChars = Counter.builder("tts.cache.saved_chars")
+                .description("Characters served from the TTS cache instead of a provider").register(reg);
+        Gauge.builder("tts.cache.entries", index, Cache::estimatedSize)
+                .description("Entries in the TTS chunk cache index")
+                .register(reg);
+    }
+
+    @Override
+    public byte[] synthesize(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        return synthesizeResult(plan, text, voice, engine, format, language).audio();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(Plan plan, String text, String voice, String engine, String format, String language) {
+        return synthesizeResultAsync(plan, text, voice, engine, format, language).thenApply(SynthesisResult::audio);
+    }
+
+    /**
+     * Serves the chunk from the cache, or synthesizes and stores it. Audio a fallback or
+     * hedge produced is returned but not stored: the key names the requested provider.
+     */
+    @Override
+    public SynthesisResult synthesizeResult(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        String objectKey = objectKey(text, voice, engine, format, language);
+
+        byte[] cached = lookup(objectKey);
+        if (cached != null) {
+            hits.increment();
+            savedChars.increment(text.length());
+            return SynthesisResult.requested(cached, engine);
+        }
+        misses.increment();
+
+        SynthesisResult result = delegate.synthesizeResult(plan, text, voice, engine, format, language);
+        store(objectKey, result, engine, format);
+        return result;
+    }
+
+    /**
+     * Same as {@link #synthesizeResult}, with the delegate called non-blockingly. The index
+     * lookup (and storage probe) runs on the calling thread; the store runs on the thread
+     * that completes the delegate's future.
+     */
+    @Override
+    public CompletableFuture<SynthesisResult> synthesizeResultAsync(Plan plan, String text, String voice, String engine, String format, String language) {
+        String objectKey = objectKey(text, voice, engine, format, language);
+
+        byte[] cached = lookup(objectKey);
+        if (cached != null) {
+            hits.increment();
+            savedChars.increment(text.length());
+            return CompletableFuture.completedFuture(SynthesisResult.requested(cached, engine));
+        }
+        misses.increment();
+
+        return delegate.synthesizeResultAsync(plan, text, voice, engine, format, language)
+                .thenApply(result -> {
+                    store(objectKey, result, engine, format);
+                    return result;
+                });
+    }
+
+    /** Passed through uncached: without the format there is no cached audio to sit next to. */
+    @Override
+    public List<SpeechMark> speechMarks(Plan plan, String text, String voice, String engine, String language) throws Exception {
+        return delegate.speechMarks(plan, text, voice, engine, language);
+    }
+
+    /** Marks stored beside the chunk's cached audio, requested and stored on a miss. */
+    @Override
+    public List<SpeechMark> speechMarks(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        String marksKey = SpeechMarkIndex.sidecarKey(objectKey(text, voice, engine, format, language));
+        byte[] cached = lookup(marksKey);
+        if (cached != null) {
+            try {
+                return SpeechMarkIndex.decode(cached);
+            } catch (Exception e) {
+                index.invalidate(marksKey);
+                log.debug("TTS cache marks unreadable for {}: {}", marksKey, e.getMessage());
+            }
+        }
+
+        List<SpeechMark> marks = delegate.speechMarks(plan, text, voice, engine, language);
+        if (marks != null && !marks.isEmpty()) {
+            try {
+                storage.put(marksKey, SpeechMarkIndex.encode(marks), "application/octet-stream");
+                index.put(marksKey, Boolean.TRUE);
+            } catch (Exception e) {
+                log.debug("TTS cache marks store failed for {}: {}", marksKey, e.getMessage());
+            }
+        }
+        return marks;
+    }
+
+    private void store(String objectKey, SynthesisResult result, String engine, String format) {
+        byte[] audio = result.audio();
+        if (audio == null || audio.length == 0 || !result.servedAs(engine)) return;
+        try {
+            storage.put(objectKey, audio, contentType(format));
+            index.put(objectKey, Boolean.TRUE);
+        } catch (Exception e) {
+            log.debug("TTS cache store failed for {}: {}", objectKey, e.getMessage());
+        }
+    }
+
+    private byte[] lookup(String objectKey) {
+        boolean known = index.getIfPresent(objectKey) != null;
+        try {
+            if (!known && !(probeStorage && storage.exists(objectKey))) return null;
+            byte[] audio = storage.getBytes(objectKey);
+            if (!known) index.put(objectKey, Boolean.TRUE);
+            return audio;
+        } catch (Exception e) {
+            // Object expired by the lifecycle rule: treat as a miss.
+            index.invalidate(objectKey);
+            log.debug("TTS cache read failed for {}: {}", objectKey, e.getMessage());
+            return null;
+        }
+    }
+
+    static String objectKey(String text, String voice, String engine, String format, String language) {
+        String normalized = text == null ? "" : WS.matcher(text.trim()).replaceAll(" ");
+        String fmt = format == null ? "mp3" : format.toLowerCase(Locale.ROOT);
+        String id = String.join("\u0000",
+                DelegatingTtsService.providerFor(engine),
+                String.valueOf(voice),
+                engine == null ? "" : engine.trim().toLowerCase(Locale.ROOT),
+                fmt,
+                String.valueOf(language),
+                normalized);
+        String hash = sha256(id);
+        return PREFIX + "%s/%s.%s".formatted(hash.substring(0, 2), hash, fmt);
+    }
+
+    private static String contentType(String format) {
+        String f = format == null ? "mp3" : format.toLowerCase(Locale.ROOT);
+        return switch (f) {
+            case "ogg_vorbis", "ogg" -> "audio/ogg";
+            case "pcm" -> "audio/wave";
+            default -> "audio/mpeg";
+        };
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,104 @@
 package com.lexaro.api.tts;
 
 import com.lexaro.api.domain.Plan;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
-@RequiredArgsConstructor
+/**
+ * Routes each chunk to its provider by engine, with Polly STANDARD as the fallback for
+ * Speechify. Speechify voice ids mean nothing to Polly, so the fallback speaks with the
+ * configured {@code fallbackVoice}. {@link #synthesizeResult} reports which provider
+ * actually answered.
+ *
+ * <p>Each provider has a {@link ProviderCircuitBreaker}. While Speechify's is open, chunks go
+ * straight to Polly instead of waiting out timeouts and retries first; a Speechify call that
+ * fails falls back to Polly as well. Polly is the last resort, so it is always called and its
+ * breaker only feeds the metrics.
+ *
+ * <p>Every provider call, fallbacks and hedges included, first takes a permit from that
+ * provider's {@link ProviderLimiter}. Latency is measured from admission, so time spent
+ * queued for the account's rate never counts against the provider's breaker.
+ *
+ * <p>With a {@code hedgeExecutor}, a Speechify call still running after its rolling p95
+ * latency (but at least {@code minHedgeDelay}) gets a second request to Polly, and whichever
+ * answers first wins. The loser's result is discarded, so hedging trades some extra provider
+ * spend for tail latency and stays off by default. Both the blocking and the non-blocking
+ * path hedge; on the latter the executor only runs the hedge timer and its admission.
+ *
+ * <p>Meters: {@code tts.provider.breaker.state{provider}} (0 closed, 1 half-open, 2 open),
+ * {@code tts.provider.hedge.delay{provider}} (ms), {@code tts.provider.fallbacks{from,to,reason}}
+ * and {@code tts.provider.hedges{provider,winner}}. Per-request latency and size are
+ * recorded by the {@link MeteredTtsService} wrapped around each provider.
+ */
 @Slf4j
 public class DelegatingTtsService implements TtsService {
 
+    public static final String PROVIDER_POLLY = "polly";
+    public static final String PROVIDER_SPEECHIFY = "speechify";
+
+    private static final String FALLBACK_ENGINE = "standard";
+
     private final TtsService polly;
     private final TtsService speechify;
+    private final String fallbackVoice;
+    private final ProviderCircuitBreaker pollyBreaker;
+    private final ProviderCircuitBreaker speechifyBreaker;
+    private final ProviderLimiter pollyLimiter;
+    private final ProviderLimiter speechifyLimiter;
+    private final Executor hedgeExecutor; // null = no hedging
+    private final Duration minHedgeDelay;
+    private final MeterRegistry reg;
+
+    public DelegatingTtsService(TtsService polly,
+                                TtsService speechify,
+                                String fallbackVoice,
+                                ProviderCircuitBreaker.Settings breaker,
+                                ProviderLimiter pollyLimiter,
+                                ProviderLimiter speechifyLimiter,
+                                Executor hedgeExecutor,
+                                Duration minHedgeDelay,
+                                MeterRegistry reg) {
+        this.polly = polly;
+        this.speechify = speechify;
+        this.fallbackVoice = fallbackVoice;
+        this.pollyBreaker = new ProviderCircuitBreaker(PROVIDER_POLLY, breaker);
+        this.speechifyBreaker = new ProviderCircuitBreaker(PROVIDER_SPEECHIFY, breaker);
+        this.pollyLimiter = pollyLimiter;
+        this.speechifyLimiter = speechifyLimiter;
+        this.hedgeExecutor = hedgeExecutor;
+        this.minHedgeDelay = minHedgeDelay;
+        this.reg = reg;
+
+        for (ProviderCircuitBreaker b : List.of(pollyBreaker, speechifyBreaker)) {
+            Gauge.builder("tts.provider.breaker.state", b, x -> x.state().ordinal())
+                    .description("Provider circuit breaker state: 0 closed, 1 half-open, 2 open")
+                    .tag("provider", b.name()).register(reg);
+            Gauge.builder("tts.provider.hedge.delay", b, x -> x.percentileMillis(0.95))
+                    .description("Rolling p95 provider latency in ms (-1 until enough calls)")
+                    .tag("provider", b.name()).register(reg);
+        }
+    }
+
+    /** The provider {@link #synthesize} routes a request with this engine to. */
+    public static String providerFor(String engine) {
+        String e = (engine == null) ? "" : engine.trim().toLowerCase(Locale.ROOT);
+        return "neural".equals(e) ? PROVIDER_SPEECHIFY : PROVIDER_POLLY;
+    }
 
     @Override
     public byte[] synthesize(Plan plan,
@@ -20,15 +107,322 @@ public class DelegatingTtsService implements TtsService {
                              String engine,
                              String format,
                              String language) throws Exception {
+        return synthesizeResult(plan, text, voice, engine, format, language).audio();
+    }
 
-        String e = (engine == null) ? "" : engine.trim().toLowerCase(Locale.ROOT);
+    /**
+     * Routes the request; the result names Polly STANDARD whenever a fallback or a hedge
+     * produced the audio instead of the requested provider.
+     */
+    @Override
+    public SynthesisResult synthesizeResult(Plan plan,
+                                            String text,
+                                            String voice,
+                                            String engine,
+                                            String format,
+                                            String language) throws Exception {
+        if (!PROVIDER_SPEECHIFY.equals(providerFor(engine))) {
+            log.info("TTS ROUTE → POLLY       plan={} voice={} fmt={} lang={}", plan, voice, format, language);
+            pollyBreaker.tryAcquire();
+            return SynthesisResult.requested(
+                    call(pollyBreaker, pollyLimiter, () -> polly.synthesize(plan, text, voice, engine, format, language)),
+                    engine);
+        }
+
+        Call primary = () -> speechify.synthesize(plan, text, voice, engine, format, language);
+        Call fallback = () -> polly.synthesize(plan, text, fallbackVoice, FALLBACK_ENGINE, format, language);
+
+        if (!speechifyBreaker.tryAcquire()) {
+            log.info("TTS ROUTE → POLLY       plan={} voice={} (speechify breaker open)", plan, fallbackVoice);
+            return fallback(fallback, "open", voice);
+        }
+
+        log.info("TTS ROUTE → SPEECHIFY  plan={} voice={} fmt={} lang={}", plan, voice, format, language);
+        long hedgeAfter = hedgeExecutor == null ? -1 : speechifyBreaker.percentileMillis(0.95);
+        if (hedgeAfter >= 0) {
+            return hedged(primary, fallback, Math.max(hedgeAfter, minHedgeDelay.toMillis()), voice, engine);
+        }
+        try {
+            return SynthesisResult.requested(call(speechifyBreaker, speechifyLimiter, primary), engine);
+        } catch (InterruptedException ie) {
+            throw ie;
+        } catch (Exception ex) {
+            log.warn("Speechify failed for plan={}, falling back to Polly STANDARD. err={}", plan, ex.toString());
+            return fallback(fallback, "error", voice);
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(Plan plan,
+                                                     String text,
+                                                     String voice,
+                                                     String engine,
+                                                     String format,
+                                                     String language) {
+        return synthesizeResultAsync(plan, text, voice, engine, format, language).thenApply(SynthesisResult::audio);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #synthesizeResult}. Admission (breaker and limiter)
+     * happens on the calling thread, but no thread waits for a response. A Speechify
+     * failure falls back to Polly from the thread that observed it; a hedge is admitted
+     * on the hedge executor once the delay has passed.
+     */
+    @Override
+    public CompletableFuture<SynthesisResult> synthesizeResultAsync(Plan plan,
+                                                                    String text,
+                                                                    String voice,
+                                                                    String engine,
+                                                                    String format,
+                                                                    String language) {
+        if (!PROVIDER_SPEECHIFY.equals(providerFor(engine))) {
+            pollyBreaker.tryAcquire();
+            return callAsync(pollyBreaker, pollyLimiter,
+                    () -> polly.synthesizeAsync(plan, text, voice, engine, format, language))
+                    .thenApply(audio -> SynthesisResult.requested(audio, engine));
+        }
+
+        AsyncCall fallback = () -> polly.synthesizeAsync(plan, text, fallbackVoice, FALLBACK_ENGINE, format, language);
+        if (!speechifyBreaker.tryAcquire()) {
+            return fallbackAsync(fallback, "open", voice);
+        }
+        AsyncCall primary = () -> speechify.synthesizeAsync(plan, text, voice, engine, format, language);
+        long hedgeAfter = hedgeExecutor == null ? -1 : speechifyBreaker.percentileMillis(0.95);
+        if (hedgeAfter >= 0) {
+            return hedgedAsync(primary, fallback, Math.max(hedgeAfter, minHedgeDelay.toMillis()), voice, engine);
+        }
+        return callAsync(speechifyBreaker, speechifyLimiter, primary)
+                .thenApply(audio -> SynthesisResult.requested(audio, engine))
+                .exceptionallyCompose(err -> {
+                    log.warn("Speechify failed for plan={}, falling back to Polly STANDARD. err={}", plan, unwrap(err).toString());
+                    return fallbackAsync(fallback, "error", voice);
+                });
+    }
+
+    @Override
+    public List<SpeechMark> speechMarks(Plan plan,
+                                        String text,
+                                        String voice,
+                                        String engine,
+                                        String language) throws Exception {
+        if (PROVIDER_SPEECHIFY.equals(providerFor(engine))) {
+            return speechify.speechMarks(plan, text, voice, engine, language);
+        }
+        // Marks are a separate Polly request and count against the same account limits.
+        try (ProviderLimiter.Permit permit = pollyLimiter.acquire()) {
+            return polly.speechMarks(plan, text, voice, engine, language);
+        } catch (Exception e) {
+            if (isRateLimited(e)) pollyLimiter.onRejected();
+            throw e;
+        }
+    }
+
+    /** Speechify first; Polly joins the race once the primary has run for {@code delayMs}. */
+    private SynthesisResult hedged(Call primary, Call fallback, long delayMs, String voice, String engine) throws Exception {
+        CompletableFuture<byte[]> first = async(speechifyBreaker, speechifyLimiter, primary);
+        try {
+            return SynthesisResult.requested(first.get(delayMs, TimeUnit.MILLISECONDS), engine);
+        } catch (TimeoutException slow) {
+            // fall through to the hedge
+        } catch (ExecutionException failed) {
+            log.warn("Speechify failed, falling back to Polly STANDARD. err={}", failed.getCause().toString());
+            return fallback(fallback, "error", voice);
+        }
+
+        CompletableFuture<byte[]> second = async(pollyBreaker, pollyLimiter, fallback);
+        CompletableFuture<byte[]> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((audio, err) -> settle(winner, audio, err, failures));
+        second.whenComplete((audio, err) -> settle(winner, audio, err, failures));
+        try {
+            byte[] audio = winner.get();
+            // The winning future is complete before its callback runs, so this is race-free.
+            boolean hedgeWon = second.isDone() && !second.isCompletedExceptionally() && second.join() == audio;
+            hedgeCounter(hedgeWon ? PROVIDER_POLLY : PROVIDER_SPEECHIFY).increment();
+            if (!hedgeWon) return SynthesisResult.requested(audio, engine);
+            logSubstitution(voice);
+            return fallbackResult(audio);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            // Does not stop the loser's HTTP call, only drops its result.
+            first.cancel(false);
+            second.cancel(false);
+        }
+    }
 
-        if ("neural".equals(e)) {
-            log.info("TTS ROUTE → SPEECHIFY  plan={} voice={} fmt={} lang={}", plan, voice, format, language);
-            return speechify.synthesize(plan, text, voice, engine, format, language);
+    /** Non-blocking {@link #hedged}: no thread waits for the delay or for either provider. */
+    private CompletableFuture<SynthesisResult> hedgedAsync(AsyncCall primary, AsyncCall fallback, long delayMs,
+                                                           String voice, String engine) {
+        CompletableFuture<byte[]> first = callAsync(speechifyBreaker, speechifyLimiter, primary);
+        CompletableFuture<Boolean> slow = new CompletableFuture<>();
+        first.whenComplete((audio, err) -> slow.complete(false));
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, hedgeExecutor)
+                .execute(() -> slow.complete(true));
+
+        return slow.thenCompose(hedge -> {
+            if (!hedge) {
+                return first.thenApply(audio -> SynthesisResult.requested(audio, engine))
+                        .exceptionallyCompose(err -> {
+                            log.warn("Speechify failed, falling back to Polly STANDARD. err={}", unwrap(err).toString());
+                            return fallbackAsync(fallback, "error", voice);
+                        });
+            }
+            CompletableFuture<byte[]> second = callAsync(pollyBreaker, pollyLimiter, fallback);
+            CompletableFuture<byte[]> winner = new CompletableFuture<>();
+            AtomicInteger failures = new AtomicInteger();
+            first.whenComplete((audio, err) -> settle(winner, audio, err, failures));
+            second.whenComplete((audio, err) -> settle(winner, audio, err, failures));
+            return winner.thenApply(audio -> {
+                boolean hedgeWon = second.isDone() && !second.isCompletedExceptionally() && second.join() == audio;
+                hedgeCounter(hedgeWon ? PROVIDER_POLLY : PROVIDER_SPEECHIFY).increment();
+                if (!hedgeWon) return SynthesisResult.requested(audio, engine);
+                logSubstitution(voice);
+                return fallbackResult(audio);
+            });
+        });
+    }
+
+    /** Completes {@code winner} with the first success, or with the second failure. */
+    private static void settle(CompletableFuture<byte[]> winner, byte[] audio, Throwable err, AtomicInteger failures) {
+        if (err == null) winner.complete(audio);
+        else if (failures.incrementAndGet() == 2) winner.completeExceptionally(err);
+    }
+
+    private SynthesisResult fallback(Call fallback, String reason, String voice) throws Exception {
+        fallbackCounter(reason).increment();
+        logSubstitution(voice);
+        pollyBreaker.tryAcquire();
+        return fallbackResult(call(pollyBreaker, pollyLimiter, fallback));
+    }
+
+    private CompletableFuture<SynthesisResult> fallbackAsync(AsyncCall fallback, String reason, String voice) {
+        fallbackCounter(reason).increment();
+        logSubstitution(voice);
+        pollyBreaker.tryAcquire();
+        return callAsync(pollyBreaker, pollyLimiter, fallback).thenApply(DelegatingTtsService::fallbackResult);
+    }
+
+    private static SynthesisResult fallbackResult(byte[] audio) {
+        return new SynthesisResult(audio, PROVIDER_POLLY, FALLBACK_ENGINE);
+    }
+
+    private void logSubstitution(String voice) {
+        log.info("TTS fallback speaks Polly voice {} in place of Speechify voice {}", fallbackVoice, voice);
+    }
+
+    private Counter fallbackCounter(String reason) {
+        return Counter.builder("tts.provider.fallbacks")
+                .description("Chunks synthesized by the fallback provider")
+                .tag("from", PROVIDER_SPEECHIFY).tag("to", PROVIDER_POLLY).tag("reason", reason)
+                .register(reg);
+    }
+
+    private CompletableFuture<byte[]> async(ProviderCircuitBreaker breaker, ProviderLimiter limiter, Call c) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(breaker, limiter, c);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, hedgeExecutor);
+    }
+
+    /**
+     * Runs {@code c} once the limiter admits it, feeding its latency and outcome to the
+     * breaker. A call that never gets past the limiter is released back to the breaker.
+     */
+    private byte[] call(ProviderCircuitBreaker breaker, ProviderLimiter limiter, Call c) throws Exception {
+        try (ProviderLimiter.Permit permit = admit(breaker, limiter)) {
+            return timed(breaker, limiter, c);
+        }
+    }
+
+    /** Non-blocking {@link #call}: the permit is held until the future completes. */
+    private CompletableFuture<byte[]> callAsync(ProviderCircuitBreaker breaker, ProviderLimiter limiter, AsyncCall c) {
+        ProviderLimiter.Permit permit;
+        try {
+            permit = admit(breaker, limiter);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ie);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
+        long t0 = System.nanoTime();
+        CompletableFuture<byte[]> f;
+        try {
+            f = c.start();
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+        return f.whenComplete((audio, err) -> {
+            permit.close();
+            outcome(breaker, limiter, System.nanoTime() - t0, unwrap(err));
+        });
+    }
+
+    private static ProviderLimiter.Permit admit(ProviderCircuitBreaker breaker, ProviderLimiter limiter)
+            throws InterruptedException {
+        try {
+            return limiter.acquire();
+        } catch (InterruptedException | RuntimeException e) {
+            breaker.release();
+            throw e;
+        }
+    }
+
+    private byte[] timed(ProviderCircuitBreaker breaker, ProviderLimiter limiter, Call c) throws Exception {
+        long t0 = System.nanoTime();
+        try {
+            byte[] audio = c.run();
+            outcome(breaker, limiter, System.nanoTime() - t0, null);
+            return audio;
+        } catch (Exception e) {
+            outcome(breaker, limiter, System.nanoTime() - t0, e);
+            throw e;
+        }
+    }
+
+    private void outcome(ProviderCircuitBreaker breaker, ProviderLimiter limiter, long nanos, Throwable err) {
+        if (err == null || err instanceof InterruptedException) {
+            breaker.onSuccess(nanos); // an interrupt is our cancellation, not the provider's fault
+        } else {
+            breaker.onFailure(nanos);
+        }
+        if (err != null && isRateLimited(err)) limiter.onRejected();
+    }
+
+    private Counter hedgeCounter(String winner) {
+        return Counter.builder("tts.provider.hedges")
+                .description("Hedged chunk requests by the provider that answered first")
+                .tag("provider", PROVIDER_SPEECHIFY).tag("winner", winner)
+                .register(reg);
+    }
+
+    /** Whether {@code t} (or a cause) is a provider's 429 answer. */
+    private static boolean isRateLimited(Throwable t) {
+        for (Throwable cur = t; cur != null; cur = cur.getCause() == cur ? null : cur.getCause()) {
+            if (cur instanceof SdkServiceException s && s.statusCode() == 429) return true;
+            if (cur instanceof WebClientResponseException w && w.getStatusCode().value() == 429) return true;
+        }
+        return false;
+    }
+
+    private static Exception unwrap(Throwable t) {
+        if (t == null) return null;
+        Throwable cur = t;
+        while (cur instanceof CompletionException && cur.getCause() != null) cur = cur.getCause();
+        return cur instanceof Exception e ? e : new RuntimeException(cur);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        byte[] run() throws Exception;
+    }
 
-        log.info("TTS ROUTE → POLLY       plan={} voice={} fmt={} lang={}", plan, voice, format, language);
-        return polly.synthesize(plan, text, voice, engine, format, language);
+    @FunctionalInterface
+    private interface AsyncCall {
+        CompletableFuture<byte[]> start();
     }
 }
@@ -0,0 +1,46 @@
+package com.lexaro.api.tts;
+
+import com.lexaro.api.storage.StorageService;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for {@link LongFormSynthesizer}: "synthesizes" with {@link DevTtsService}
+ * and stores the result right away, but reports the task as running when it is submitted,
+ * so jobs still go through one park-and-reclaim cycle without an AWS account.
+ *
+ * <p>Tasks are kept in memory; after a restart they read as failed and the job resubmits.
+ */
+public class DevLongFormSynthesizer implements LongFormSynthesizer {
+
+    private final TtsService tts = new DevTtsService();
+    private final StorageService storage;
+    private final Map<String, Task> done = new ConcurrentHashMap<>();
+
+    public DevLongFormSynthesizer(StorageService storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public int maxBilledChars() {
+        return 100_000;
+    }
+
+    @Override
+    public Task start(String text, String voice, String engine, String format, String keyPrefix) throws Exception {
+        String id = UUID.randomUUID().toString();
+        boolean ogg = "ogg_vorbis".equals(format);
+        String key = keyPrefix + id + (ogg ? ".ogg" : ".mp3");
+        storage.put(key, tts.synthesize(null, text, voice, engine, format, null), ogg ? "audio/ogg" : "audio/mpeg");
+        done.put(id, new Task(id, State.SUCCEEDED, key, null));
+        return new Task(id, State.RUNNING, null, null);
+    }
+
+    @Override
+    public Task status(String taskId) {
+        Task t = done.get(taskId);
+        return t != null ? t : new Task(taskId, State.FAILED, null, "Unknown dev task (server restarted?)");
+    }
+}
@@ -0,0 +1,145 @@
+package com.lexaro.api.tts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pulls the base64 {@code audio_data} string out of a Speechify JSON response while it
+ * streams in and decodes it on the fly. Neither the JSON text nor the base64 String is
+ * ever held in memory, only the decoded audio.
+ *
+ * <p>This is not a JSON parser: it finds the first {@code "audio_data"} key, expects a
+ * string value, and ignores everything else. JSON-escaped slashes ({@code \/}) and
+ * escaped or literal line breaks inside the value are handled.
+ */
+final class JsonAudioDecoder {
+
+    private static final byte[] KEY = "\"audio_data\"".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] SEXTET = new int[256];
+
+    static {
+        Arrays.fill(SEXTET, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) SEXTET[alphabet.charAt(i)] = i;
+        SEXTET['-'] = 62; // URL-safe alphabet
+        SEXTET['_'] = 63;
+    }
+
+    private enum State { KEY, COLON, QUOTE, VALUE, DONE }
+
+    private State state = State.KEY;
+    private int matched;
+    private boolean escaped;
+    private boolean padded;
+    private int quad;
+    private int quadLen;
+
+    private byte[] out;
+    private int size;
+
+    JsonAudioDecoder() {
+        this(64 * 1024);
+    }
+
+    /** {@code expectedBytes}: initial capacity for the decoded audio. */
+    JsonAudioDecoder(int expectedBytes) {
+        this.out = new byte[Math.max(16, expectedBytes)];
+    }
+
+    void feed(byte[] b, int off, int len) {
+        for (int i = off, end = off + len; i < end && state != State.DONE; i++) {
+            byte c = b[i];
+            switch (state) {
+                case KEY -> {
+                    if (c == KEY[matched]) {
+                        if (++matched == KEY.length) state = State.COLON;
+                    } else {
+                        matched = c == KEY[0] ? 1 : 0;
+                    }
+                }
+                case COLON -> {
+                    if (c == ':') {
+                        state = State.QUOTE;
+                    } else if (!whitespace(c)) {
+                        // "audio_data" appeared as a value, not a key: keep looking.
+                        state = State.KEY;
+                        matched = c == KEY[0] ? 1 : 0;
+                    }
+                }
+                case QUOTE -> {
+                    if (c == '"') state = State.VALUE;
+                    else if (!whitespace(c)) throw new IllegalArgumentException("Speechify returned empty JSON or audio_data");
+                }
+                case VALUE -> value(c);
+                default -> { }
+            }
+        }
+    }
+
+    /** The decoded audio; fails if the response had no non-empty {@code audio_data} string. */
+    byte[] finish() {
+        if (state != State.DONE || size == 0) {
+            throw new IllegalArgumentException("Speechify returned empty JSON or audio_data");
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    private void value(byte c) {
+        if (escaped) {
+            escaped = false;
+            switch (c) {
+                case '/' -> sextet(c);
+                case 'n', 'r' -> { }
+                default -> throw invalid();
+            }
+            return;
+        }
+        switch (c) {
+            case '\\' -> escaped = true;
+            case '"' -> end();
+            case '=' -> padded = true;
+            case '\n', '\r', ' ' -> { }
+            default -> sextet(c);
+        }
+    }
+
+    private void sextet(byte c) {
+        int v = SEXTET[c & 0xFF];
+        if (v < 0 || padded) throw invalid();
+        quad = quad << 6 | v;
+        if (++quadLen == 4) {
+            ensure(3);
+            out[size++] = (byte) (quad >> 16);
+            out[size++] = (byte) (quad >> 8);
+            out[size++] = (byte) quad;
+            quad = 0;
+            quadLen = 0;
+        }
+    }
+
+    private void end() {
+        ensure(2);
+        switch (quadLen) {
+            case 0 -> { }
+            case 2 -> out[size++] = (byte) (quad >> 4);
+            case 3 -> {
+                out[size++] = (byte) (quad >> 10);
+                out[size++] = (byte) (quad >> 2);
+            }
+            default -> throw invalid();
+        }
+        state = State.DONE;
+    }
+
+    private void ensure(int n) {
+        if (size + n > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, size + n));
+    }
+
+    private static boolean whitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Speechify returned invalid base64 audio_data");
+    }
+}
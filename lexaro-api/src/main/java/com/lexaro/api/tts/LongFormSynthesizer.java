@@ -0,0 +1,33 @@
+package com.lexaro.api.tts;
+
+/**
+ * Provider-side synthesis for long documents: the text is submitted as a task, the
+ * provider writes the audio straight to the storage bucket, and the caller checks back
+ * later instead of holding a thread or the audio bytes.
+ *
+ * <p>Only the task id needs to survive between {@link #start} and {@link #status}, so a
+ * job can be parked in the {@code job} table while the provider works and be picked up
+ * again by any node.
+ */
+public interface LongFormSynthesizer {
+
+    enum State { RUNNING, SUCCEEDED, FAILED }
+
+    /**
+     * @param outputKey storage key of the finished audio, once {@link State#SUCCEEDED}
+     * @param error     provider's reason, once {@link State#FAILED}
+     */
+    record Task(String id, State state, String outputKey, String error) {}
+
+    /** Most billed characters one task accepts; longer text has to be split across tasks. */
+    int maxBilledChars();
+
+    /**
+     * Submits {@code text}; the provider stores the audio under {@code keyPrefix}.
+     * {@code format} is {@code mp3} or {@code ogg_vorbis}.
+     */
+    Task start(String text, String voice, String engine, String format, String keyPrefix) throws Exception;
+
+    /** Current state of a task returned by {@link #start}. */
+    Task status(String taskId) throws Exception;
+}
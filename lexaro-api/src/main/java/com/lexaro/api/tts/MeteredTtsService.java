@@ -0,0 +1,50 @@
+package com.lexaro.api.tts;
+
+import com.lexaro.api.domain.Plan;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records {@link TtsMetrics#recordSynthesis} for every request to one provider, sync or
+ * async. Speech marks are passed through unmeasured; they are billed and limited with the
+ * audio but are not audio throughput.
+ */
+public class MeteredTtsService implements TtsService {
+
+    private final String provider;
+    private final TtsService delegate;
+    private final TtsMetrics metrics;
+
+    public MeteredTtsService(String provider, TtsService delegate, TtsMetrics metrics) {
+        this.provider = provider;
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] synthesize(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        byte[] audio = null;
+        try {
+            audio = delegate.synthesize(plan, text, voice, engine, format, language);
+            ok = true;
+            return audio;
+        } finally {
+            metrics.recordSynthesis(provider, engine, plan, voice, text.length(), audio, System.nanoTime() - t0, ok);
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(Plan plan, String text, String voice, String engine, String format, String language) {
+        long t0 = System.nanoTime();
+        return delegate.synthesizeAsync(plan, text, voice, engine, format, language).whenComplete((audio, err) ->
+                metrics.recordSynthesis(provider, engine, plan, voice, text.length(), audio, System.nanoTime() - t0, err == null));
+    }
+
+    @Override
+    public List<SpeechMark> speechMarks(Plan plan, String text, String voice, String engine, String language) throws Exception {
+        return delegate.speechMarks(plan, text, voice, engine, language);
+    }
+}
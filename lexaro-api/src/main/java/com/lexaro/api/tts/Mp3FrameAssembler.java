@@ -0,0 +1,231 @@
+package com.lexaro.api.tts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MPEG audio Layer III joiner. Every chunk from a TTS provider is a complete MP3 file,
+ * usually with its own ID3v2 tag and a Xing/Info (LAME) or VBRI frame that describes only
+ * that chunk. Concatenating them verbatim leaves those tags mid-stream, so players report
+ * the first chunk's duration and seek against the wrong table.
+ *
+ * <p>Here each chunk is walked frame by frame: leading ID3v2 tags are skipped, the first
+ * frame is dropped if it is a VBR tag, and anything that does not parse as a frame (ID3v1,
+ * APE tags, junk) is skipped by re-syncing on the next valid header. The audio frames are
+ * spilled to a temp file and, on {@link #finish()}, a single Xing frame carrying the frame
+ * count, byte count and a 100-entry seek TOC is written ahead of them.
+ *
+ * <p>Frame offsets for the TOC are sampled into a fixed array whose stride doubles when it
+ * fills, so memory stays constant however long the document is.
+ */
+final class Mp3FrameAssembler extends AudioAssembler {
+
+    private static final int[] BITRATE_V1 = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] BITRATE_V2 = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+    /** Indexed by the 2-bit version field: 0 = MPEG 2.5, 2 = MPEG 2, 3 = MPEG 1. */
+    private static final int[][] SAMPLE_RATE = {
+            {11025, 12000, 8000}, null, {22050, 24000, 16000}, {44100, 48000, 32000}
+    };
+
+    /** Sync, version, layer and sample-rate bits; must match across the frames of a chunk. */
+    private static final int STREAM_MASK = 0xFFFE0C00;
+
+    private static final int MARKS = 1024;
+
+    private final Spill spill;
+
+    private int streamHeader;
+    private int firstBitrateIndex = -1;
+    private boolean vbr;
+    private long frames;
+    private long durationNanos;
+
+    private final long[] marks = new long[MARKS];
+    private int markCount;
+    private long stride = 1;
+
+    Mp3FrameAssembler(OutputStream out) throws IOException {
+        super(out);
+        this.spill = new Spill();
+    }
+
+    @Override
+    public void append(byte[] chunk) throws IOException {
+        if (chunk == null) return;
+        int end = chunk.length;
+        int pos = id3v2Length(chunk);
+        boolean locked = false;
+        boolean firstFrame = true;
+        // Chunks may differ in sample rate (a fallback provider's chunk), so frames are
+        // matched against their own chunk's stream, not the first chunk's.
+        int chunkHeader = 0;
+
+        while (pos + 4 <= end) {
+            int h = readInt(chunk, pos);
+            int len = frameLength(h);
+            boolean ok = len > 0 && pos + len <= end
+                    && (chunkHeader == 0 || (h & STREAM_MASK) == (chunkHeader & STREAM_MASK));
+            if (ok && !locked) {
+                // While searching for sync, demand a second header right after this one
+                // so a stray 0xFFE pattern in junk is not taken for a frame.
+                int next = pos + len;
+                ok = next == end
+                        || (next + 4 <= end && (readInt(chunk, next) & STREAM_MASK) == (h & STREAM_MASK)
+                        && frameLength(readInt(chunk, next)) > 0);
+            }
+            if (!ok) {
+                locked = false;
+                pos++;
+                continue;
+            }
+            locked = true;
+
+            if (firstFrame) {
+                firstFrame = false;
+                if (isVbrTag(chunk, pos, h, len)) {
+                    pos += len;
+                    continue;
+                }
+            }
+            if (chunkHeader == 0) chunkHeader = h;
+            writeFrame(chunk, pos, len, h);
+            pos += len;
+        }
+    }
+
+    @Override
+    public long durationMillis() {
+        return durationNanos / 1_000_000;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (frames == 0) return;
+        out.write(xingFrame());
+        spill.copyTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        spill.close();
+    }
+
+    private void writeFrame(byte[] chunk, int pos, int len, int h) throws IOException {
+        if (streamHeader == 0) streamHeader = h;
+
+        int bitrateIndex = (h >>> 12) & 0xF;
+        if (firstBitrateIndex < 0) firstBitrateIndex = bitrateIndex;
+        else if (bitrateIndex != firstBitrateIndex) vbr = true;
+        if ((h & STREAM_MASK) != (streamHeader & STREAM_MASK)) vbr = true;
+
+        if (frames % stride == 0) {
+            marks[markCount++] = audioBytes;
+            if (markCount == MARKS) {
+                for (int i = 0; i < MARKS / 2; i++) marks[i] = marks[i * 2];
+                markCount = MARKS / 2;
+                stride *= 2;
+            }
+        }
+
+        spill.write(chunk, pos, len);
+        frames++;
+        audioBytes += len;
+        int version = (h >>> 19) & 3;
+        durationNanos += (version == 3 ? 1152 : 576) * 1_000_000_000L / SAMPLE_RATE[version][(h >>> 10) & 3];
+    }
+
+    /**
+     * Builds a silent frame in the stream's own version/sample rate/channel mode holding a
+     * Xing (or, for constant bitrate, Info) tag with the frames, bytes and TOC fields.
+     */
+    private byte[] xingFrame() {
+        int h = (streamHeader | 0x00010000) & ~0x0000F200; // no CRC, no padding, bitrate cleared
+        int tagOffset = 4 + sideInfoLength(h);
+        int need = tagOffset + 4 + 4 + 4 + 4 + 100;
+
+        int len = -1;
+        for (int idx = 1; idx < 15; idx++) {
+            int candidate = h | (idx << 12);
+            int l = frameLength(candidate);
+            if (l >= need) {
+                h = candidate;
+                len = l;
+                break;
+            }
+        }
+        if (len < 0) throw new IllegalStateException("No bitrate fits a Xing frame");
+
+        byte[] f = new byte[len];
+        writeInt(f, 0, h);
+        int p = tagOffset;
+        System.arraycopy((vbr ? "Xing" : "Info").getBytes(StandardCharsets.US_ASCII), 0, f, p, 4);
+        writeInt(f, p + 4, 0x1 | 0x2 | 0x4); // frames, bytes, TOC
+        writeInt(f, p + 8, (int) Math.min(frames, 0xFFFFFFFFL));
+        long total = len + audioBytes;
+        writeInt(f, p + 12, (int) Math.min(total, 0xFFFFFFFFL));
+
+        for (int i = 0; i < 100; i++) {
+            long frame = frames * i / 100;
+            int mark = (int) Math.min(frame / stride, markCount - 1);
+            long offset = len + marks[mark];
+            f[p + 16 + i] = (byte) Math.min(255, offset * 256 / total);
+        }
+        return f;
+    }
+
+    private static boolean isVbrTag(byte[] b, int pos, int h, int len) {
+        int xing = pos + 4 + sideInfoLength(h);
+        if (xing + 4 <= pos + len && (matches(b, xing, "Xing") || matches(b, xing, "Info"))) return true;
+        int vbri = pos + 4 + 32;
+        return vbri + 4 <= pos + len && matches(b, vbri, "VBRI");
+    }
+
+    /** Layer III frame size in bytes, or -1 if {@code h} is not a usable Layer III header. */
+    static int frameLength(int h) {
+        if ((h & 0xFFE00000) != 0xFFE00000) return -1;
+        int version = (h >>> 19) & 3;
+        int layer = (h >>> 17) & 3;
+        int bitrateIndex = (h >>> 12) & 0xF;
+        int rateIndex = (h >>> 10) & 3;
+        if (version == 1 || layer != 1 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) return -1;
+
+        int bitrate = (version == 3 ? BITRATE_V1 : BITRATE_V2)[bitrateIndex] * 1000;
+        int sampleRate = SAMPLE_RATE[version][rateIndex];
+        int padding = (h >>> 9) & 1;
+        return (version == 3 ? 144 : 72) * bitrate / sampleRate + padding;
+    }
+
+    private static int sideInfoLength(int h) {
+        boolean mpeg1 = ((h >>> 19) & 3) == 3;
+        boolean mono = ((h >>> 6) & 3) == 3;
+        if (mpeg1) return mono ? 17 : 32;
+        return mono ? 9 : 17;
+    }
+
+    /** Length of a leading ID3v2 tag (header, body and optional footer), or 0. */
+    private static int id3v2Length(byte[] b) {
+        if (b.length < 10 || b[0] != 'I' || b[1] != 'D' || b[2] != '3') return 0;
+        int size = ((b[6] & 0x7F) << 21) | ((b[7] & 0x7F) << 14) | ((b[8] & 0x7F) << 7) | (b[9] & 0x7F);
+        int footer = (b[5] & 0x10) != 0 ? 10 : 0;
+        return Math.min(b.length, 10 + size + footer);
+    }
+
+    private static boolean matches(byte[] b, int pos, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (b[pos + i] != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] b, int pos) {
+        return ((b[pos] & 0xFF) << 24) | ((b[pos + 1] & 0xFF) << 16) | ((b[pos + 2] & 0xFF) << 8) | (b[pos + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] b, int pos, int v) {
+        b[pos] = (byte) (v >>> 24);
+        b[pos + 1] = (byte) (v >>> 16);
+        b[pos + 2] = (byte) (v >>> 8);
+        b[pos + 3] = (byte) v;
+    }
+}
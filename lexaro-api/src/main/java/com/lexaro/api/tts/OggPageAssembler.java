@@ -0,0 +1,201 @@
+package com.lexaro.api.tts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ogg (Vorbis or Opus) joiner. Each chunk is a complete logical stream: BOS page, codec
+ * header packets, audio pages with granule positions starting from zero, and an EOS page.
+ * Appending them verbatim yields an EOS page mid-file and a clock that jumps back to zero
+ * at every chunk boundary.
+ *
+ * <p>When a chunk's identification and setup headers match the first chunk's, its header
+ * pages are dropped and its audio pages are spliced into the first logical stream: serial
+ * number and page sequence are rewritten, granule positions are offset by the running
+ * total, BOS/EOS flags are cleared, and the CRC is recomputed. A chunk with different
+ * headers (another voice or sample rate) starts a new link of a chained stream instead,
+ * which is still a valid Ogg file.
+ *
+ * <p>Pages are written through as they are rewritten; only the most recent page is held
+ * back so {@link #finish()} can mark it EOS.
+ */
+final class OggPageAssembler extends AudioAssembler {
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int r = i << 24;
+            for (int k = 0; k < 8; k++) {
+                r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04C11DB7 : r << 1;
+            }
+            CRC_TABLE[i] = r;
+        }
+    }
+
+    private static final int FLAG_CONTINUED = 0x01;
+    private static final int FLAG_BOS = 0x02;
+    private static final int FLAG_EOS = 0x04;
+
+    /** Identification + setup header bytes of the current link (comment header excluded). */
+    private byte[] linkHeaders;
+    private int links;
+    private int serial;
+    private int sequence;
+    private long granuleBase;
+    /** Samples per second of the current link: Vorbis id header, or 48 kHz for Opus. */
+    private int sampleRate = 48000;
+    private long durationMicros;
+
+    private byte[] pending;
+
+    OggPageAssembler(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void append(byte[] chunk) throws IOException {
+        if (chunk == null) return;
+
+        List<byte[]> headerPages = new ArrayList<>();
+        ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        int headerPackets = -1;
+        int packet = 0;
+        long lastGranule = 0;
+
+        int pos = 0;
+        while (pos + 27 <= chunk.length) {
+            int len = pageLength(chunk, pos);
+            if (len < 0) {
+                pos++;
+                continue;
+            }
+            byte[] page = Arrays.copyOfRange(chunk, pos, pos + len);
+            pos += len;
+
+            if (headerPackets < 0 || packet < headerPackets) {
+                // Codec header pages: collect until the last header packet completes.
+                int segments = page[26] & 0xFF;
+                int body = 27 + segments;
+                if (headerPackets < 0) headerPackets = startsWith(page, body, "OpusHead") ? 2 : 3;
+                for (int s = 0; s < segments; s++) {
+                    int lace = page[27 + s] & 0xFF;
+                    if (packet != 1) headers.write(page, body, lace); // comment header may differ per chunk
+                    body += lace;
+                    if (lace < 255) packet++;
+                }
+                headerPages.add(page);
+                if (packet >= headerPackets) beginLink(headers.toByteArray(), headerPages);
+                continue;
+            }
+
+            long granule = readLong(page, 6);
+            if (granule != -1) {
+                lastGranule = granule;
+                granule += granuleBase;
+            }
+            audioBytes += len - 27 - (page[26] & 0xFF);
+            emit(page, granule, page[5] & FLAG_CONTINUED);
+        }
+
+        granuleBase += lastGranule;
+        durationMicros += lastGranule * 1_000_000 / sampleRate;
+    }
+
+    @Override
+    public long durationMillis() {
+        return durationMicros / 1000;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (pending == null) return;
+        pending[5] |= FLAG_EOS;
+        writeCrc(pending);
+        out.write(pending);
+        pending = null;
+    }
+
+    /** Starts a new link (writing its header pages) unless {@code headers} match the current one. */
+    private void beginLink(byte[] headers, List<byte[]> headerPages) throws IOException {
+        if (linkHeaders != null && Arrays.equals(linkHeaders, headers)) return;
+
+        finish();
+        linkHeaders = headers;
+        serial = links++ == 0 ? readInt(headerPages.get(0), 14) : serial + 1;
+        byte[] id = headerPages.get(0);
+        int body = 27 + (id[26] & 0xFF);
+        sampleRate = startsWith(id, body + 1, "vorbis") && body + 16 <= id.length ? readInt(id, body + 12) : 48000;
+        if (sampleRate <= 0) sampleRate = 48000;
+        sequence = 0;
+        granuleBase = 0;
+        for (int i = 0; i < headerPages.size(); i++) {
+            byte[] page = headerPages.get(i);
+            emit(page, readLong(page, 6), (i == 0 ? FLAG_BOS : 0) | (page[5] & FLAG_CONTINUED));
+        }
+    }
+
+    /** Rewrites serial, sequence, granule and flags, then queues the page for output. */
+    private void emit(byte[] page, long granule, int flags) throws IOException {
+        if (pending != null) out.write(pending);
+
+        page[5] = (byte) flags;
+        writeLong(page, 6, granule);
+        writeInt(page, 14, serial);
+        writeInt(page, 18, sequence++);
+        writeCrc(page);
+        pending = page;
+    }
+
+    /** Total length of a well-formed page at {@code pos}, or -1. */
+    private static int pageLength(byte[] b, int pos) {
+        if (!startsWith(b, pos, "OggS") || b[pos + 4] != 0) return -1;
+        int segments = b[pos + 26] & 0xFF;
+        int body = pos + 27 + segments;
+        if (body > b.length) return -1;
+        int len = 27 + segments;
+        for (int s = 0; s < segments; s++) len += b[pos + 27 + s] & 0xFF;
+        return pos + len <= b.length ? len : -1;
+    }
+
+    private static void writeCrc(byte[] page) {
+        writeInt(page, 22, 0);
+        int crc = 0;
+        for (byte b : page) {
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ b) & 0xFF];
+        }
+        writeInt(page, 22, crc);
+    }
+
+    private static boolean startsWith(byte[] b, int pos, String ascii) {
+        if (pos + ascii.length() > b.length) return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (b[pos + i] != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] b, int pos) {
+        return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8 | (b[pos + 2] & 0xFF) << 16 | (b[pos + 3] & 0xFF) << 24;
+    }
+
+    private static long readLong(byte[] b, int pos) {
+        return (readInt(b, pos) & 0xFFFFFFFFL) | (long) readInt(b, pos + 4) << 32;
+    }
+
+    private static void writeInt(byte[] b, int pos, int v) {
+        b[pos] = (byte) v;
+        b[pos + 1] = (byte) (v >>> 8);
+        b[pos + 2] = (byte) (v >>> 16);
+        b[pos + 3] = (byte) (v >>> 24);
+    }
+
+    private static void writeLong(byte[] b, int pos, long v) {
+        writeInt(b, pos, (int) v);
+        writeInt(b, pos + 4, (int) (v >>> 32));
+    }
+}
@@ -0,0 +1,110 @@
+package com.lexaro.api.tts;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Runs {@code n} indexed tasks with at most {@code window} in flight and hands their
+ * results to the caller strictly in index order.
+ *
+ * <p>The caller's thread consumes result {@code i} while tasks {@code i+1 .. i+window-1}
+ * are still running, and only submits task {@code i+window} once {@code i} has been
+ * consumed. Each caller therefore occupies at most {@code window} executor threads, so a
+ * shared executor stays fair between a huge job and many small ones. A window of 1
+ * degenerates to running the tasks inline, one after another.
+ */
+public final class OrderedFanout {
+    private OrderedFanout() {}
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(int index) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<T> {
+        void accept(int index, T result) throws Exception;
+    }
+
+    /**
+     * Starts a task that completes asynchronously, e.g. a non-blocking provider call. Throwing
+     * is the same as returning a failed future.
+     */
+    @FunctionalInterface
+    public interface AsyncTask<T> {
+        CompletableFuture<T> start(int index) throws Exception;
+    }
+
+    /**
+     * Runs {@code task(0) .. task(n-1)} and passes each result to {@code sink} in order.
+     * On the first failure the outstanding tasks are cancelled and the task's own exception
+     * is rethrown.
+     */
+    public static <T> void run(Executor executor, int n, int window, Task<T> task, Sink<T> sink) throws Exception {
+        if (window <= 1) {
+            for (int i = 0; i < n; i++) sink.accept(i, task.run(i));
+            return;
+        }
+        runAsync(n, window, idx -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run(idx);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor), sink);
+    }
+
+    /**
+     * Like {@link #run}, but each task starts its own work and returns a future, so the
+     * executor threads are not held while the work is in flight. Tasks are started on the
+     * caller's thread; at most {@code window} are outstanding.
+     */
+    public static <T> void runAsync(int n, int window, AsyncTask<T> task, Sink<T> sink) throws Exception {
+        int w = Math.max(1, window);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T>[] futures = new CompletableFuture[n];
+        int submitted = 0;
+        try {
+            for (int i = 0; i < n; i++) {
+                while (submitted < n && submitted < i + w) {
+                    final int idx = submitted++;
+                    futures[idx] = start(task, idx);
+                }
+                sink.accept(i, await(futures[i]));
+                futures[i] = null; // release the result once consumed
+            }
+        } catch (Exception e) {
+            for (int j = 0; j < submitted; j++) {
+                Future<T> f = futures[j];
+                if (f != null) f.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    private static <T> CompletableFuture<T> start(AsyncTask<T> task, int index) {
+        try {
+            CompletableFuture<T> f = task.start(index);
+            return f != null ? f : CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Chunk task cancelled", e);
+        }
+    }
+}
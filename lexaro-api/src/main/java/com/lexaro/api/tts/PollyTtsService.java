@@ -1,5 +1,7 @@
 package com.lexaro.api.tts;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lexaro.api.domain.Plan;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -7,19 +9,48 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.metrics.MetricPublisher;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.polly.PollyClient;
+import software.amazon.awssdk.services.polly.PollyAsyncClient;
 import software.amazon.awssdk.services.polly.model.*;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PollyTtsService implements TtsService {
 
     private static final Logger log = LoggerFactory.getLogger(PollyTtsService.class);
-    private final PollyClient polly;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+    /** Polly's billed-character limit for one speech synthesis task. */
+    private static final int TASK_MAX_BILLED_CHARS = 100_000;
+
+    private final PollyAsyncClient polly;
+
+    /** Voices that support NEURAL per DescribeVoices; null until loaded. */
+    private volatile Set<String> neuralVoices;
+    private final AtomicBoolean loadingVoices = new AtomicBoolean();
+    /** Voices a NEURAL request failed for with {@link EngineNotSupportedException}. */
+    private final Set<String> neuralUnsupported = ConcurrentHashMap.newKeySet();
 
     /* -------- voice normalization -------- */
     private static final Map<String, String> VOICE_CANON = buildVoiceCanon();
@@ -52,19 +83,36 @@ public class PollyTtsService implements TtsService {
     }
 
     /* -------- ctors -------- */
-    public PollyTtsService(PollyClient polly) {
+    public PollyTtsService(PollyAsyncClient polly) {
         this.polly = polly;
     }
 
     public PollyTtsService(String region) {
-        this.polly = PollyClient.builder()
-                .region(Region.of(region))
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
+        this(region, null, null, DEFAULT_MAX_CONNECTIONS);
     }
 
-    public PollyTtsService(String region, String accessKey, String secretKey) {
-        var b = PollyClient.builder().region(Region.of(region));
+    /**
+     * @param maxConnections size of the HTTP connection pool, i.e. the most Polly requests
+     *                       this node can have in flight; keep it at or above the Polly
+     *                       limiter's concurrency.
+     */
+    public PollyTtsService(String region, String accessKey, String secretKey, int maxConnections) {
+        this(region, accessKey, secretKey, maxConnections, null);
+    }
+
+    /** @param metrics receives the SDK's per-call metrics (e.g. retry counts); may be null */
+    public PollyTtsService(String region, String accessKey, String secretKey, int maxConnections,
+                           MetricPublisher metrics) {
+        var b = PollyAsyncClient.builder()
+                .region(Region.of(region))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(Math.max(1, maxConnections))
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(30)))
+                // Throttling and 5xx backoff with jitter, in the SDK instead of a sleeping thread.
+                .overrideConfiguration(o -> {
+                    o.retryPolicy(RetryMode.STANDARD);
+                    if (metrics != null) o.addMetricPublisher(metrics);
+                });
         if (notBlank(accessKey) && notBlank(secretKey)) {
             b.credentialsProvider(StaticCredentialsProvider.create(
                     AwsBasicCredentials.create(accessKey, secretKey)
@@ -83,6 +131,25 @@ public class PollyTtsService implements TtsService {
                              String engine,
                              String format,
                              String language) throws Exception {
+        return join(synthesizeAsync(plan, text, voice, engine, format, language));
+    }
+
+    /**
+     * Non-blocking. The response body streams into a single buffer that is handed over
+     * without a copy. The future completes on the SDK's response executor, not on an
+     * event-loop thread.
+     *
+     * <p>A voice known not to support NEURAL goes straight to STANDARD. Otherwise a failed
+     * NEURAL request is retried once as STANDARD, and an
+     * {@link EngineNotSupportedException} is remembered for that voice.
+     */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(Plan plan,
+                                                     String text,
+                                                     String voice,
+                                                     String engine,
+                                                     String format,
+                                                     String language) {
         // Polly derives language from the voice; `language` intentionally ignored.
 
         String resolvedVoice = canonicalVoice(voice);
@@ -91,30 +158,208 @@ public class PollyTtsService implements TtsService {
             resolvedVoice = "Joanna";
         }
 
-        Engine e = toEngine(engine);
-        OutputFormat f = toOutputFormat(format);
+        SynthesizeSpeechRequest req = SynthesizeSpeechRequest.builder()
+                .text(text)
+                .voiceId(VoiceId.fromValue(resolvedVoice))
+                .engine(engineFor(resolvedVoice, toEngine(engine)))
+                .outputFormat(toOutputFormat(format))
+                .build();
+        return withStandardFallback(resolvedVoice, req);
+    }
 
-        SynthesizeSpeechRequest.Builder rb = SynthesizeSpeechRequest.builder()
+    /**
+     * Requests sentence and word speech marks with the same voice/engine fallback as
+     * {@link #synthesize}. Polly reports UTF-8 byte offsets; they are mapped back to chars.
+     */
+    @Override
+    public List<SpeechMark> speechMarks(Plan plan,
+                                        String text,
+                                        String voice,
+                                        String engine,
+                                        String language) throws Exception {
+        String resolvedVoice = canonicalVoice(voice);
+        if (resolvedVoice == null) resolvedVoice = "Joanna";
+
+        SynthesizeSpeechRequest req = SynthesizeSpeechRequest.builder()
                 .text(text)
                 .voiceId(VoiceId.fromValue(resolvedVoice))
-                .engine(e)
-                .outputFormat(f);
+                .engine(engineFor(resolvedVoice, toEngine(engine)))
+                .outputFormat(OutputFormat.JSON)
+                .speechMarkTypes(SpeechMarkType.SENTENCE, SpeechMarkType.WORD)
+                .build();
+        return parseSpeechMarks(text, join(withStandardFallback(resolvedVoice, req)));
+    }
 
-        SynthesizeSpeechRequest req = rb.build();
+    private CompletableFuture<byte[]> withStandardFallback(String voice, SynthesizeSpeechRequest req) {
+        return send(req).exceptionallyCompose(err -> {
+            Throwable cause = unwrap(err);
+            if (req.engine() != Engine.NEURAL || !(cause instanceof PollyException ex)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            if (ex instanceof EngineNotSupportedException && neuralUnsupported.add(voice)) {
+                log.info("Polly voice '{}' does not support NEURAL; using STANDARD from now on", voice);
+            }
+            log.warn("Polly NEURAL failed for voice '{}': {} — retrying STANDARD",
+                    voice,
+                    ex.awsErrorDetails() != null ? ex.awsErrorDetails().errorMessage() : ex.toString());
+            return send(req.toBuilder().engine(Engine.STANDARD).build());
+        });
+    }
 
-        try {
-            return PollyRetry.runWithRetry(() -> polly.synthesizeSpeechAsBytes(req).asByteArray());
-        } catch (PollyException ex) {
-            // If NEURAL fails (voice not supported), fall back to STANDARD
-            if (e == Engine.NEURAL) {
-                log.warn("Polly NEURAL failed for voice '{}': {} — retrying STANDARD",
-                        resolvedVoice,
-                        ex.awsErrorDetails() != null ? ex.awsErrorDetails().errorMessage() : ex.toString());
-                SynthesizeSpeechRequest fallbackReq = rb.engine(Engine.STANDARD).build();
-                return PollyRetry.runWithRetry(() -> polly.synthesizeSpeechAsBytes(fallbackReq).asByteArray());
+    private CompletableFuture<byte[]> send(SynthesizeSpeechRequest req) {
+        return polly.synthesizeSpeech(req, AsyncResponseTransformer.toBytes())
+                .thenApply(ResponseBytes::asByteArrayUnsafe);
+    }
+
+    /**
+     * STANDARD when NEURAL is requested for a voice known not to support it. Support comes
+     * from one DescribeVoices call, started on the first NEURAL request, plus what failed
+     * requests have taught. Until that call returns, NEURAL is attempted.
+     */
+    private Engine engineFor(String voice, Engine requested) {
+        if (requested != Engine.NEURAL) return requested;
+        if (neuralUnsupported.contains(voice)) return Engine.STANDARD;
+        Set<String> known = neuralVoices;
+        if (known == null) {
+            loadNeuralVoices();
+            return requested;
+        }
+        return known.contains(voice) ? requested : Engine.STANDARD;
+    }
+
+    private void loadNeuralVoices() {
+        if (!loadingVoices.compareAndSet(false, true)) return;
+        polly.describeVoices(DescribeVoicesRequest.builder().engine(Engine.NEURAL).build())
+                .whenComplete((resp, err) -> {
+                    if (err != null) {
+                        log.debug("Polly DescribeVoices failed; engine support is learned from errors: {}", err.toString());
+                        return;
+                    }
+                    Set<String> ids = new HashSet<>();
+                    for (Voice v : resp.voices()) {
+                        if (v.supportedEngines().contains(Engine.NEURAL)) ids.add(v.idAsString());
+                    }
+                    neuralVoices = Set.copyOf(ids);
+                    log.info("Polly NEURAL voices loaded: {}", ids.size());
+                });
+    }
+
+    /* -------- long-form (speech synthesis tasks) -------- */
+
+    /**
+     * Long-form mode: {@code StartSpeechSynthesisTask} writes the audio into {@code bucket}
+     * itself, so none of it passes through this JVM. The bucket must be writable by Polly
+     * in this client's region. Engine selection follows {@link #synthesizeAsync}, except
+     * that a voice rejecting NEURAL is only detected when the task is submitted.
+     */
+    public LongFormSynthesizer longForm(String bucket) {
+        return new LongFormSynthesizer() {
+            @Override
+            public int maxBilledChars() {
+                return TASK_MAX_BILLED_CHARS;
+            }
+
+            @Override
+            public Task start(String text, String voice, String engine, String format, String keyPrefix) throws Exception {
+                String resolvedVoice = canonicalVoice(voice);
+                if (resolvedVoice == null) resolvedVoice = "Joanna";
+
+                StartSpeechSynthesisTaskRequest req = StartSpeechSynthesisTaskRequest.builder()
+                        .text(text)
+                        .voiceId(VoiceId.fromValue(resolvedVoice))
+                        .engine(engineFor(resolvedVoice, toEngine(engine)))
+                        .outputFormat(toOutputFormat(format))
+                        .outputS3BucketName(bucket)
+                        .outputS3KeyPrefix(keyPrefix)
+                        .build();
+                try {
+                    return toTask(join(polly.startSpeechSynthesisTask(req)).synthesisTask(), bucket);
+                } catch (PollyException ex) {
+                    if (req.engine() != Engine.NEURAL) throw ex;
+                    if (ex instanceof EngineNotSupportedException && neuralUnsupported.add(resolvedVoice)) {
+                        log.info("Polly voice '{}' does not support NEURAL; using STANDARD from now on", resolvedVoice);
+                    }
+                    log.warn("Polly NEURAL task rejected for voice '{}': {} — submitting STANDARD", resolvedVoice, ex.toString());
+                    req = req.toBuilder().engine(Engine.STANDARD).build();
+                    return toTask(join(polly.startSpeechSynthesisTask(req)).synthesisTask(), bucket);
+                }
             }
-            throw ex;
+
+            @Override
+            public Task status(String taskId) throws Exception {
+                return toTask(join(polly.getSpeechSynthesisTask(b -> b.taskId(taskId))).synthesisTask(), bucket);
+            }
+        };
+    }
+
+    private static LongFormSynthesizer.Task toTask(SynthesisTask t, String bucket) {
+        LongFormSynthesizer.State state = switch (t.taskStatus()) {
+            case COMPLETED -> LongFormSynthesizer.State.SUCCEEDED;
+            case FAILED -> LongFormSynthesizer.State.FAILED;
+            default -> LongFormSynthesizer.State.RUNNING;
+        };
+        String key = state == LongFormSynthesizer.State.SUCCEEDED ? outputKey(t.outputUri(), bucket) : null;
+        return new LongFormSynthesizer.Task(t.taskId(), state, key, t.taskStatusReason());
+    }
+
+    /** Object key from a task's S3 URL, which may be path-style or virtual-hosted. */
+    static String outputKey(String outputUri, String bucket) {
+        String path = URI.create(outputUri).getPath();
+        if (path.startsWith("/")) path = path.substring(1);
+        return path.startsWith(bucket + "/") ? path.substring(bucket.length() + 1) : path;
+    }
+
+    /** Waits for {@code f}, rethrowing the provider's own exception rather than a wrapper. */
+    private static <T> T join(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        Throwable cur = t;
+        while (cur instanceof CompletionException && cur.getCause() != null) cur = cur.getCause();
+        return cur;
+    }
+
+    /** Parses Polly's newline-delimited speech mark JSON, keeping sentence and word marks. */
+    static List<SpeechMark> parseSpeechMarks(String text, byte[] json) throws IOException {
+        int[] byteToChar = byteToCharIndex(text);
+        List<SpeechMark> out = new ArrayList<>();
+        for (String line : new String(json, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) continue;
+            JsonNode n = JSON.readTree(line);
+            SpeechMark.Type type = switch (n.path("type").asText()) {
+                case "sentence" -> SpeechMark.Type.SENTENCE;
+                case "word" -> SpeechMark.Type.WORD;
+                default -> null;
+            };
+            if (type == null) continue;
+            int start = byteToChar[Math.min(Math.max(0, n.path("start").asInt()), byteToChar.length - 1)];
+            int end = byteToChar[Math.min(Math.max(0, n.path("end").asInt()), byteToChar.length - 1)];
+            out.add(new SpeechMark(type, n.path("time").asLong(), start, Math.max(start, end)));
+        }
+        return out;
+    }
+
+    /** For each UTF-8 byte offset of {@code text} (inclusive of the end), the char offset it falls in. */
+    private static int[] byteToCharIndex(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        int[] map = new int[utf8.length + 1];
+        int b = 0;
+        for (int c = 0; c < text.length(); ) {
+            int cp = text.codePointAt(c);
+            int n = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            for (int k = 0; k < n && b < utf8.length; k++) map[b++] = c;
+            c += Character.charCount(cp);
         }
+        map[utf8.length] = text.length();
+        return map;
     }
 
     /* -------- lifecycle -------- */
@@ -0,0 +1,81 @@
+package com.lexaro.api.tts;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Cluster-wide token bucket for one provider account, kept in one
+ * {@code tts_provider_bucket} row so all nodes share the provider's request rate.
+ *
+ * <p>A take is a single upsert that refills the row by the elapsed time, clamps it to the
+ * burst size, and spends one token only if one is available. If none is, the caller sleeps
+ * for about one token's worth of time and tries again. Within a node,
+ * {@link ProviderLimiter} already serializes takers, so each node has at most one poller
+ * per provider.
+ *
+ * <p>If the database is unreachable, the node falls back to its {@code local} bucket rather
+ * than stopping synthesis.
+ */
+@Slf4j
+public final class PostgresTokenBucket implements ProviderLimiter.RateSource {
+
+    private static final String TAKE = """
+            INSERT INTO tts_provider_bucket AS b (provider, tokens, updated_at)
+            VALUES (?, ?::float8 - 1, clock_timestamp())
+            ON CONFLICT (provider) DO UPDATE
+               SET tokens = LEAST(?::float8, b.tokens + EXTRACT(EPOCH FROM (clock_timestamp() - b.updated_at))::float8 * ?) - 1,
+                   updated_at = clock_timestamp()
+             WHERE LEAST(?::float8, b.tokens + EXTRACT(EPOCH FROM (clock_timestamp() - b.updated_at))::float8 * ?) >= 1
+            RETURNING tokens
+            """;
+
+    private static final String DRAIN =
+            "update tts_provider_bucket set tokens = 0, updated_at = clock_timestamp() where provider = ?";
+
+    private final JdbcTemplate jdbc;
+    private final String provider;
+    private final double perSecond;
+    private final double burst;
+    private final long retryMillis;
+    private final ProviderLimiter.RateSource local;
+
+    public PostgresTokenBucket(JdbcTemplate jdbc, String provider, double perSecond, int burst,
+                               ProviderLimiter.RateSource local) {
+        this.jdbc = jdbc;
+        this.provider = provider;
+        this.perSecond = perSecond;
+        this.burst = Math.max(1, burst);
+        this.retryMillis = Math.max(10, Math.round(1000 / perSecond));
+        this.local = local;
+    }
+
+    @Override
+    public void take() throws InterruptedException {
+        while (true) {
+            List<Double> left;
+            try {
+                left = jdbc.queryForList(TAKE, Double.class,
+                        provider, burst, burst, perSecond, burst, perSecond);
+            } catch (DataAccessException e) {
+                log.debug("Shared TTS rate bucket unavailable for {}, using local bucket: {}", provider, e.getMessage());
+                local.take();
+                return;
+            }
+            if (!left.isEmpty()) return;
+            Thread.sleep(retryMillis);
+        }
+    }
+
+    @Override
+    public void drain() {
+        try {
+            jdbc.update(DRAIN, provider);
+        } catch (DataAccessException e) {
+            log.debug("Shared TTS rate bucket drain failed for {}: {}", provider, e.getMessage());
+        }
+        local.drain();
+    }
+}
@@ -0,0 +1,179 @@
+package com.lexaro.api.tts;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Circuit breaker for one TTS provider, driven by a rolling window of its most recent
+ * calls (at most {@link Settings#window()} of them, none older than
+ * {@link Settings#maxAge()}).
+ *
+ * <p>The breaker opens when the window holds at least {@link Settings#minCalls()} calls and
+ * either the failure rate or the slow-call rate (calls over {@link Settings#slowCall()})
+ * reaches its threshold. While open, {@link #tryAcquire()} refuses calls so the router goes
+ * straight to its fallback. After {@link Settings#openFor()} it lets
+ * {@link Settings#halfOpenCalls()} trial calls through: all of them healthy closes it, any
+ * failed or slow one opens it again.
+ *
+ * <p>The same window yields the latency percentile the router hedges against. Calls last
+ * seconds, so a synchronized ring buffer is cheaper than anything cleverer.
+ */
+@Slf4j
+public final class ProviderCircuitBreaker {
+
+    /** Ordered so the ordinal can be exported as a gauge: 0 closed, 1 half-open, 2 open. */
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    public record Settings(int window,
+                           int minCalls,
+                           double failureRate,
+                           double slowRate,
+                           Duration slowCall,
+                           Duration maxAge,
+                           Duration openFor,
+                           int halfOpenCalls) {
+        public Settings {
+            window = Math.max(1, window);
+            minCalls = Math.max(1, Math.min(minCalls, window));
+            halfOpenCalls = Math.max(1, halfOpenCalls);
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+
+    private final long[] at;
+    private final long[] latency;
+    private final boolean[] failed;
+    private int next;
+    private int size;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsLeft;
+    private int trialsOk;
+
+    public ProviderCircuitBreaker(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.at = new long[settings.window()];
+        this.latency = new long[settings.window()];
+        this.failed = new boolean[settings.window()];
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Whether a call may go to the provider now. A granted half-open trial must be reported
+     * back through {@link #onSuccess}, {@link #onFailure} or, if the call never went out,
+     * {@link #release}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < settings.openFor().toNanos()) return false;
+                transition(State.HALF_OPEN);
+                trialsLeft = settings.halfOpenCalls();
+                trialsOk = 0;
+                // fall through
+            default:
+                if (trialsLeft <= 0) return false;
+                trialsLeft--;
+                return true;
+        }
+    }
+
+    /**
+     * Returns a call {@link #tryAcquire} granted but that never reached the provider (the
+     * caller gave up while waiting for the limiter). A half-open trial goes back to the pool
+     * so the breaker does not stay half-open with no trial left to decide it.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) trialsLeft = Math.min(settings.halfOpenCalls(), trialsLeft + 1);
+    }
+
+    public synchronized void onSuccess(long nanos) {
+        record(nanos, false);
+    }
+
+    public synchronized void onFailure(long nanos) {
+        record(nanos, true);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Latency percentile ({@code 0 < q <= 1}) of the calls in the window, in ms, or -1 while
+     * the window holds fewer than {@link Settings#minCalls()} calls.
+     */
+    public synchronized long percentileMillis(double q) {
+        long now = System.nanoTime();
+        long[] live = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (fresh(i, now)) live[n++] = latency[i];
+        }
+        if (n < settings.minCalls()) return -1;
+        Arrays.sort(live, 0, n);
+        int idx = (int) Math.ceil(q * n) - 1;
+        return live[Math.max(0, Math.min(n - 1, idx))] / 1_000_000;
+    }
+
+    private void record(long nanos, boolean failure) {
+        boolean slow = nanos >= settings.slowCall().toNanos();
+
+        if (state == State.HALF_OPEN) {
+            if (failure || slow) {
+                trip();
+            } else if (++trialsOk >= settings.halfOpenCalls()) {
+                size = 0;
+                next = 0;
+                transition(State.CLOSED);
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        at[next] = now;
+        latency[next] = nanos;
+        failed[next] = failure;
+        next = (next + 1) % at.length;
+        if (size < at.length) size++;
+
+        if (state != State.CLOSED) return;
+        int calls = 0, failures = 0, slowCalls = 0;
+        for (int i = 0; i < size; i++) {
+            if (!fresh(i, now)) continue;
+            calls++;
+            if (failed[i]) failures++;
+            else if (latency[i] >= settings.slowCall().toNanos()) slowCalls++;
+        }
+        if (calls < settings.minCalls()) return;
+        if (failures >= settings.failureRate() * calls || slowCalls >= settings.slowRate() * calls) {
+            log.warn("TTS breaker {} opening: {} failed and {} slow of the last {} calls", name, failures, slowCalls, calls);
+            trip();
+        }
+    }
+
+    private boolean fresh(int i, long now) {
+        return now - at[i] <= settings.maxAge().toNanos();
+    }
+
+    private void trip() {
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        if (state != to) log.info("TTS breaker {}: {} -> {}", name, state, to);
+        state = to;
+    }
+}
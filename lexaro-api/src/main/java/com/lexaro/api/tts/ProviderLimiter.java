@@ -0,0 +1,139 @@
+package com.lexaro.api.tts;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for one provider account, shared by every job on this node: at most
+ * {@code concurrency} calls in flight, and no faster than its {@link RateSource} allows.
+ *
+ * <p>Callers queue instead of colliding: the concurrency slots are a fair semaphore, and
+ * the slot holders then take rate tokens one at a time under a fair lock, so calls are
+ * admitted in arrival order whatever the mix of jobs. A 429 from the provider
+ * ({@link #onRejected()}) empties the bucket, so everyone queued backs off together instead
+ * of each burning its own retries.
+ *
+ * <p>Meters: {@code tts.provider.limiter.wait{provider}} (time from request to admission),
+ * {@code tts.provider.limiter.throttled{provider}} (calls that had to wait),
+ * {@code tts.provider.limiter.queued{provider}}, {@code tts.provider.limiter.in_flight{provider}}
+ * and {@code tts.provider.rejected{provider}} (429s the provider still returned).
+ */
+public final class ProviderLimiter {
+
+    /** Waits shorter than this are scheduling noise, not throttling. */
+    private static final long THROTTLED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Hands out one request's worth of rate, blocking until it is available. */
+    public interface RateSource {
+        void take() throws InterruptedException;
+
+        /** Drops whatever is left in the bucket after the provider pushed back. */
+        default void drain() {}
+    }
+
+    /** A granted call; closing it frees the concurrency slot. */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Semaphore slots;
+    private final ReentrantLock rateTurn = new ReentrantLock(true);
+    private final RateSource rate;
+
+    private final Timer wait;
+    private final Counter throttled;
+    private final Counter rejected;
+
+    public ProviderLimiter(String provider, int concurrency, RateSource rate, MeterRegistry reg) {
+        int max = Math.max(1, concurrency);
+        this.slots = new Semaphore(max, true);
+        this.rate = rate;
+
+        this.wait = Timer.builder("tts.provider.limiter.wait")
+                .description("Time a provider call waited for a concurrency slot and a rate token")
+                .tag("provider", provider)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(reg);
+        this.throttled = Counter.builder("tts.provider.limiter.throttled")
+                .description("Provider calls delayed by the limiter")
+                .tag("provider", provider).register(reg);
+        this.rejected = Counter.builder("tts.provider.rejected")
+                .description("Provider calls answered with 429 despite the limiter")
+                .tag("provider", provider).register(reg);
+        Gauge.builder("tts.provider.limiter.queued", this, l -> l.slots.getQueueLength() + l.rateTurn.getQueueLength())
+                .description("Provider calls waiting for admission")
+                .tag("provider", provider).register(reg);
+        Gauge.builder("tts.provider.limiter.in_flight", slots, s -> max - s.availablePermits())
+                .description("Provider calls holding a concurrency slot")
+                .tag("provider", provider).register(reg);
+    }
+
+    /** Blocks until the call may go out, in arrival order. */
+    public Permit acquire() throws InterruptedException {
+        long t0 = System.nanoTime();
+        slots.acquire();
+        try {
+            rateTurn.lockInterruptibly();
+            try {
+                rate.take();
+            } finally {
+                rateTurn.unlock();
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - t0;
+        wait.record(waited, TimeUnit.NANOSECONDS);
+        if (waited >= THROTTLED_NANOS) throttled.increment();
+        return slots::release;
+    }
+
+    /** The provider answered 429 anyway: count it and make queued callers back off. */
+    public void onRejected() {
+        rejected.increment();
+        rate.drain();
+    }
+
+    /** Rate source that never waits. */
+    public static RateSource unlimited() {
+        return () -> {};
+    }
+
+    /**
+     * Node-local token bucket: {@code perSecond} requests per second on average, bursts of up
+     * to {@code burst}. A non-positive rate means {@link #unlimited()}.
+     */
+    public static RateSource localBucket(double perSecond, int burst) {
+        if (perSecond <= 0) return unlimited();
+        // Refill per minute so fractional rates (e.g. 0.5/s) are representable; greedy refill
+        // still spreads the tokens evenly over the minute.
+        long perMinute = Math.max(1, Math.round(perSecond * 60));
+        Bucket bucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(Math.max(1, burst), Refill.greedy(perMinute, Duration.ofMinutes(1))))
+                .build();
+        return new RateSource() {
+            @Override
+            public void take() throws InterruptedException {
+                bucket.asBlocking().consume(1);
+            }
+
+            @Override
+            public void drain() {
+                bucket.tryConsumeAsMuchAsPossible();
+            }
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.lexaro.api.tts;
+
+/**
+ * One read-along timing: the audio position where a sentence or word starts, and the
+ * character span {@code [start, end)} it covers in the synthesized text.
+ */
+public record SpeechMark(Type type, long timeMs, int start, int end) {
+
+    public enum Type { WORD, SENTENCE }
+
+    public SpeechMark shift(long deltaMs, int deltaChars) {
+        return new SpeechMark(type, timeMs + deltaMs, start + deltaChars, end + deltaChars);
+    }
+}
@@ -0,0 +1,218 @@
+package com.lexaro.api.tts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary read-along index stored next to a document's audio ({@link #sidecarKey}).
+ *
+ * <p>Layout (big-endian):
+ * <pre>
+ *   header     magic "LXSM", version, mark count, block count, block bytes   (20 bytes)
+ *   directory  per block: first timeMs, first char start, block offset      (12 bytes each)
+ *   blocks     {@value #BLOCK} marks each, as varints:
+ *                (timeDelta &lt;&lt; 1 | sentence), zigzag(startDelta), end - start
+ * </pre>
+ * Deltas in each block are taken from the block's directory entry, so any block decodes on
+ * its own. Marks are in time order and, because the text is read front to back, in char
+ * order too, so both can be binary-searched in the directory. A range lookup reads the
+ * header, the directory and only the blocks it needs, typically a few hundred bytes each.
+ */
+public final class SpeechMarkIndex {
+
+    private static final int MAGIC = 0x4C58534D; // "LXSM"
+    private static final int VERSION = 1;
+    private static final int HEADER = 20;
+    private static final int DIR_ENTRY = 12;
+    static final int BLOCK = 256;
+
+    private SpeechMarkIndex() {}
+
+    /** {@code aud/u/1/2/x.mp3} → {@code aud/u/1/2/x.marks}. */
+    public static String sidecarKey(String audioObjectKey) {
+        int slash = audioObjectKey.lastIndexOf('/');
+        int dot = audioObjectKey.lastIndexOf('.');
+        String base = dot > slash ? audioObjectKey.substring(0, dot) : audioObjectKey;
+        return base + ".marks";
+    }
+
+    /** Reads {@code length} bytes at {@code offset} of the stored index. */
+    @FunctionalInterface
+    public interface RangeReader {
+        byte[] read(long offset, int length) throws Exception;
+    }
+
+    public enum Axis { TIME, CHARS }
+
+    /**
+     * Marks whose time ({@link Axis#TIME}, ms) or start offset ({@link Axis#CHARS}) is in
+     * {@code [from, to)}, in order, at most {@code limit} of them.
+     */
+    public static List<SpeechMark> read(RangeReader reader, Axis axis, long from, long to, int limit) throws Exception {
+        ByteBuffer header = ByteBuffer.wrap(reader.read(0, HEADER));
+        if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a speech mark index");
+        }
+        int count = header.getInt();
+        int blocks = header.getInt();
+        int blockBytes = header.getInt();
+        List<SpeechMark> out = new ArrayList<>();
+        if (count == 0 || from >= to || limit <= 0) return out;
+
+        ByteBuffer dir = ByteBuffer.wrap(reader.read(HEADER, blocks * DIR_ENTRY));
+        int key = axis == Axis.TIME ? 0 : 4;
+        // A block may open with a key equal to the end of the previous one, so start from
+        // the last block that begins strictly before `from`.
+        int first = Math.max(0, lastBlockAtOrBefore(dir, blocks, key, from - 1));
+        int last = lastBlockAtOrBefore(dir, blocks, key, to - 1);
+        if (last < first) return out;
+
+        long dataStart = HEADER + (long) blocks * DIR_ENTRY;
+        int begin = dir.getInt(first * DIR_ENTRY + 8);
+        int end = last + 1 < blocks ? dir.getInt((last + 1) * DIR_ENTRY + 8) : blockBytes;
+        ByteBuffer data = ByteBuffer.wrap(reader.read(dataStart + begin, end - begin));
+
+        for (int b = first; b <= last; b++) {
+            long time = dir.getInt(b * DIR_ENTRY) & 0xFFFFFFFFL;
+            int start = dir.getInt(b * DIR_ENTRY + 4);
+            int n = b + 1 < blocks ? BLOCK : count - BLOCK * (blocks - 1);
+            for (int i = 0; i < n; i++) {
+                long head = readVarint(data);
+                time += head >>> 1;
+                long zz = readVarint(data);
+                start += (int) ((zz >>> 1) ^ -(zz & 1));
+                int len = (int) readVarint(data);
+
+                long k = axis == Axis.TIME ? time : start;
+                if (k >= to) return out;
+                if (k < from) continue;
+                SpeechMark.Type type = (head & 1) != 0 ? SpeechMark.Type.SENTENCE : SpeechMark.Type.WORD;
+                out.add(new SpeechMark(type, time, start, start + len));
+                if (out.size() >= limit) return out;
+            }
+        }
+        return out;
+    }
+
+    /** A whole index of {@code marks}, in memory; for small sets such as one chunk's. */
+    public static byte[] encode(List<SpeechMark> marks) throws IOException {
+        try (Writer w = new Writer(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (SpeechMark m : marks) w.add(m);
+            w.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    /** Every mark of an index held in memory, in order. */
+    public static List<SpeechMark> decode(byte[] index) throws Exception {
+        return read((offset, length) -> Arrays.copyOfRange(index, (int) offset, (int) offset + length),
+                Axis.TIME, 0, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /** Index of the last block whose first key is {@code <= value}, or -1. */
+    private static int lastBlockAtOrBefore(ByteBuffer dir, int blocks, int keyOffset, long value) {
+        int lo = 0, hi = blocks - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = dir.getInt(mid * DIR_ENTRY + keyOffset) & 0xFFFFFFFFL;
+            if (k <= value) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+    }
+
+    /**
+     * Accepts marks in order and encodes blocks into a temp file as they fill; only the
+     * directory is kept in memory.
+     */
+    public static final class Writer implements Closeable {
+        private final AudioAssembler.Spill spill;
+        private final byte[] scratch = new byte[30];
+
+        private int[] dir = new int[3 * 64]; // (time, start, offset) per block
+        private int count;
+        private int blockBytes;
+        private long prevTime;
+        private int prevStart;
+
+        public Writer() throws IOException {
+            this.spill = new AudioAssembler.Spill();
+        }
+
+        public void add(SpeechMark m) throws IOException {
+            // Providers report marks in order; clamp so a stray regression cannot break deltas.
+            long time = Math.max(m.timeMs(), prevTime);
+            int start = Math.max(0, m.start());
+            int len = Math.max(0, m.end() - start);
+
+            if (count % BLOCK == 0) {
+                int b = count / BLOCK;
+                if ((b + 1) * 3 > dir.length) dir = Arrays.copyOf(dir, dir.length * 2);
+                dir[b * 3] = (int) time;
+                dir[b * 3 + 1] = start;
+                dir[b * 3 + 2] = blockBytes;
+                prevTime = time;
+                prevStart = start;
+            }
+
+            int p = 0;
+            p = writeVarint(scratch, p, (time - prevTime) << 1 | (m.type() == SpeechMark.Type.SENTENCE ? 1 : 0));
+            int delta = start - prevStart;
+            p = writeVarint(scratch, p, ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+            p = writeVarint(scratch, p, len);
+            spill.write(scratch, 0, p);
+
+            blockBytes += p;
+            prevTime = time;
+            prevStart = start;
+            count++;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /** Writes the finished index; the stream is left open. */
+        public void writeTo(OutputStream out) throws IOException {
+            int blocks = (count + BLOCK - 1) / BLOCK;
+            ByteBuffer head = ByteBuffer.allocate(HEADER + blocks * DIR_ENTRY);
+            head.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(blocks).putInt(blockBytes);
+            for (int i = 0; i < blocks * 3; i++) head.putInt(dir[i]);
+            out.write(head.array());
+            spill.copyTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            spill.close();
+        }
+
+        private static int writeVarint(byte[] b, int p, long v) {
+            while ((v & ~0x7FL) != 0) {
+                b[p++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            b[p++] = (byte) v;
+            return p;
+        }
+    }
+}
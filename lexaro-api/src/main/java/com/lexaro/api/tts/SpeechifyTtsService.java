@@ -2,20 +2,26 @@ package com.lexaro.api.tts;
 
 import com.lexaro.api.domain.Plan;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
-import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @RequiredArgsConstructor
 public class SpeechifyTtsService implements TtsService {
 
@@ -24,6 +30,9 @@ public class SpeechifyTtsService implements TtsService {
     private final WebClient client;
     private final Duration timeout;
     private final String defaultVoice;
+    private final Duration reprobeEvery;
+    /** Called before each transient-failure retry, for {@code tts.provider.retries}. */
+    private final Runnable onRetry;
 
     private static final List<String> PATHS = List.of(
             "/v1/audio/speech",
@@ -31,6 +40,10 @@ public class SpeechifyTtsService implements TtsService {
             "/v1/tts"
     );
 
+    /** Path that last produced audio, tried first until {@link #reprobeEvery} has passed. */
+    private volatile String endpoint;
+    private volatile long endpointSince;
+
     @Override
     public byte[] synthesize(Plan plan,
                              String text,
@@ -38,45 +51,98 @@ public class SpeechifyTtsService implements TtsService {
                              String engine,
                              String format,
                              String language) {
+        return synthesizeMono(text, voice, engine, format, language).block();
+    }
+
+    /**
+     * Non-blocking: no thread waits for Speechify. The future completes on a
+     * bounded-elastic thread, so dependent stages may block (cache and checkpoint writes)
+     * without stalling the HTTP event loop.
+     */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(Plan plan,
+                                                     String text,
+                                                     String voice,
+                                                     String engine,
+                                                     String format,
+                                                     String language) {
+        return synthesizeMono(text, voice, engine, format, language)
+                .publishOn(Schedulers.boundedElastic())
+                .toFuture();
+    }
 
+    public Mono<byte[]> synthesizeMono(String text,
+                                       String voice,
+                                       String engine,
+                                       String format,
+                                       String language) {
         final String voiceId = isBlank(voice) ? defaultVoice : voice.trim();
         final String fmt = isBlank(format) ? "mp3" : format.trim().toLowerCase();
 
-        RuntimeException last404or405 = null;
-        List<String> tried = new ArrayList<>();
-
-        for (String path : PATHS) {
-            final String uri = joinUrl(baseUrl, path);
-            tried.add(uri);
-
-            try {
-                if ("/v1/audio/speech".equals(path)) {
-                    return callModern(uri, text, voiceId, fmt);
-                } else {
-                    return callLegacy(uri, text, voiceId, fmt, engine, language);
-                }
-            } catch (WebClientResponseException wce) {
-                int code = wce.getStatusCode().value();
-                if (code == 404 || code == 405) {
-                    last404or405 = rewrap(code + " at " + uri + " (voice_id=" + voiceId + ")", wce);
-                    continue;
-                }
-                String body = trimForLog(wce.getResponseBodyAsString(StandardCharsets.UTF_8), 800);
-                throw rewrap("Speechify TTS failed: HTTP " + code + (isBlank(body) ? "" : " – " + body), wce);
+        Mono<byte[]> audio = Mono.defer(() -> {
+            String known = endpoint;
+            if (known == null || System.nanoTime() - endpointSince > reprobeEvery.toNanos()) {
+                return probe(0, new ArrayList<>(), null, text, voiceId, fmt, engine, language);
             }
-        }
+            // The remembered endpoint went away (API change or proxy): negotiate again.
+            return callPath(known, text, voiceId, fmt, engine, language)
+                    .onErrorResume(SpeechifyTtsService::isMissingEndpoint, e -> {
+                        endpoint = null;
+                        return probe(0, new ArrayList<>(), null, text, voiceId, fmt, engine, language);
+                    });
+        });
+
+        return audio.onErrorMap(e -> e instanceof WebClientResponseException, e -> {
+            WebClientResponseException wce = (WebClientResponseException) e;
+            String body = trimForLog(wce.getResponseBodyAsString(StandardCharsets.UTF_8), 800);
+            return rewrap("Speechify TTS failed: HTTP " + wce.getStatusCode().value()
+                    + (isBlank(body) ? "" : " – " + body), wce);
+        });
+    }
 
-        if (last404or405 != null) {
-            throw new RuntimeException(
+    /**
+     * Tries {@link #PATHS} in order from {@code i}, moving on after a 404/405, and
+     * remembers the first path that produces audio. Runs on the first call and again
+     * every {@link #reprobeEvery}, so a preferred path that comes back is picked up.
+     */
+    private Mono<byte[]> probe(int i, List<String> tried, Throwable last404or405,
+                               String text, String voiceId, String fmt, String engine, String language) {
+        if (i >= PATHS.size()) {
+            return Mono.error(new RuntimeException(
                     "Speechify TTS failed: no matching endpoint (tried " + String.join(", ", tried) + ")",
-                    last404or405
-            );
+                    last404or405));
         }
-        throw new RuntimeException("Speechify TTS failed: no valid endpoint produced audio");
+        String path = PATHS.get(i);
+        tried.add(joinUrl(baseUrl, path));
+        return callPath(path, text, voiceId, fmt, engine, language)
+                .doOnNext(ok -> {
+                    if (!path.equals(endpoint)) log.info("Speechify endpoint negotiated: {}", path);
+                    endpoint = path;
+                    endpointSince = System.nanoTime();
+                })
+                .onErrorResume(SpeechifyTtsService::isMissingEndpoint, e -> {
+                    WebClientResponseException wce = (WebClientResponseException) e;
+                    RuntimeException missing = rewrap(wce.getStatusCode().value() + " at " + joinUrl(baseUrl, path)
+                            + " (voice_id=" + voiceId + ")", wce);
+                    return probe(i + 1, tried, missing, text, voiceId, fmt, engine, language);
+                });
+    }
+
+    private Mono<byte[]> callPath(String path, String text, String voiceId, String fmt, String engine, String language) {
+        String uri = joinUrl(baseUrl, path);
+        return "/v1/audio/speech".equals(path)
+                ? callModern(uri, text, voiceId, fmt)
+                : callLegacy(uri, text, voiceId, fmt, engine, language);
+    }
+
+    private static boolean isMissingEndpoint(Throwable t) {
+        if (!(t instanceof WebClientResponseException w)) return false;
+        int code = w.getStatusCode().value();
+        return code == 404 || code == 405;
     }
 
     /* ---------- Modern ---------- */
-    private byte[] callModern(String uri, String text, String voiceId, String audioFormat) {
+    private Mono<byte[]> callModern(String uri, String text, String voiceId, String audioFormat) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("input", text);
         payload.put("voice_id", voiceId);
@@ -99,41 +165,20 @@ public class SpeechifyTtsService implements TtsService {
                 })
                 .bodyValue(payload)
                 .exchangeToMono(resp -> {
-                    if (!resp.statusCode().is2xxSuccessful()) {
-                        return resp.bodyToMono(byte[].class)
-                                .defaultIfEmpty(new byte[0])
-                                .flatMap(body -> Mono.error(WebClientResponseException.create(
-                                        resp.statusCode().value(),
-                                        resp.statusCode().toString(),
-                                        resp.headers().asHttpHeaders(),
-                                        body,
-                                        StandardCharsets.UTF_8
-                                )));
-                    }
-                    return resp.bodyToMono(SpeechifyJsonResponse.class);
+                    if (!resp.statusCode().is2xxSuccessful()) return errorFrom(resp);
+                    return decodeAudioJson(resp, text.length());
                 })
                 .timeout(timeout)
-                .retryWhen(retrySpec())
-                .flatMap(json -> {
-                    if (json == null || isBlank(json.audio_data)) {
-                        return Mono.error(new RuntimeException("Speechify returned empty JSON or audio_data"));
-                    }
-                    try {
-                        return Mono.just(Base64.getDecoder().decode(json.audio_data));
-                    } catch (IllegalArgumentException bad64) {
-                        return Mono.error(new RuntimeException("Speechify returned invalid base64 audio_data", bad64));
-                    }
-                })
-                .block();
+                .retryWhen(retrySpec());
     }
 
     /* ---------- Legacy ---------- */
-    private byte[] callLegacy(String uri,
-                              String text,
-                              String voice,
-                              String format,
-                              String engine,
-                              String language) {
+    private Mono<byte[]> callLegacy(String uri,
+                                    String text,
+                                    String voice,
+                                    String format,
+                                    String engine,
+                                    String language) {
 
         Map<String, Object> legacy = new HashMap<>();
         legacy.put("text", text);
@@ -164,41 +209,54 @@ public class SpeechifyTtsService implements TtsService {
                 })
                 .bodyValue(legacy)
                 .exchangeToMono(resp -> {
-                    if (!resp.statusCode().is2xxSuccessful()) {
-                        return resp.bodyToMono(byte[].class)
-                                .defaultIfEmpty(new byte[0])
-                                .flatMap(body -> Mono.error(WebClientResponseException.create(
-                                        resp.statusCode().value(),
-                                        resp.statusCode().toString(),
-                                        resp.headers().asHttpHeaders(),
-                                        body,
-                                        StandardCharsets.UTF_8
-                                )));
-                    }
+                    if (!resp.statusCode().is2xxSuccessful()) return errorFrom(resp);
 
                     String ct = Optional.ofNullable(resp.headers().asHttpHeaders()
                                     .getFirst(HttpHeaders.CONTENT_TYPE))
                             .orElse("");
                     boolean looksJson = ct.toLowerCase(Locale.ROOT).contains("application/json");
 
-                    if (!looksJson) {
-                        return resp.bodyToMono(byte[].class);
-                    }
-
-                    return resp.bodyToMono(SpeechifyJsonResponse.class)
-                            .map(j -> {
-                                if (j == null || isBlank(j.audio_data)) {
-                                    throw new RuntimeException("Speechify legacy JSON without audio_data");
-                                }
-                                return Base64.getDecoder().decode(j.audio_data);
-                            });
+                    return looksJson ? decodeAudioJson(resp, text.length()) : resp.bodyToMono(byte[].class);
                 })
                 .timeout(timeout)
                 .retryWhen(retrySpec())
                 .flatMap(bytes -> (bytes == null || bytes.length == 0)
                         ? Mono.error(new RuntimeException("Speechify returned empty audio"))
-                        : Mono.just(bytes))
-                .block();
+                        : Mono.just(bytes));
+    }
+
+    private static Mono<byte[]> errorFrom(ClientResponse resp) {
+        return resp.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> Mono.error(WebClientResponseException.create(
+                        resp.statusCode().value(),
+                        resp.statusCode().toString(),
+                        resp.headers().asHttpHeaders(),
+                        body,
+                        StandardCharsets.UTF_8
+                )));
+    }
+
+    /**
+     * Decodes {@code audio_data} buffer by buffer as the body arrives (see
+     * {@link JsonAudioDecoder}), with the output buffer sized from the text: speech audio
+     * runs to a few hundred bytes per character, so it rarely grows more than once.
+     */
+    private static Mono<byte[]> decodeAudioJson(ClientResponse resp, int textChars) {
+        int expected = (int) Math.min(16L * 1024 * 1024, Math.max(64 * 1024, textChars * 256L));
+        return resp.bodyToFlux(DataBuffer.class)
+                .reduceWith(() -> new JsonAudioDecoder(expected), (decoder, buf) -> {
+                    try {
+                        byte[] b = new byte[buf.readableByteCount()];
+                        buf.read(b);
+                        decoder.feed(b, 0, b.length);
+                        return decoder;
+                    } finally {
+                        DataBufferUtils.release(buf);
+                    }
+                })
+                .switchIfEmpty(Mono.error(new RuntimeException("Speechify returned empty JSON or audio_data")))
+                .map(JsonAudioDecoder::finish);
     }
 
     /* ---------- helpers ---------- */
@@ -215,12 +273,13 @@ public class SpeechifyTtsService implements TtsService {
         return b + p;
     }
 
-    private static Retry retrySpec() {
+    private Retry retrySpec() {
         return Retry
                 .backoff(3, Duration.ofMillis(400))
                 .maxBackoff(Duration.ofSeconds(10))
                 .jitter(0.5)
                 .filter(SpeechifyTtsService::isTransient)
+                .doBeforeRetry(sig -> onRetry.run())
                 .onRetryExhaustedThrow((sig, rs) -> rs.failure());
     }
 
@@ -259,9 +318,4 @@ public class SpeechifyTtsService implements TtsService {
     private static RuntimeException rewrap(String message, Throwable cause) {
         return new RuntimeException(message, cause);
     }
-
-    private static final class SpeechifyJsonResponse {
-        public String audio_data;
-        public String audio_format;
-    }
 }
@@ -0,0 +1,29 @@
+package com.lexaro.api.tts;
+
+import java.util.Locale;
+
+/**
+ * Audio with the provider and engine that actually produced it. A router that falls back
+ * or hedges reports the provider that answered, which can differ from what the request
+ * asked for; callers keyed on the request (the chunk cache) check {@link #servedAs}.
+ */
+public record SynthesisResult(byte[] audio, String provider, String engine) {
+
+    public SynthesisResult {
+        engine = normalizeEngine(engine);
+    }
+
+    /** Audio produced by the provider and engine the request asked for. */
+    public static SynthesisResult requested(byte[] audio, String engine) {
+        return new SynthesisResult(audio, DelegatingTtsService.providerFor(engine), engine);
+    }
+
+    /** Whether this is what a request for {@code engine} would normally produce. */
+    public boolean servedAs(String engine) {
+        return provider.equals(DelegatingTtsService.providerFor(engine)) && this.engine.equals(normalizeEngine(engine));
+    }
+
+    private static String normalizeEngine(String engine) {
+        return engine == null ? "" : engine.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,18 +1,84 @@
 package com.lexaro.api.tts;
 
 import java.text.BreakIterator;
+import java.text.CharacterIterator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
-/** Sentence-aware chunker that keeps chunks under a max length. */
+/**
+ * Sentence-aware chunker that keeps chunks under a max length.
+ *
+ * <p>{@link #spans} works in a single pass over the source and returns offsets only: a
+ * chunk is a whitespace-trimmed range of whole sentences, or of whole words when one
+ * sentence is longer than the limit, and a token longer than the limit is cut raw. No
+ * per-sentence or per-word Strings are created; callers materialize a chunk with
+ * {@link Span#text} right before sending it to a provider.
+ *
+ * <p>Chunks are packed greedily against a {@link Limit}. They are sent as plain text, which
+ * providers bill for every character, whitespace included, so the chunk length is both the
+ * billed count and the request size.
+ */
 public final class TextChunker {
     private TextChunker() {}
 
+    /** A chunk as the range {@code [start, end)} of the source text. */
+    public record Span(int start, int end) {
+        public int length() { return end - start; }
+
+        public String text(CharSequence source) {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * Per-request size limit of a provider: the smaller of its billed-character quota and
+     * its hard request size, both counted in plain-text characters.
+     */
+    public record Limit(int maxChars) {
+        public Limit {
+            maxChars = Math.max(1, maxChars);
+        }
+
+        /** Plain text of at most {@code maxChars} characters per request. */
+        public static Limit of(int maxChars) {
+            return new Limit(maxChars);
+        }
+    }
+
+    public static List<Span> spans(CharSequence text, int maxChars) {
+        return spans(text, Limit.of(maxChars), Locale.US);
+    }
+
     /** Preferred entrypoint used by the audio service. */
+    public static List<Span> spans(CharSequence text, Limit limit) {
+        return spans(text, limit, Locale.US);
+    }
+
+    /** Chunk offsets with sentence boundaries from {@code locale}'s {@link BreakIterator}. */
+    public static List<Span> spans(CharSequence text, Limit limit, Locale locale) {
+        List<Span> out = new ArrayList<>();
+        if (text == null || text.isEmpty()) return out;
+
+        BreakIterator bi = BreakIterator.getSentenceInstance(locale);
+        bi.setText(new CharSequenceIterator(text));
+
+        Packer p = new Packer(text, limit, out);
+        int start = bi.first();
+        for (int end = bi.next(); end != BreakIterator.DONE; start = end, end = bi.next()) {
+            p.sentence(start, end);
+        }
+        p.flush();
+        return out;
+    }
+
+    /** Materialized chunks; kept for callers that want Strings. */
     public static List<String> splitBySentences(String text, int maxChars) {
         try {
-            return splitWithBreakIterator(text, maxChars);
+            List<Span> spans = spans(text, maxChars);
+            List<String> out = new ArrayList<>(spans.size());
+            for (Span s : spans) out.add(s.text(text));
+            return out;
         } catch (Exception ignore) {
             return splitSmart(text, maxChars);
         }
@@ -60,39 +126,68 @@ public final class TextChunker {
 
     // ---------- internals ----------
 
-    private static List<String> splitWithBreakIterator(String text, int maxChars) {
-        List<String> out = new ArrayList<>();
-        if (text == null) return out;
-        String s = text.trim();
-        if (s.isEmpty()) return out;
+    /**
+     * Greedy packing over source offsets. The open chunk is {@code [cs, ce)}; a unit joins
+     * it when the gap plus the unit still fit the limit, measured on the source (so
+     * whitespace counts exactly as it is sent).
+     */
+    private static final class Packer {
+        private final CharSequence s;
+        private final int maxChars;
+        private final List<Span> out;
+        private int cs = -1;
+        private int ce;
 
-        BreakIterator bi = BreakIterator.getSentenceInstance(Locale.US);
-        bi.setText(s);
+        Packer(CharSequence s, Limit limit, List<Span> out) {
+            this.s = s;
+            this.maxChars = limit.maxChars();
+            this.out = out;
+        }
 
-        int start = bi.first();
-        int end = bi.next();
-        StringBuilder buf = new StringBuilder();
+        void sentence(int from, int to) {
+            while (from < to && Character.isWhitespace(s.charAt(from))) from++;
+            while (to > from && Character.isWhitespace(s.charAt(to - 1))) to--;
+            if (from == to) return;
 
-        while (end != BreakIterator.DONE) {
-            String sentence = s.substring(start, end).trim();
-            if (!sentence.isEmpty()) {
-                if (sentence.length() > maxChars) {
-                    hardSplit(sentence, maxChars, out, buf);
-                } else if (buf.length() + (buf.length() > 0 ? 1 : 0) + sentence.length() <= maxChars) {
-                    if (buf.length() > 0) buf.append(' ');
-                    buf.append(sentence);
+            if (to - from > maxChars) {
+                words(from, to);
+            } else {
+                unit(from, to);
+            }
+        }
+
+        /** Word-level packing for a sentence over the limit. */
+        private void words(int from, int to) {
+            int i = from;
+            while (i < to) {
+                while (i < to && Character.isWhitespace(s.charAt(i))) i++;
+                int w = i;
+                while (i < to && !Character.isWhitespace(s.charAt(i))) i++;
+                if (w == i) continue;
+
+                if (i - w <= maxChars) {
+                    unit(w, i);
                 } else {
-                    out.add(buf.toString());
-                    buf.setLength(0);
-                    buf.append(sentence);
+                    // raw-cut this very long token
+                    for (int k = w; k < i; k += maxChars) unit(k, Math.min(i, k + maxChars));
                 }
             }
-            start = end;
-            end = bi.next();
         }
 
-        if (buf.length() > 0) out.add(buf.toString());
-        return out;
+        private void unit(int from, int to) {
+            if (cs >= 0 && to - cs <= maxChars) {
+                ce = to;
+                return;
+            }
+            flush();
+            cs = from;
+            ce = to;
+        }
+
+        void flush() {
+            if (cs >= 0) out.add(new Span(cs, ce));
+            cs = -1;
+        }
     }
 
     private static void hardSplit(String sentence, int maxLen, List<String> out, StringBuilder buf) {
@@ -125,4 +220,49 @@ public final class TextChunker {
             buf.append(token);
         }
     }
+
+    /** {@link CharacterIterator} view of a CharSequence, so BreakIterator needs no copy. */
+    private static final class CharSequenceIterator implements CharacterIterator {
+        private final CharSequence s;
+        private int pos;
+
+        CharSequenceIterator(CharSequence s) {
+            this.s = s;
+        }
+
+        @Override public char first() { pos = 0; return current(); }
+        @Override public char last() { pos = Math.max(0, s.length() - 1); return current(); }
+        @Override public char current() { return pos < s.length() ? s.charAt(pos) : DONE; }
+
+        @Override
+        public char next() {
+            if (pos < s.length()) pos++;
+            return current();
+        }
+
+        @Override
+        public char previous() {
+            if (pos == 0) return DONE;
+            pos--;
+            return current();
+        }
+
+        @Override
+        public char setIndex(int position) {
+            if (position < 0 || position > s.length()) throw new IllegalArgumentException("Invalid index");
+            pos = position;
+            return current();
+        }
+
+        @Override public int getBeginIndex() { return 0; }
+        @Override public int getEndIndex() { return s.length(); }
+        @Override public int getIndex() { return pos; }
+
+        @Override
+        public Object clone() {
+            CharSequenceIterator c = new CharSequenceIterator(s);
+            c.pos = pos;
+            return c;
+        }
+    }
 }
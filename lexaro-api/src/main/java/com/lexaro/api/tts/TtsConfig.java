@@ -1,25 +1,49 @@
 package com.lexaro.api.tts;
 
+import com.lexaro.api.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Duration;
+import java.util.concurrent.Executor;
 
+@Slf4j
 @Configuration
 public class TtsConfig {
 
     /* ---------- POLLY ---------- */
     @Bean("pollyTtsService")
-    public TtsService pollyTtsService(
+    public PollyTtsService pollyTtsService(
             @Value("${app.tts.polly.region}") String region,
             @Value("${app.tts.polly.accessKey:}") String accessKey,
-            @Value("${app.tts.polly.secretKey:}") String secretKey
+            @Value("${app.tts.polly.secretKey:}") String secretKey,
+            @Value("${app.tts.polly.maxConnections:64}") int maxConnections,
+            TtsMetrics metrics
     ) {
-        return new PollyTtsService(region, accessKey, secretKey);
+        return new PollyTtsService(region, accessKey, secretKey, maxConnections,
+                metrics.sdkRetries(DelegatingTtsService.PROVIDER_POLLY));
+    }
+
+    /* ---------- LONG-FORM ---------- */
+    /** Polly speech synthesis tasks writing into the storage bucket, or the local stand-in ({@code dev}). */
+    @Bean("longFormSynthesizer")
+    public LongFormSynthesizer longFormSynthesizer(
+            @Value("${app.tts.longform.provider:polly}") String provider,
+            @Value("${app.storage.bucket:}") String bucket,
+            @Qualifier("pollyTtsService") PollyTtsService polly,
+            @Qualifier("storageService") StorageService storage
+    ) {
+        if ("dev".equalsIgnoreCase(provider)) {
+            return new DevLongFormSynthesizer(storage);
+        }
+        return polly.longForm(bucket);
     }
 
     /* ---------- SPEECHIFY ---------- */
@@ -29,24 +53,102 @@ public class TtsConfig {
             @Value("${app.tts.speechify.apiKey:}") String apiKey,
             @Qualifier("speechifyWebClient") WebClient speechifyWebClient,  // <-- reuse bean from SpeechifyHttpConfig
             @Value("${app.tts.speechify.timeoutMs:20000}") long timeoutMs,
-            @Value("${app.tts.speechify.defaultVoice:alloy}") String defaultVoice
+            @Value("${app.tts.speechify.defaultVoice:alloy}") String defaultVoice,
+            @Value("${app.tts.speechify.reprobeMinutes:10}") long reprobeMinutes,
+            TtsMetrics metrics
     ) {
         return new SpeechifyTtsService(
                 baseUrl,
                 apiKey,
                 speechifyWebClient,
                 Duration.ofMillis(timeoutMs),
-                defaultVoice
+                defaultVoice,
+                Duration.ofMinutes(reprobeMinutes),
+                metrics.retries(DelegatingTtsService.PROVIDER_SPEECHIFY)::increment
         );
     }
 
-    /* ---------- ROUTER (Primary) ---------- */
-    @Primary
+    /* ---------- ROUTER ---------- */
     @Bean("routingTtsService")
     public TtsService routingTtsService(
             @Qualifier("pollyTtsService") TtsService polly,
-            @Qualifier("speechifyTtsService") TtsService speechify
+            @Qualifier("speechifyTtsService") TtsService speechify,
+            @Qualifier("ttsHedgeExecutor") Executor hedgeExecutor,
+            JdbcTemplate jdbc,
+            MeterRegistry registry,
+            TtsMetrics metrics,
+            @Value("${app.tts.breaker.window:50}") int window,
+            @Value("${app.tts.breaker.min-calls:10}") int minCalls,
+            @Value("${app.tts.breaker.failure-rate:0.5}") double failureRate,
+            @Value("${app.tts.breaker.slow-rate:0.8}") double slowRate,
+            @Value("${app.tts.breaker.slow-call-ms:30000}") long slowCallMs,
+            @Value("${app.tts.breaker.max-age-seconds:120}") long maxAgeSeconds,
+            @Value("${app.tts.breaker.open-seconds:30}") long openSeconds,
+            @Value("${app.tts.breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${app.tts.fallback.voice:Joanna}") String fallbackVoice,
+            @Value("${app.tts.hedge.enabled:false}") boolean hedge,
+            @Value("${app.tts.hedge.min-delay-ms:2000}") long minHedgeDelayMs,
+            @Value("${app.tts.limits.cluster:false}") boolean clusterLimits,
+            @Value("${app.tts.limits.polly.requestsPerSecond:8}") double pollyRps,
+            @Value("${app.tts.limits.polly.burst:8}") int pollyBurst,
+            @Value("${app.tts.limits.polly.concurrency:16}") int pollyConcurrency,
+            @Value("${app.tts.limits.speechify.requestsPerSecond:5}") double speechifyRps,
+            @Value("${app.tts.limits.speechify.burst:5}") int speechifyBurst,
+            @Value("${app.tts.limits.speechify.concurrency:8}") int speechifyConcurrency
+    ) {
+        var breaker = new ProviderCircuitBreaker.Settings(
+                window, minCalls, failureRate, slowRate,
+                Duration.ofMillis(slowCallMs), Duration.ofSeconds(maxAgeSeconds),
+                Duration.ofSeconds(openSeconds), halfOpenCalls);
+        var pollyLimiter = limiter(DelegatingTtsService.PROVIDER_POLLY, pollyRps, pollyBurst, pollyConcurrency,
+                clusterLimits ? jdbc : null, registry);
+        var speechifyLimiter = limiter(DelegatingTtsService.PROVIDER_SPEECHIFY, speechifyRps, speechifyBurst,
+                speechifyConcurrency, clusterLimits ? jdbc : null, registry);
+        // Metered below the router, so fallbacks and hedges count against the provider that ran them.
+        return new DelegatingTtsService(
+                new MeteredTtsService(DelegatingTtsService.PROVIDER_POLLY, polly, metrics),
+                new MeteredTtsService(DelegatingTtsService.PROVIDER_SPEECHIFY, speechify, metrics),
+                fallbackVoice, breaker, pollyLimiter, speechifyLimiter,
+                hedge ? hedgeExecutor : null, Duration.ofMillis(minHedgeDelayMs), registry);
+    }
+
+    /** Node-local bucket, or the shared Postgres bucket (falling back to local) when {@code jdbc} is given. */
+    private static ProviderLimiter limiter(String provider, double rps, int burst, int concurrency,
+                                           JdbcTemplate jdbc, MeterRegistry registry) {
+        ProviderLimiter.RateSource rate = ProviderLimiter.localBucket(rps, burst);
+        if (jdbc != null && rps > 0) rate = new PostgresTokenBucket(jdbc, provider, rps, burst, rate);
+        return new ProviderLimiter(provider, concurrency, rate, registry);
+    }
+
+    /* ---------- CHUNK CACHE (Primary) ---------- */
+    @Primary
+    @Bean("cachingTtsService")
+    public TtsService cachingTtsService(
+            @Qualifier("routingTtsService") TtsService router,
+            @Qualifier("storageService") StorageService storage,
+            MeterRegistry registry,
+            @Value("${app.tts.cache.enabled:true}") boolean enabled,
+            @Value("${app.tts.cache.max-entries:100000}") long maxEntries,
+            @Value("${app.tts.cache.ttl-days:30}") long ttlDays,
+            @Value("${app.tts.cache.probe-storage:true}") boolean probeStorage
     ) {
-        return new DelegatingTtsService(polly, speechify);
+        if (!enabled) return router;
+        // Cached objects are never deleted by the nodes; a bucket lifecycle rule expires them.
+        // The rule belongs to the bucket's configuration (lifecycle.json); this only checks it.
+        try {
+            Integer days = storage.expiryDays(CachingTtsService.PREFIX);
+            if (days == null) {
+                log.warn("Storage has no lifecycle rules; objects under {} are never expired", CachingTtsService.PREFIX);
+            } else if (days < 0) {
+                log.warn("No bucket lifecycle rule expires {}; cached audio is kept forever (see lifecycle.json)",
+                        CachingTtsService.PREFIX);
+            } else if (days != ttlDays) {
+                log.warn("Bucket expires {} after {} days but app.tts.cache.ttl-days is {}",
+                        CachingTtsService.PREFIX, days, ttlDays);
+            }
+        } catch (Exception e) {
+            log.warn("Could not read the bucket lifecycle rules for {} ({})", CachingTtsService.PREFIX, e.toString());
+        }
+        return new CachingTtsService(router, storage, registry, maxEntries, Duration.ofDays(ttlDays), probeStorage);
     }
 }
@@ -1,26 +1,201 @@
 package com.lexaro.api.tts;
 
+import com.lexaro.api.domain.Plan;
+import com.lexaro.api.web.dto.VoiceDto;
 import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
 
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TTS meters. Job-level counters and stage timers are recorded by the worker; per-request
+ * provider meters by {@link MeteredTtsService}, which wraps each provider below the router
+ * so cache hits are not counted and fallbacks and hedges are counted against the provider
+ * that actually served them.
+ *
+ * <p>Provider meters, tagged {@code provider}, {@code engine} and {@code plan}:
+ * {@code tts.synthesize.latency} (histogram, plus {@code outcome}),
+ * {@code tts.synthesize.chars} and {@code tts.synthesize.bytes} (per request), and
+ * {@code tts.synthesize.throughput} (chars per second, also tagged {@code voice}). Voices
+ * are free text for non-Polly providers, so the tag is the voice only if it is in the
+ * Polly or Speechify catalog and {@code other} otherwise; the catalog is re-read in the
+ * background at most every {@value #VOICE_REFRESH_MINUTES} minutes.
+ * {@code tts.provider.retries{provider}} counts retries made inside the provider clients.
+ *
+ * <p>Job meters: {@code tts.job.stage{stage}} for extract, translate, synthesize and
+ * upload, and {@code tts.job.duration{outcome}} for the whole attempt. Upload is the time
+ * from the last chunk to the stored object: for Ogg only the final part, whose earlier
+ * parts are counted in synthesize, and for MP3 and WAV the whole transfer from the
+ * assembler's spill file (see {@link AudioAssembler}).
+ */
+@Slf4j
 @Component
 public class TtsMetrics {
+    public static final String STAGE_EXTRACT = "extract";
+    public static final String STAGE_TRANSLATE = "translate";
+    public static final String STAGE_SYNTHESIZE = "synthesize";
+    public static final String STAGE_UPLOAD = "upload";
+
+    static final long VOICE_REFRESH_MINUTES = 60;
+
     private final Counter started;
     private final Counter succeeded;
     private final Counter failed;
-    private final Timer pollyLatency;
+    private final MeterRegistry reg;
+    private final ObjectProvider<TtsVoiceCatalogService> catalog;
 
-    public TtsMetrics(MeterRegistry reg) {
+    /** Lower-cased catalog voice IDs allowed as a {@code voice} tag value. */
+    private volatile Set<String> knownVoices = Set.of();
+    private volatile long voicesLoadedAt;
+    private final AtomicBoolean loadingVoices = new AtomicBoolean();
+
+    public TtsMetrics(MeterRegistry reg, ObjectProvider<TtsVoiceCatalogService> catalog) {
+        this.reg = reg;
+        this.catalog = catalog;
         this.started   = Counter.builder("tts.jobs.started").register(reg);
         this.succeeded = Counter.builder("tts.jobs.succeeded").register(reg);
         this.failed    = Counter.builder("tts.jobs.failed").register(reg);
-        this.pollyLatency = Timer.builder("polly.synthesize.latency")
-                .publishPercentiles(0.5, 0.95, 0.99).register(reg);
     }
     public void incStarted(){ started.increment(); }
     public void incSucceeded(){ succeeded.increment(); }
     public void incFailed(){ failed.increment(); }
-    public <T> T timePolly(java.util.concurrent.Callable<T> c) throws Exception {
-        return pollyLatency.recordCallable(c);
+    /**
+     * Records how a document was chunked for {@code provider}: one {@code tts.chunk.fill}
+     * sample per chunk (chars / per-request limit, so the mean is the average fill)
+     * and one {@code tts.document.requests} sample with the number of provider requests.
+     */
+    public void recordChunking(String provider, java.util.List<TextChunker.Span> chunks, TextChunker.Limit limit) {
+        DistributionSummary fill = DistributionSummary.builder("tts.chunk.fill")
+                .description("Chars per chunk relative to the provider's per-request limit")
+                .tag("provider", provider).register(reg);
+        for (TextChunker.Span c : chunks) {
+            fill.record((double) c.length() / limit.maxChars());
+        }
+        DistributionSummary.builder("tts.document.requests")
+                .description("Provider requests needed per document")
+                .tag("provider", provider).register(reg)
+                .record(chunks.size());
+    }
+
+    /**
+     * One provider request: latency whatever the outcome; size and throughput only for
+     * requests that returned audio.
+     */
+    public void recordSynthesis(String provider, String engine, Plan plan, String voice,
+                                int chars, byte[] audio, long nanos, boolean success) {
+        String e = tagValue(engine);
+        String p = plan == null ? "none" : plan.name().toLowerCase(Locale.ROOT);
+        Timer.builder("tts.synthesize.latency")
+                .description("Provider synthesize latency per request, client retries included")
+                .tags("provider", provider, "engine", e, "plan", p, "outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(reg)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (!success || audio == null) return;
+
+        DistributionSummary.builder("tts.synthesize.chars")
+                .description("Characters per provider request")
+                .baseUnit("chars")
+                .tags("provider", provider, "engine", e, "plan", p)
+                .register(reg).record(chars);
+        DistributionSummary.builder("tts.synthesize.bytes")
+                .description("Audio bytes per provider request")
+                .baseUnit("bytes")
+                .tags("provider", provider, "engine", e, "plan", p)
+                .register(reg).record(audio.length);
+        if (nanos > 0) {
+            DistributionSummary.builder("tts.synthesize.throughput")
+                    .description("Characters synthesized per second of provider latency")
+                    .baseUnit("chars/s")
+                    .tags("provider", provider, "engine", e, "plan", p, "voice", voiceTag(voice))
+                    .register(reg).record(chars * 1e9 / nanos);
+        }
+    }
+
+    /** Retries a provider client made on its own before succeeding or giving up. */
+    public Counter retries(String provider) {
+        return Counter.builder("tts.provider.retries")
+                .description("Provider requests retried inside the client")
+                .tag("provider", provider).register(reg);
+    }
+
+    /** Feeds the AWS SDK's per-call retry count into {@link #retries}. */
+    public MetricPublisher sdkRetries(String provider) {
+        Counter retries = retries(provider);
+        return new MetricPublisher() {
+            @Override
+            public void publish(MetricCollection metrics) {
+                for (Integer n : metrics.metricValues(CoreMetric.RETRY_COUNT)) {
+                    if (n != null && n > 0) retries.increment(n);
+                }
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    /** Time one attempt of a job spent in {@code stage} (one of the {@code STAGE_*} names). */
+    public void recordStage(String stage, long nanos) {
+        Timer.builder("tts.job.stage")
+                .description("Time a TTS job attempt spent per stage")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(reg)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Whole attempt, from start to READY, FAILED, or parked on long-form tasks. */
+    public void recordJob(String outcome, long nanos) {
+        Timer.builder("tts.job.duration")
+                .description("End-to-end duration of a TTS job attempt")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(reg)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** {@code voice} as a tag value: itself if the catalog lists it, {@code other} if not. */
+    String voiceTag(String voice) {
+        String v = tagValue(voice);
+        if (v.equals("default")) return v;
+        refreshVoices();
+        return knownVoices.contains(v) ? v : "other";
+    }
+
+    private void refreshVoices() {
+        long now = System.nanoTime();
+        if (voicesLoadedAt != 0 && now - voicesLoadedAt < TimeUnit.MINUTES.toNanos(VOICE_REFRESH_MINUTES)) return;
+        if (!loadingVoices.compareAndSet(false, true)) return;
+        // The catalogs may call the providers on a cache miss: never on a synthesis thread.
+        CompletableFuture.runAsync(() -> {
+            try {
+                TtsVoiceCatalogService c = catalog.getIfAvailable();
+                if (c == null) return;
+                Set<String> ids = new HashSet<>();
+                for (String name : c.voiceNames()) ids.add(tagValue(name));
+                for (VoiceDto v : c.listUnifiedCatalog("PREMIUM")) ids.add(tagValue(v.id()));
+                if (!ids.isEmpty()) knownVoices = Set.copyOf(ids);
+            } catch (Exception e) {
+                log.debug("Could not load the voice catalog for metric tags: {}", e.toString());
+            } finally {
+                voicesLoadedAt = System.nanoTime();
+                loadingVoices.set(false);
+            }
+        });
+    }
+
+    private static String tagValue(String s) {
+        return s == null || s.isBlank() ? "default" : s.trim().toLowerCase(Locale.ROOT);
     }
 }
@@ -2,6 +2,52 @@ package com.lexaro.api.tts;
 
 import com.lexaro.api.domain.Plan;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface TtsService {
     byte[] synthesize(Plan plan, String text, String voice, String engine, String format, String language) throws Exception;
+
+    /**
+     * Non-blocking variant of {@link #synthesize}. Providers with a non-blocking client
+     * override it; by default the call runs on the calling thread and the returned future
+     * is already complete.
+     */
+    default CompletableFuture<byte[]> synthesizeAsync(Plan plan, String text, String voice, String engine, String format, String language) {
+        try {
+            return CompletableFuture.completedFuture(synthesize(plan, text, voice, engine, format, language));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * {@link #synthesize}, reporting which provider and engine produced the audio. Routers
+     * that can fall back override it; by default it is the requested one.
+     */
+    default SynthesisResult synthesizeResult(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        return SynthesisResult.requested(synthesize(plan, text, voice, engine, format, language), engine);
+    }
+
+    /** Non-blocking variant of {@link #synthesizeResult}. */
+    default CompletableFuture<SynthesisResult> synthesizeResultAsync(Plan plan, String text, String voice, String engine, String format, String language) {
+        return synthesizeAsync(plan, text, voice, engine, format, language)
+                .thenApply(audio -> SynthesisResult.requested(audio, engine));
+    }
+
+    /**
+     * Sentence and word timings for {@code text} as {@link #synthesize} would speak it with the
+     * same settings; offsets are chars into {@code text}. Empty when the provider has none.
+     */
+    default List<SpeechMark> speechMarks(Plan plan, String text, String voice, String engine, String language) throws Exception {
+        return List.of();
+    }
+
+    /**
+     * {@link #speechMarks} for a chunk synthesized in {@code format}, so a cache can keep the
+     * marks next to that chunk's audio. Providers ignore the format.
+     */
+    default List<SpeechMark> speechMarks(Plan plan, String text, String voice, String engine, String format, String language) throws Exception {
+        return speechMarks(plan, text, voice, engine, language);
+    }
 }
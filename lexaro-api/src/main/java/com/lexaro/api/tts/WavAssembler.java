@@ -0,0 +1,115 @@
+package com.lexaro.api.tts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Wraps raw 16-bit little-endian mono PCM in a RIFF/WAVE header. Providers return PCM
+ * without any container, so the concatenated bytes alone are not playable as
+ * {@code audio/wav}. The data length is only known at the end, so samples are spilled to
+ * a temp file and the header is written first on {@link #finish()}.
+ *
+ * <p>Chunks that already arrive as WAV are reduced to their {@code data} payload, and a
+ * trailing odd byte is dropped so later chunks stay sample-aligned.
+ */
+final class WavAssembler extends AudioAssembler {
+
+    private static final int CHANNELS = 1;
+    private static final int BITS_PER_SAMPLE = 16;
+
+    private final int sampleRate;
+    private final Spill spill;
+
+    WavAssembler(OutputStream out, int sampleRate) throws IOException {
+        super(out);
+        this.sampleRate = sampleRate;
+        this.spill = new Spill();
+    }
+
+    @Override
+    public void append(byte[] chunk) throws IOException {
+        if (chunk == null) return;
+        int off = 0;
+        int len = chunk.length;
+
+        int[] data = riffData(chunk);
+        if (data != null) {
+            off = data[0];
+            len = data[1];
+        }
+        len &= ~1;
+        if (len <= 0) return;
+
+        spill.write(chunk, off, len);
+        audioBytes += len;
+    }
+
+    @Override
+    public long durationMillis() {
+        return audioBytes / (CHANNELS * BITS_PER_SAMPLE / 8) * 1000 / sampleRate;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (audioBytes == 0) return;
+        out.write(header(audioBytes, sampleRate, 0).array());
+        spill.copyTo(out);
+    }
+
+    /**
+     * A single chunk as a WAV file of its own; empty chunks and chunks that already are WAV
+     * come back unchanged.
+     */
+    static byte[] standalone(byte[] chunk, int sampleRate) {
+        if (chunk == null || chunk.length < 2 || riffData(chunk) != null) return chunk;
+        int len = chunk.length & ~1;
+        return header(len, sampleRate, len).put(chunk, 0, len).array();
+    }
+
+    /** The 44-byte header for {@code audioBytes} of samples, with {@code room} bytes left after it. */
+    private static ByteBuffer header(long audioBytes, int sampleRate, int room) {
+        long dataLen = Math.min(audioBytes, 0xFFFFFFFFL - 36);
+        int blockAlign = CHANNELS * BITS_PER_SAMPLE / 8;
+
+        ByteBuffer h = ByteBuffer.allocate(44 + room).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(new byte[]{'R', 'I', 'F', 'F'}).putInt((int) (36 + dataLen));
+        h.put(new byte[]{'W', 'A', 'V', 'E'});
+        h.put(new byte[]{'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) 1) // PCM
+                .putShort((short) CHANNELS)
+                .putInt(sampleRate)
+                .putInt(sampleRate * blockAlign)
+                .putShort((short) blockAlign)
+                .putShort((short) BITS_PER_SAMPLE);
+        h.put(new byte[]{'d', 'a', 't', 'a'}).putInt((int) dataLen);
+        return h;
+    }
+
+    @Override
+    public void close() throws IOException {
+        spill.close();
+    }
+
+    /** Offset and length of the {@code data} sub-chunk if {@code b} is a WAV file, else null. */
+    private static int[] riffData(byte[] b) {
+        if (b.length < 12 || b[0] != 'R' || b[1] != 'I' || b[2] != 'F' || b[3] != 'F'
+                || b[8] != 'W' || b[9] != 'A' || b[10] != 'V' || b[11] != 'E') {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = 12;
+        while (pos + 8 <= b.length) {
+            int size = buf.getInt(pos + 4);
+            if (b[pos] == 'd' && b[pos + 1] == 'a' && b[pos + 2] == 't' && b[pos + 3] == 'a') {
+                int start = pos + 8;
+                int len = size < 0 ? b.length - start : Math.min(size, b.length - start);
+                return new int[]{start, len};
+            }
+            if (size < 0 || size > b.length) break;
+            pos += 8 + size + (size & 1);
+        }
+        return new int[]{0, 0};
+    }
+}
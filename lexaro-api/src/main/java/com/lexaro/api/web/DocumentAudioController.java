@@ -6,9 +6,11 @@ import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.service.DocumentAudioService;
 import com.lexaro.api.service.DocumentService;
 import com.lexaro.api.service.IdempotencyService;
+import com.lexaro.api.web.dto.AudioSegmentsResponse;
 import com.lexaro.api.web.dto.AudioStartRequest;
 import com.lexaro.api.web.dto.AudioStatusResponse;
 import com.lexaro.api.web.dto.PresignDownloadResponse;
+import com.lexaro.api.web.dto.SpeechMarksResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 /**
  * REST controller for all audio-related operations on a document.
  *
@@ -24,6 +28,8 @@ import org.springframework.web.server.ResponseStatusException;
  *   <li>{@code POST /documents/{id}/audio/start} — start async audio generation</li>
  *   <li>{@code GET  /documents/{id}/audio}        — poll current audio status</li>
  *   <li>{@code GET  /documents/{id}/audio/download} — get presigned download URL</li>
+ *   <li>{@code GET  /documents/{id}/audio/segments} — progressive playback manifest</li>
+ *   <li>{@code GET  /documents/{id}/audio/marks}    — read-along sentence/word timings</li>
  * </ul>
  *
  * <p>The start endpoint supports an optional {@code Idempotency-Key} header. When the
@@ -171,6 +177,76 @@ public class DocumentAudioController {
         return ResponseEntity.ok(body);
     }
 
+    /**
+     * Returns the progressive playback manifest so clients can start playing after the
+     * first chunk instead of waiting for the whole document.
+     *
+     * <p>While the document is PROCESSING the response is {@code 202 Accepted} with
+     * {@code Retry-After: 3}; each poll returns the segments from index {@code from} on,
+     * so a client passing one past the last index it has gets only newly finished ones.
+     * Once READY, {@code complete} is true and {@code downloadUrl} points at the
+     * merged file, which clients should switch to.
+     *
+     * @param id         the document ID (path variable)
+     * @param from       first segment index to return (default 0: all of them)
+     * @param ttlSeconds TTL for the presigned segment/download URLs (default 300, capped 60–3600)
+     * @return the current {@link AudioSegmentsResponse}
+     */
+    @GetMapping("/segments")
+    public ResponseEntity<AudioSegmentsResponse> segments(@PathVariable Long id,
+                                                          @RequestParam(defaultValue = "0") int from,
+                                                          @RequestParam(defaultValue = "300") int ttlSeconds) {
+        var doc = docs.findByIdAndUserId(id, userId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
+        if (doc.getStatus() == DocStatus.EXPIRED) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Document has expired.");
+        }
+
+        return switch (doc.getAudioStatus()) {
+            case PROCESSING -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Retry-After", "3")
+                    .body(audio.segments(userId(), id, from, ttlSeconds));
+            case READY -> ResponseEntity.ok(new AudioSegmentsResponse(
+                    AudioStatus.READY.name(), true, doc.getAudioFormat(), List.of(),
+                    docService.presignAudioDownload(userId(), id, ttlSeconds).url()));
+            default -> ResponseEntity.ok(new AudioSegmentsResponse(
+                    doc.getAudioStatus().name(), false, null, List.of(), null));
+        };
+    }
+
+    /**
+     * Returns sentence and word timings for a slice of the finished audio, selected either
+     * by playback time or by char offset in the synthesized text.
+     *
+     * <p>Exactly one range is used: {@code fromMs}/{@code toMs} when {@code fromChar} is
+     * absent, otherwise {@code fromChar}/{@code toChar}. Open ends default to the start and
+     * end of the audio. Returns 404 if the audio was generated without speech marks.
+     *
+     * @param id    the document ID (path variable)
+     * @param limit maximum marks returned (default 1000, capped 1–5000)
+     * @return the matching marks in playback order
+     */
+    @GetMapping("/marks")
+    public SpeechMarksResponse marks(@PathVariable Long id,
+                                     @RequestParam(required = false) Long fromMs,
+                                     @RequestParam(required = false) Long toMs,
+                                     @RequestParam(required = false) Integer fromChar,
+                                     @RequestParam(required = false) Integer toChar,
+                                     @RequestParam(defaultValue = "1000") int limit) {
+        var doc = docs.findByIdAndUserId(id, userId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found"));
+        if (doc.getStatus() == DocStatus.EXPIRED) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Document has expired.");
+        }
+
+        boolean byChars = fromChar != null || toChar != null;
+        long from = byChars ? (fromChar == null ? 0 : fromChar) : (fromMs == null ? 0 : fromMs);
+        long to = byChars
+                ? (toChar == null ? Integer.MAX_VALUE : toChar)
+                : (toMs == null ? Long.MAX_VALUE : toMs);
+        return audio.speechMarks(userId(), id, byChars, Math.max(0, from), to, limit);
+    }
+
     /**
      * Returns a presigned download URL for the completed audio file.
      *
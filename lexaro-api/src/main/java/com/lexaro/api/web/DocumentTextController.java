@@ -26,34 +26,59 @@ public class DocumentTextController {
     /**
      * Get extracted text (or extract if missing).
      *
-     * @param maxPages Optional limit on pages to parse (0 = no page limit).
-     * @param maxChars Optional preview cap on returned text (0 = return full text).
+     * @param maxPages  Optional limit on pages to parse (0 = no page limit).
+     * @param maxChars  Optional preview cap on returned text (0 = return full text).
+     * @param pageStart Optional first page to return (1-based); with {@code pageEnd}, only
+     *                  that page range is read from the stored text.
+     * @param pageEnd   Optional last page to return (inclusive).
      */
     @GetMapping
     public DocumentTextResponse get(@PathVariable Long id,
                                     @RequestParam(defaultValue = "0") int maxPages,
-                                    @RequestParam(defaultValue = "0") int maxChars) {
+                                    @RequestParam(defaultValue = "0") int maxChars,
+                                    @RequestParam(required = false) Integer pageStart,
+                                    @RequestParam(required = false) Integer pageEnd) {
         // guard rails
         if (maxPages < 0)  maxPages = 0;
         if (maxChars < 0)  maxChars = 0;
 
-        var t = textSvc.getOrExtract(userId(), id, maxPages);
+        if (pageStart != null || pageEnd != null) {
+            int from = pageStart == null ? 1 : pageStart;
+            int to = pageEnd == null ? Integer.MAX_VALUE : pageEnd;
+            var p = textSvc.pages(userId(), id, from, to);
+            String text = preview(p.text(), maxChars);
+            return new DocumentTextResponse(
+                    id,
+                    p.mime(),
+                    p.charCount(),
+                    text.length() < p.text().length(),
+                    p.extractedAt(),
+                    text,
+                    p.pageStart(),
+                    p.pageEnd(),
+                    p.pageCount()
+            );
+        }
 
-        String text = t.getText() == null ? "" : t.getText();
-        boolean truncated = false;
+        var t = textSvc.getOrExtract(userId(), id, maxPages);
 
-        if (maxChars > 0 && text.length() > maxChars) {
-            text = text.substring(0, maxChars);
-            truncated = true;
-        }
+        String full = t.getText() == null ? "" : t.getText();
+        String text = preview(full, maxChars);
 
         return new DocumentTextResponse(
                 t.getDocId(),
                 t.getMime(),
                 t.getCharCount(),   // this remains the full char count from extraction
-                truncated,
+                text.length() < full.length(),
                 t.getExtractedAt(),
-                text
+                text,
+                null,
+                null,
+                t.getPageOffsets() == null ? 1 : t.getPageOffsets().length
         );
     }
+
+    private static String preview(String text, int maxChars) {
+        return maxChars > 0 && text.length() > maxChars ? text.substring(0, maxChars) : text;
+    }
 }
@@ -0,0 +1,20 @@
+package com.lexaro.api.web.dto;
+
+import java.util.List;
+
+/**
+ * Progressive playback manifest for a document's audio.
+ *
+ * <p>While generation is running, {@code segments} lists the chunks finished so far, in
+ * playback order; the list only ever grows. Once {@code complete} is true the segments
+ * are gone and {@code downloadUrl} points at the merged file.
+ */
+public record AudioSegmentsResponse(
+        String status,
+        boolean complete,
+        String format,
+        List<Segment> segments,
+        String downloadUrl
+) {
+    public record Segment(int index, String url) {}
+}
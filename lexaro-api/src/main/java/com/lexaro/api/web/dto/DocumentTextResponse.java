@@ -8,5 +8,11 @@ public record DocumentTextResponse(
         int charCount,
         boolean truncated,   // true if text likely cut by plan cap
         Instant extractedAt,
-        String text
+        String text,
+        /** First page in {@code text} (1-based); null when the whole text is returned. */
+        Integer pageStart,
+        /** Last page in {@code text}; null when the whole text is returned. */
+        Integer pageEnd,
+        /** Pages in the document's stored text. */
+        int pageCount
 ) {}
@@ -0,0 +1,18 @@
+package com.lexaro.api.web.dto;
+
+import java.util.List;
+
+/**
+ * Read-along timings for part of a document's audio.
+ *
+ * <p>{@code start}/{@code end} are char offsets into the synthesized (whitespace-normalized)
+ * text; {@code timeMs} is the playback position in the merged audio file. {@code truncated}
+ * means the range held more than {@code limit} marks; ask again from the last mark.
+ */
+public record SpeechMarksResponse(
+        Long docId,
+        List<Mark> marks,
+        boolean truncated
+) {
+    public record Mark(String type, long timeMs, int start, int end) {}
+}
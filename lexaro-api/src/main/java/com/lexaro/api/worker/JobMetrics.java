@@ -0,0 +1,98 @@
+package com.lexaro.api.worker;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.IntSupplier;
+
+/**
+ * Micrometer meters for the durable job queue.
+ *
+ * <p>{@code jobs.enqueue_to_start} measures the time between a job becoming eligible
+ * ({@code next_run_at}) and a worker thread starting it. The {@code dispatch} tag records
+ * how the job reached the worker so the paths can be compared side by side:
+ * <ul>
+ *   <li>{@code local}  — handed straight to this node's executor after enqueue commit</li>
+ *   <li>{@code notify} — claimed after a Postgres {@code NOTIFY} woke the claim loop</li>
+ *   <li>{@code poll}   — claimed by the scheduled poll (the pre-NOTIFY baseline)</li>
+ *   <li>{@code backlog} — claimed when a worker slot freed up on this node</li>
+ * </ul>
+ *
+ * <p>Worker-slot gauges ({@code jobs.worker.in_flight}, {@code jobs.worker.queued},
+ * {@code jobs.worker.free_slots}) are bound by the runner at startup. Each API instance
+ * exports its own values, so Prometheus' {@code instance} label gives the per-node view.
+ */
+@Component
+public class JobMetrics {
+
+    public static final String DISPATCH_LOCAL = "local";
+    public static final String DISPATCH_NOTIFY = "notify";
+    public static final String DISPATCH_POLL = "poll";
+    public static final String DISPATCH_BACKLOG = "backlog";
+
+    private final Timer localLatency;
+    private final Timer notifyLatency;
+    private final Timer pollLatency;
+    private final Timer backlogLatency;
+    private final MeterRegistry reg;
+
+    public JobMetrics(MeterRegistry reg) {
+        this.reg = reg;
+        this.localLatency = enqueueToStart(reg, DISPATCH_LOCAL);
+        this.notifyLatency = enqueueToStart(reg, DISPATCH_NOTIFY);
+        this.pollLatency = enqueueToStart(reg, DISPATCH_POLL);
+        this.backlogLatency = enqueueToStart(reg, DISPATCH_BACKLOG);
+    }
+
+    /**
+     * Registers the per-node worker-slot gauges.
+     *
+     * @param inFlight jobs claimed by this node and not yet finished
+     * @param queued   tasks waiting in the executor queue
+     * @param free     slots available for the next claim
+     */
+    public void bindWorkerSlots(IntSupplier inFlight, IntSupplier queued, IntSupplier free) {
+        slotGauge("jobs.worker.in_flight", "Jobs claimed by this node and still running", inFlight);
+        slotGauge("jobs.worker.queued", "Tasks waiting in the ttsExecutor queue", queued);
+        slotGauge("jobs.worker.free_slots", "Worker slots available for the next claim", free);
+    }
+
+    private void slotGauge(String name, String description, IntSupplier value) {
+        // strongReference: the suppliers are lambdas owned only by the gauge
+        Gauge.builder(name, value, IntSupplier::getAsInt)
+                .description(description)
+                .strongReference(true)
+                .register(reg);
+    }
+
+    private static Timer enqueueToStart(MeterRegistry reg, String dispatch) {
+        return Timer.builder("jobs.enqueue_to_start")
+                .description("Delay between a job becoming runnable and a worker starting it")
+                .tag("dispatch", dispatch)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(reg);
+    }
+
+    /**
+     * Records the enqueue-to-start delay for a job that is about to execute.
+     *
+     * @param dispatch  one of the {@code DISPATCH_*} constants
+     * @param runnableAt the job's {@code next_run_at}; ignored when null
+     */
+    public void recordStart(String dispatch, Instant runnableAt) {
+        if (runnableAt == null) return;
+        Duration d = Duration.between(runnableAt, Instant.now());
+        if (d.isNegative()) d = Duration.ZERO;
+        Timer t = switch (dispatch) {
+            case DISPATCH_LOCAL -> localLatency;
+            case DISPATCH_NOTIFY -> notifyLatency;
+            case DISPATCH_BACKLOG -> backlogLatency;
+            default -> pollLatency;
+        };
+        t.record(d);
+    }
+}
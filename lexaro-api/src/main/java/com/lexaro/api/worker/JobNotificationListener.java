@@ -0,0 +1,134 @@
+package com.lexaro.api.worker;
+
+import com.lexaro.api.service.JobService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds a dedicated Postgres connection that {@code LISTEN}s on
+ * {@link JobService#JOB_CHANNEL} and wakes the {@link JobRunner} claim loop as soon
+ * as a job is enqueued on any node.
+ *
+ * <p>The connection is opened with {@link DriverManager} rather than borrowed from the
+ * Hikari pool: it is held for the lifetime of the process and must not count against
+ * the pool used by request and worker threads.
+ *
+ * <p>If the connection drops, the listener reports {@link #isListening()} = false so
+ * the runner falls back to its fast poll interval, then reconnects with a fixed backoff.
+ * Notifications sent while disconnected are lost; the fallback poll picks those jobs up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobNotificationListener {
+
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${app.jobs.notify.enabled:true}")
+    private boolean enabled;
+
+    /** How long a single {@code getNotifications} call blocks before re-checking shutdown. */
+    @Value("${app.jobs.notify.wait-ms:5000}")
+    private int waitMs;
+
+    @Value("${app.jobs.notify.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private final CopyOnWriteArrayList<Consumer<String>> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread thread;
+
+    /**
+     * Registers a callback invoked (on the listener thread) with the notification payload.
+     * Callbacks must return quickly — they should only signal other threads.
+     */
+    public void subscribe(Consumer<String> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /** True while the dedicated connection is open and {@code LISTEN} is active. */
+    public boolean isListening() {
+        return listening;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("Job NOTIFY listener disabled (app.jobs.notify.enabled=false); runner will poll only");
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "job-notify-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    private void loop() {
+        while (running) {
+            try (Connection con = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+
+                try (Statement st = con.createStatement()) {
+                    st.execute("LISTEN " + JobService.JOB_CHANNEL);
+                }
+                PGConnection pg = con.unwrap(PGConnection.class);
+                listening = true;
+                log.info("Job NOTIFY listener connected (channel={})", JobService.JOB_CHANNEL);
+
+                while (running) {
+                    PGNotification[] notes = pg.getNotifications(waitMs);
+                    if (notes == null) continue;
+                    for (PGNotification n : notes) {
+                        dispatch(n.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) break;
+                log.warn("Job NOTIFY listener lost connection: {} — reconnecting in {}ms", e.getMessage(), reconnectDelayMs);
+            } finally {
+                listening = false;
+            }
+
+            try {
+                Thread.sleep(reconnectDelayMs);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Job NOTIFY listener stopped");
+    }
+
+    private void dispatch(String payload) {
+        for (Consumer<String> s : subscribers) {
+            try {
+                s.accept(payload);
+            } catch (Exception e) {
+                log.warn("Job NOTIFY subscriber failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
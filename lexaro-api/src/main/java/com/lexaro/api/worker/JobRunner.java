@@ -7,33 +7,93 @@ import com.lexaro.api.domain.JobPayload;
 import com.lexaro.api.repo.DocumentRepository;
 import com.lexaro.api.service.DocumentAudioWorker;
 import com.lexaro.api.service.JobService;
+import com.lexaro.api.service.TtsQuotaService;
+import com.lexaro.api.storage.StorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Scheduled job runner that polls the {@code job} table and dispatches pending jobs
+ * Job runner that claims pending jobs from the {@code job} table and dispatches them
  * to the appropriate handler.
  *
+ * <p>Jobs reach a worker along one of three paths:
+ * <ol>
+ *   <li><b>Local hand-off</b> — after the enqueuing transaction commits, the node that
+ *       enqueued the job claims it by ID and runs it on its own executor, provided the
+ *       executor has a free thread ({@code app.jobs.local-handoff}).</li>
+ *   <li><b>NOTIFY</b> — {@link JobNotificationListener} wakes the claim loop on every node
+ *       as soon as Postgres delivers the {@code job_enqueued} notification. The claim pass
+ *       runs on this runner's claim thread, never on the listener thread.</li>
+ *   <li><b>Poll</b> — the poll on the claim thread. While the listener is connected it only runs every
+ *       {@code app.jobs.notify.fallback-poll-interval-ms} to catch missed notifications and
+ *       retries whose {@code next_run_at} has come due; otherwise it runs every
+ *       {@code app.jobs.poll-interval-ms} as before.</li>
+ * </ol>
+ * {@link JobMetrics} tags the enqueue-to-start latency by path.
+ *
+ * <p><b>Backpressure.</b> Every path reserves a worker slot before claiming, so this
+ * node never flips more jobs to RUNNING than it can actually run
+ * ({@code app.jobs.max-in-flight}, defaulting to the executor's max pool size). A claim
+ * pass asks {@link JobService#claimBatch} only for {@code min(batchSize, freeSlots)} jobs.
+ * If the executor still rejects a hand-off, the job is released straight back to PENDING
+ * via {@link JobService#releaseClaim} instead of waiting for lease expiry. When a
+ * job finishes and frees its slot, the runner immediately runs another claim pass so a
+ * backlog left by a saturated node is drained without waiting for the next poll.
+ *
  * <p>Polling uses {@link JobService#claimBatch} which issues an atomic
  * {@code UPDATE...FOR UPDATE SKIP LOCKED...RETURNING id} — safe for concurrent
  * runner instances on multiple JVM nodes.
  *
  * <p>Each claimed job is submitted to the {@code ttsExecutor} thread pool to avoid
- * blocking the scheduler thread during long-running TTS synthesis. The scheduler
- * thread only does the fast DB claim and task submission.
+ * blocking the claim thread during long-running TTS synthesis. The claim thread only
+ * does the DB claim and task submission.
+ *
+ * <p><b>Leases.</b> A claim is a lease, not a fixed time budget. While a job executes,
+ * a heartbeat renews {@code locked_at} every {@code app.jobs.heartbeat-interval-ms}
+ * (default: 15s) for all of this node's running jobs in one batched UPDATE. Recovery
+ * resets a RUNNING job only once its lease is older than
+ * {@code app.jobs.lease-timeout-seconds} (default: 120s), so a crashed node's jobs come
+ * back within about two minutes while a healthy multi-hour synthesis is never reclaimed.
+ * Heartbeat and recovery run on a thread of their own, which nothing else is scheduled
+ * on; Spring's shared scheduler also runs retention sweeps and other long passes, and a
+ * renewal queued behind them would let a live lease expire. What can still delay a
+ * renewal is the renewal itself (waiting for a pooled connection, a slow UPDATE), so the
+ * timeout is kept at no less than {@value #MIN_HEARTBEATS_PER_LEASE} heartbeat intervals.
+ *
+ * <p>The attempt number captured at claim time is a fencing token: if a lease was lost
+ * anyway (GC pause, network partition), {@link JobService#markSucceeded},
+ * {@link JobService#markFailed} and the worker's document writes
+ * ({@link JobService#saveAudioOutcome}) match no rows, so this runner leaves the
+ * document alone rather than clobbering the new holder's state. The worker also stops
+ * synthesizing as soon as the heartbeat reports the lease lost.
  *
- * <p>Stuck-job recovery runs every 60 seconds via a separate scheduled method.
- * A job is considered stuck if it has been in RUNNING state for longer than
- * {@code app.jobs.stuck-timeout-minutes} minutes (default: 10).
+ * <p><b>Parked jobs.</b> A TTS job handed to provider-side long-form synthesis does not
+ * keep a thread while the provider works. The worker submits the tasks and returns, and
+ * {@link JobService#defer} puts the job back to PENDING with the task ids in its payload
+ * and {@code next_run_at} {@code app.tts.longform.pollSeconds} ahead. Each later claim
+ * checks the tasks once and either finishes the job or parks it again.
  */
 @Slf4j
 @Component
@@ -43,16 +103,49 @@ public class JobRunner {
     private final JobService jobService;
     private final DocumentAudioWorker audioWorker;
     private final DocumentRepository docs;
+    private final StorageService storage;
     private final ObjectMapper objectMapper;
+    private final JobNotificationListener notifications;
+    private final JobMetrics jobMetrics;
+    private final TtsQuotaService quota;
 
     @Qualifier("ttsExecutor")
-    private final Executor ttsExecutor;
+    private final ThreadPoolTaskExecutor ttsExecutor;
 
     @Value("${app.jobs.batch-size:5}")
     private int batchSize;
 
-    @Value("${app.jobs.stuck-timeout-minutes:10}")
-    private int stuckTimeoutMinutes;
+    /** A RUNNING job whose lease has not been renewed for this long is reclaimed. */
+    @Value("${app.jobs.lease-timeout-seconds:120}")
+    private int leaseTimeoutSeconds;
+
+    @Value("${app.jobs.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${app.jobs.lease-check-interval-ms:15000}")
+    private long leaseCheckIntervalMs;
+
+    @Value("${app.jobs.poll-interval-ms:3000}")
+    private long pollIntervalMs;
+
+    /** Lower bound on the lease timeout, in heartbeat intervals. */
+    static final int MIN_HEARTBEATS_PER_LEASE = 4;
+
+    /** Poll interval used while the NOTIFY listener is healthy (safety net only). */
+    @Value("${app.jobs.notify.fallback-poll-interval-ms:30000}")
+    private long fallbackPollIntervalMs;
+
+    /** Whether the enqueuing node may run a freshly enqueued job on its own executor. */
+    @Value("${app.jobs.local-handoff:true}")
+    private boolean localHandoff;
+
+    /** How long a job parked on long-form synthesis tasks waits before it is checked again. */
+    @Value("${app.tts.longform.pollSeconds:15}")
+    private int longFormPollSeconds;
+
+    /** Max jobs this node runs at once; {@code <= 0} means the executor's max pool size. */
+    @Value("${app.jobs.max-in-flight:0}")
+    private int maxInFlightValue;
 
     /**
      * Unique identifier for this runner instance.
@@ -60,40 +153,274 @@ public class JobRunner {
      */
     private final String workerId = "runner-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
 
+    /** Serialises claim passes so a NOTIFY burst and the scheduled poll never claim concurrently. */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    /** Heartbeat and lease recovery only, so no claim pass or other scheduled work delays a renewal. */
+    private final ScheduledExecutorService leaseThread = singleThread("job-lease");
+
+    /** Claim passes: the poll and NOTIFY wake-ups. */
+    private final ScheduledExecutorService claimThread = singleThread("job-claim");
+
+    /** Set while a NOTIFY-triggered claim pass is queued on the claim thread and not yet started. */
+    private final AtomicBoolean notifyQueued = new AtomicBoolean();
+
+    /** Set when a wake-up arrives while another thread holds {@link #drainLock}. */
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+
+    private volatile long lastDrainAtMs;
+
+    /** Worker slots reserved by this node: claimed (or being claimed) and not yet finished. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private int capacity;
+
+    /** Jobs this node is executing and still holds a lease on: job ID → claimed attempt. */
+    private final ConcurrentHashMap<Long, Integer> activeLeases = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        capacity = maxInFlightValue > 0 ? maxInFlightValue : ttsExecutor.getMaxPoolSize();
+        jobMetrics.bindWorkerSlots(inFlight::get, ttsExecutor::getQueueSize, this::freeSlots);
+        notifications.subscribe(payload -> onNotify());
+
+        long minLeaseSeconds = TimeUnit.MILLISECONDS.toSeconds(MIN_HEARTBEATS_PER_LEASE * heartbeatIntervalMs);
+        if (leaseTimeoutSeconds < minLeaseSeconds) {
+            log.warn("app.jobs.lease-timeout-seconds={} is under {} heartbeats ({} ms each); using {}s",
+                    leaseTimeoutSeconds, MIN_HEARTBEATS_PER_LEASE, heartbeatIntervalMs, minLeaseSeconds);
+            leaseTimeoutSeconds = (int) minLeaseSeconds;
+        }
+        every(leaseThread, heartbeatIntervalMs, this::heartbeat);
+        every(leaseThread, leaseCheckIntervalMs, this::recoverExpiredLeases);
+        every(claimThread, pollIntervalMs, this::poll);
+
+        log.info("JobRunner {} started: capacity={}, batchSize={}, localHandoff={}, leaseTimeout={}s",
+                workerId, capacity, batchSize, localHandoff, leaseTimeoutSeconds);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        claimThread.shutdownNow();
+        leaseThread.shutdownNow();
+    }
+
+    private static ScheduledExecutorService singleThread(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Fixed-delay schedule that survives a failing run (an escaped exception would cancel it). */
+    private static void every(ScheduledExecutorService thread, long delayMs, Runnable task) {
+        thread.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("JobRunner scheduled task error: {}", e.getMessage(), e);
+            }
+        }, delayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * NOTIFY callback, called on the listener thread. It only queues a claim pass on the
+     * claim thread, so a slow {@code claimBatch} never holds up reading notifications or
+     * reconnecting; a burst of notifications collapses into one queued pass.
+     */
+    private void onNotify() {
+        if (!notifyQueued.compareAndSet(false, true)) {
+            return; // a pass is already queued and will see this job too
+        }
+        try {
+            claimThread.execute(() -> {
+                notifyQueued.set(false);
+                drain(JobMetrics.DISPATCH_NOTIFY);
+            });
+        } catch (RuntimeException e) {
+            notifyQueued.set(false);
+            log.warn("Could not schedule claim pass for NOTIFY (workerId={}): {}", workerId, e.getMessage());
+        }
+    }
+
     // ---- Scheduled methods ----
 
     /**
-     * Main poll loop: claims PENDING jobs and submits them for async execution.
+     * Poll, every {@code app.jobs.poll-interval-ms} on the claim thread: claims PENDING
+     * jobs and submits them for async execution.
      *
-     * <p>The scheduler thread is never blocked: each claimed job is immediately
-     * handed off to {@code ttsExecutor}. The next poll runs {@code fixedDelay}
-     * milliseconds after the current poll completes (not after the jobs finish).
+     * <p>While the NOTIFY listener is connected, new jobs are claimed as soon as they are
+     * enqueued, so this poll skips its pass unless {@code fallbackPollIntervalMs} has
+     * elapsed since the last claim pass. If the listener is down it polls at the
+     * configured interval as before.
+     */
+    void poll() {
+        if (notifications.isListening()
+                && System.currentTimeMillis() - lastDrainAtMs < fallbackPollIntervalMs) {
+            return;
+        }
+        drain(JobMetrics.DISPATCH_POLL);
+    }
+
+    /**
+     * Runs claim passes until no wake-up is pending. Wake-ups that arrive while another
+     * thread is mid-pass are coalesced into one extra pass by the lock holder.
+     *
+     * <p>The calling thread is never blocked on job execution: each claimed job is
+     * immediately handed off to {@code ttsExecutor}.
+     */
+    private void drain(String dispatch) {
+        wakePending.set(true);
+        while (wakePending.get() && drainLock.tryLock()) {
+            try {
+                wakePending.set(false);
+                lastDrainAtMs = System.currentTimeMillis();
+                claimAndSubmit(dispatch);
+            } catch (Exception e) {
+                log.error("JobRunner claim pass error (workerId={}, dispatch={}): {}",
+                        workerId, dispatch, e.getMessage(), e);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * One claim pass: reserves up to {@code batchSize} free slots, claims at most that many
+     * jobs, returns unused reservations and submits each claimed job.
      */
-    @Scheduled(fixedDelayString = "${app.jobs.poll-interval-ms:3000}")
-    public void poll() {
+    private void claimAndSubmit(String dispatch) {
+        int reserved = reserveSlots(batchSize);
+        if (reserved == 0) {
+            return; // saturated — a finishing job will trigger the next pass
+        }
+        List<Job> claimed;
+        try {
+            claimed = jobService.claimBatch(workerId, reserved);
+        } catch (RuntimeException e) {
+            releaseSlots(reserved);
+            throw e;
+        }
+        releaseSlots(reserved - claimed.size());
+        for (Job job : claimed) {
+            submit(job, dispatch);
+        }
+    }
+
+    /**
+     * Hands a claimed job (holding one reserved slot) to the executor. On rejection the
+     * slot is freed and the job goes straight back to PENDING.
+     */
+    private void submit(Job job, String dispatch) {
+        try {
+            ttsExecutor.execute(() -> runInSlot(() -> executeJob(job, dispatch)));
+        } catch (TaskRejectedException e) {
+            releaseSlots(1);
+            log.warn("Executor rejected job id={} — releasing claim back to PENDING", job.getId());
+            jobService.releaseClaim(job.getId(), workerId);
+        }
+    }
+
+    /**
+     * Local hand-off: once the enqueuing transaction has committed, run the job on this
+     * node if a worker slot is free. The claim itself still goes through
+     * {@link JobService#claimById} so a concurrent claim on another node is harmless —
+     * exactly one of them flips the row to RUNNING.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onJobEnqueued(JobService.JobEnqueuedEvent event) {
+        if (!localHandoff || reserveSlots(1) == 0) {
+            return; // NOTIFY / poll will pick it up
+        }
+        try {
+            ttsExecutor.execute(() -> runInSlot(() -> {
+                try {
+                    jobService.claimById(event.jobId(), workerId)
+                            .ifPresent(job -> executeJob(job, JobMetrics.DISPATCH_LOCAL));
+                } catch (Exception e) {
+                    log.warn("Local hand-off claim failed for job id={}: {}", event.jobId(), e.getMessage());
+                }
+            }));
+        } catch (TaskRejectedException e) {
+            // Nothing was claimed yet, so only the slot needs returning.
+            releaseSlots(1);
+            log.debug("Local hand-off rejected for job id={} — leaving it to the claim loop", event.jobId());
+        }
+    }
+
+    // ---- Slot accounting ----
+
+    /** Runs a task that holds one reserved slot, then frees the slot and drains any backlog. */
+    private void runInSlot(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            releaseSlots(1);
+            drain(JobMetrics.DISPATCH_BACKLOG);
+        }
+    }
+
+    /** Atomically reserves up to {@code wanted} slots; returns how many were reserved. */
+    private int reserveSlots(int wanted) {
+        while (true) {
+            int cur = inFlight.get();
+            int n = Math.min(wanted, capacity - cur);
+            if (n <= 0) return 0;
+            if (inFlight.compareAndSet(cur, cur + n)) return n;
+        }
+    }
+
+    private void releaseSlots(int n) {
+        if (n > 0) inFlight.addAndGet(-n);
+    }
+
+    private int freeSlots() {
+        return Math.max(0, capacity - inFlight.get());
+    }
+
+    // ---- Leases ----
+
+    /**
+     * Heartbeat, on the lease thread: renews the lease on every job this node is executing,
+     * and the TTS quota holds of their documents. Jobs whose renewal matched no row were
+     * reclaimed elsewhere; they are dropped from {@link #activeLeases}, which their
+     * checkpoint reads to stop the worker.
+     */
+    void heartbeat() {
+        if (activeLeases.isEmpty()) return;
         try {
-            List<Job> claimed = jobService.claimBatch(workerId, batchSize);
-            for (Job job : claimed) {
-                ttsExecutor.execute(() -> executeJob(job));
+            Set<Long> lost = jobService.renewLeases(workerId, Map.copyOf(activeLeases));
+            for (Long jobId : lost) {
+                if (activeLeases.remove(jobId) != null) {
+                    log.warn("Lost lease on job id={} (workerId={}) — result will be discarded", jobId, workerId);
+                }
             }
         } catch (Exception e) {
-            log.error("JobRunner.poll() error (workerId={}): {}", workerId, e.getMessage(), e);
+            log.error("JobRunner.heartbeat() error: {}", e.getMessage(), e);
+        }
+        try {
+            quota.extendReservations(workerId);
+        } catch (Exception e) {
+            log.warn("Could not extend TTS quota holds (workerId={}): {}", workerId, e.getMessage());
         }
     }
 
     /**
-     * Resets jobs that have been RUNNING for longer than the stuck timeout.
-     * Runs every 60 seconds regardless of poll interval.
+     * Resets RUNNING jobs whose lease has expired (no heartbeat for
+     * {@code leaseTimeoutSeconds}). Runs on the lease thread, independently of the poll.
      */
-    @Scheduled(fixedDelay = 60_000)
-    public void resetStuck() {
+    void recoverExpiredLeases() {
         try {
-            jobService.resetStuckJobs(Duration.ofMinutes(stuckTimeoutMinutes));
+            jobService.resetExpiredLeases(Duration.ofSeconds(leaseTimeoutSeconds));
         } catch (Exception e) {
-            log.error("JobRunner.resetStuck() error: {}", e.getMessage(), e);
+            log.error("JobRunner.recoverExpiredLeases() error: {}", e.getMessage(), e);
         }
     }
 
+    private boolean leaseHeld(Job job) {
+        return activeLeases.containsKey(job.getId());
+    }
+
     // ---- Execution ----
 
     /**
@@ -102,22 +429,29 @@ public class JobRunner {
      * <p>This method runs on the {@code ttsExecutor} thread pool. On any uncaught exception
      * the job is marked as retryable-failed so the retry backoff scheduler will reschedule it.
      *
-     * @param job the claimed job (status is already RUNNING in the DB)
+     * @param job      the claimed job (status is already RUNNING in the DB)
+     * @param dispatch how the job reached this worker (see {@link JobMetrics})
      */
-    private void executeJob(Job job) {
+    private void executeJob(Job job, String dispatch) {
+        jobMetrics.recordStart(dispatch, job.getNextRunAt());
         log.info("Executing job id={} type={} docId={} userId={} attempt={}",
                 job.getId(), job.getType(), job.getDocId(), job.getUserId(), job.getAttempts());
+        activeLeases.put(job.getId(), job.getAttempts());
         try {
             switch (job.getType()) {
                 case "TTS" -> executeTtsJob(job);
                 default -> {
                     log.warn("Unknown job type '{}' for job id={} — marking FAILED", job.getType(), job.getId());
-                    jobService.markFailed(job.getId(), "Unknown job type: " + job.getType(), false);
+                    jobService.markFailed(job.getId(), workerId, job.getAttempts(),
+                            "Unknown job type: " + job.getType(), false);
                 }
             }
         } catch (Exception e) {
             log.error("Unexpected error executing job id={}: {}", job.getId(), e.getMessage(), e);
-            jobService.markFailed(job.getId(), "Unexpected error: " + e.getMessage(), true);
+            jobService.markFailed(job.getId(), workerId, job.getAttempts(),
+                    "Unexpected error: " + e.getMessage(), true);
+        } finally {
+            activeLeases.remove(job.getId());
         }
     }
 
@@ -132,12 +466,23 @@ public class JobRunner {
      * <p>If the job failed but still has retry budget, this method re-schedules the
      * job to PENDING and resets the document's {@code audioStatus} back to PROCESSING
      * so the user sees an accurate in-progress indicator during the retry window.
+     * The reset is fenced on the lease like the worker's own writes: once the lease is
+     * lost, another runner owns the document's status.
+     *
+     * <p>The worker checkpoints finished chunks through a {@link JobTtsCheckpoint}, so the
+     * retry resumes from the first unfinished chunk. Chunk objects are discarded when
+     * the job fails permanently, and so is the document's quota reservation; a retry keeps
+     * it. If the worker parked the job on long-form tasks instead, the job is deferred
+     * rather than completed.
      *
      * @param job the claimed TTS job
      */
     private void executeTtsJob(Job job) {
         JobPayload params = parsePayload(job.getPayload());
 
+        JobTtsCheckpoint checkpoint = new JobTtsCheckpoint(jobService, storage, job, workerId,
+                () -> leaseHeld(job), params);
+
         // The worker handles its own exception catching and persists READY/FAILED on the document.
         audioWorker.process(
                 job.getUserId(),
@@ -146,40 +491,67 @@ public class JobRunner {
                 params.engine(),
                 params.format(),
                 params.unlimited(),
-                params.targetLang()
+                params.targetLang(),
+                checkpoint
         );
 
+        if (checkpoint.leaseLost()) {
+            log.warn("TTS job id={} docId={} ended after losing its lease — outcome left to the new holder",
+                    job.getId(), job.getDocId());
+            return;
+        }
+
         // Read the document's audioStatus to determine the job outcome.
         // The worker sets READY on success, FAILED on any error.
         var docOpt = docs.findByIdAndUserId(job.getDocId(), job.getUserId());
         if (docOpt.isEmpty()) {
             // Document was deleted during processing — nothing to retry.
             log.warn("Document not found after TTS job id={} docId={} — marking job FAILED", job.getId(), job.getDocId());
-            jobService.markFailed(job.getId(), "Document not found after processing", false);
+            if (jobService.markFailed(job.getId(), workerId, job.getAttempts(),
+                    "Document not found after processing", false)) {
+                checkpoint.discard();
+                quota.release(job.getDocId());
+            }
             return;
         }
 
         var doc = docOpt.get();
 
+        if (checkpoint.awaiting() && doc.getAudioStatus() == AudioStatus.PROCESSING) {
+            // Provider-side tasks are still running: park the job instead of a thread.
+            if (jobService.defer(job.getId(), workerId, job.getAttempts(), checkpoint.payload(),
+                    Duration.ofSeconds(Math.max(1, longFormPollSeconds)))) {
+                log.info("TTS job id={} docId={} waiting on long-form tasks; next check in {}s",
+                        job.getId(), job.getDocId(), longFormPollSeconds);
+            }
+            return;
+        }
+
         if (doc.getAudioStatus() == AudioStatus.READY) {
-            jobService.markSucceeded(job.getId());
+            if (!jobService.markSucceeded(job.getId(), workerId, job.getAttempts())) return;
             log.info("TTS job id={} docId={} completed successfully", job.getId(), job.getDocId());
         } else {
             // TTS failed. Check if we should retry.
             boolean hasRetryBudget = job.getAttempts() < getMaxAttempts();
+            String error = doc.getAudioError();
 
             if (hasRetryBudget) {
                 // Reset document audioStatus to PROCESSING so the user sees "in progress"
                 // rather than a misleading FAILED while the job is still in the retry queue.
                 doc.setAudioStatus(AudioStatus.PROCESSING);
                 doc.setAudioError(null);
-                docs.save(doc);
+                if (!jobService.saveAudioOutcome(checkpoint.lease(), doc)) return;
                 log.info("TTS job id={} docId={} failed; resetting to PROCESSING for retry (attempt {})",
                         job.getId(), job.getDocId(), job.getAttempts());
             }
 
             // markFailed will either reschedule (PENDING + backoff) or permanently set FAILED.
-            jobService.markFailed(job.getId(), doc.getAudioError(), hasRetryBudget);
+            boolean recorded = jobService.markFailed(job.getId(), workerId, job.getAttempts(),
+                    error, hasRetryBudget);
+            if (recorded && !hasRetryBudget) {
+                checkpoint.discard(); // no attempt will resume from these chunks
+                quota.release(job.getDocId()); // nothing will be charged against the hold
+            }
         }
     }
 
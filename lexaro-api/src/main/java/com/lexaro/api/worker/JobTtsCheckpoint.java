@@ -0,0 +1,175 @@
+package com.lexaro.api.worker;
+
+import com.lexaro.api.domain.Job;
+import com.lexaro.api.domain.JobPayload;
+import com.lexaro.api.service.JobService;
+import com.lexaro.api.service.LongFormCheckpoint;
+import com.lexaro.api.service.TtsCheckpoint;
+import com.lexaro.api.storage.StorageService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@link LongFormCheckpoint} backed by the job row: the cursor lives in the job payload and
+ * chunk audio under {@code aud/tmp/jobs/{jobId}/}. The prefix is per job, so a fresh
+ * enqueue of the same document never picks up a stale cursor.
+ *
+ * <p>Cursor updates go through {@link JobService#saveProgress}, which is fenced on the
+ * claim; once it reports the lease lost, this attempt stops advancing the cursor. The
+ * runner's heartbeat reports a lost lease through {@code held}, so the worker also stops
+ * when the job was reclaimed between two cursor updates.
+ *
+ * <p>Each long-form task id is saved the same way as soon as it is submitted;
+ * {@link JobRunner} then parks the job with {@link JobService#defer}.
+ */
+@Slf4j
+final class JobTtsCheckpoint implements LongFormCheckpoint {
+
+    private final JobService jobService;
+    private final StorageService storage;
+    private final Job job;
+    private final String workerId;
+    private final BooleanSupplier held;
+
+    private volatile JobPayload payload;
+    private volatile boolean fenced;
+    private volatile boolean awaiting;
+
+    JobTtsCheckpoint(JobService jobService, StorageService storage, Job job, String workerId,
+                     BooleanSupplier held, JobPayload payload) {
+        this.jobService = jobService;
+        this.storage = storage;
+        this.job = job;
+        this.workerId = workerId;
+        this.held = held;
+        this.payload = payload;
+    }
+
+    @Override
+    public String chunkKeyPrefix() {
+        return TtsCheckpoint.jobChunkPrefix(job.getId());
+    }
+
+    @Override
+    public int completedChunks(String fingerprint) {
+        JobPayload p = payload;
+        if (p.chunksDone() == null || !fingerprint.equals(p.chunkFingerprint())) return 0;
+        return p.chunksDone();
+    }
+
+    @Override
+    public boolean advance(String fingerprint, int completed, boolean lastEmpty) {
+        if (fenced) return false;
+        List<Integer> empty = payload.emptyChunks();
+        if (empty == null || !fingerprint.equals(payload.chunkFingerprint())) empty = List.of();
+        if (lastEmpty) {
+            List<Integer> grown = new ArrayList<>(empty);
+            grown.add(completed - 1);
+            empty = List.copyOf(grown);
+        }
+        JobPayload next = payload.withProgress(fingerprint, completed, empty.isEmpty() ? null : empty);
+        if (!jobService.saveProgress(job.getId(), workerId, job.getAttempts(), next)) {
+            fenced = true;
+            log.warn("Checkpoint for job id={} not saved: lease lost (workerId={})", job.getId(), workerId);
+            return false;
+        }
+        payload = next;
+        return true;
+    }
+
+    @Override
+    public JobService.Lease lease() {
+        return new JobService.Lease(job.getId(), workerId, job.getAttempts());
+    }
+
+    @Override
+    public boolean leaseLost() {
+        return fenced || !held.getAsBoolean();
+    }
+
+    @Override
+    public Tasks longFormTasks() {
+        JobPayload p = payload;
+        if (p.longFormTasks() == null || p.longFormTotal() == null || p.longFormChars() == null) return null;
+        return new Tasks(p.chunkFingerprint(), p.longFormTasks(), p.longFormTotal(), p.longFormChars());
+    }
+
+    @Override
+    public boolean longFormStarted(String fingerprint, String taskId, int total, int chars) {
+        JobPayload p = payload;
+        List<String> ids = new ArrayList<>();
+        if (p.longFormTasks() != null && fingerprint.equals(p.chunkFingerprint())) ids.addAll(p.longFormTasks());
+        ids.add(taskId);
+        return save(p.withLongFormTasks(fingerprint, List.copyOf(ids), total, chars));
+    }
+
+    @Override
+    public void awaitLongForm() {
+        awaiting = true;
+    }
+
+    @Override
+    public void forgetLongForm() {
+        if (payload.longFormTasks() == null) return;
+        save(payload.withLongFormTasks(null, null, null, null));
+    }
+
+    /** Fenced payload write; a lost lease stops every later write of this attempt. */
+    private boolean save(JobPayload next) {
+        if (fenced) return false;
+        if (!jobService.saveProgress(job.getId(), workerId, job.getAttempts(), next)) {
+            fenced = true;
+            return false;
+        }
+        payload = next;
+        return true;
+    }
+
+    /** Whether the worker parked the job on long-form tasks during this attempt. */
+    boolean awaiting() {
+        return awaiting;
+    }
+
+    /** The payload as the worker left it, including any long-form tasks to wait for. */
+    JobPayload payload() {
+        return payload;
+    }
+
+    /**
+     * Best-effort removal of the persisted chunk objects once the job can no longer
+     * resume (permanent failure). Successful runs are cleaned up by the worker itself.
+     * Lists the job's prefix, so chunks stored past the saved cursor (a crash between
+     * the put and {@link #advance}, or an attempt that lost its lease) go too; stores
+     * that cannot list fall back to the cursor's range.
+     */
+    void discard() {
+        Collection<String> keys;
+        try {
+            Map<String, Long> listed = storage.sizes(chunkKeyPrefix());
+            keys = listed != null ? listed.keySet() : cursorKeys();
+        } catch (Exception e) {
+            log.debug("Could not list checkpoint chunks under {}: {}", chunkKeyPrefix(), e.getMessage());
+            keys = cursorKeys();
+        }
+        for (String key : keys) {
+            try {
+                storage.delete(key);
+            } catch (Exception e) {
+                log.debug("Could not delete checkpoint chunk {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private List<String> cursorKeys() {
+        Integer done = payload.chunksDone();
+        if (done == null) return List.of();
+        List<String> keys = new ArrayList<>(done);
+        for (int i = 0; i < done; i++) keys.add(chunkKey(i));
+        return keys;
+    }
+}
@@ -0,0 +1,13 @@
+-- =============================================================================
+-- V48__tts_provider_bucket.sql
+-- =============================================================================
+-- Shared token bucket per TTS provider account, used when
+-- app.tts.limits.cluster=true so all nodes draw from one request-rate budget.
+-- Rows are created on first use; rate and burst size come from configuration.
+-- =============================================================================
+
+CREATE TABLE IF NOT EXISTS tts_provider_bucket (
+    provider   VARCHAR(32)      PRIMARY KEY,
+    tokens     DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMPTZ      NOT NULL DEFAULT NOW()
+);
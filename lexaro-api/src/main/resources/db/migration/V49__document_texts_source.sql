@@ -0,0 +1,16 @@
+-- =============================================================================
+-- V49__document_texts_source.sql
+-- =============================================================================
+-- Records which file a stored extraction came from, so the TTS start path, the
+-- audio worker, the text endpoint and education indexing can all reuse one
+-- extraction instead of downloading and extracting (or OCR-ing) the file again.
+--   source_key    : documents.object_key the text was extracted from
+--   source_sha256 : SHA-256 of the extracted file's bytes
+--   max_pages     : page limit used for the extraction (0 = whole document)
+-- Existing rows have no source and are re-extracted once on next use.
+-- =============================================================================
+
+ALTER TABLE public.document_texts
+    ADD COLUMN IF NOT EXISTS source_key    TEXT        NULL,
+    ADD COLUMN IF NOT EXISTS source_sha256 VARCHAR(64) NULL,
+    ADD COLUMN IF NOT EXISTS max_pages     INTEGER     NOT NULL DEFAULT 0;
@@ -0,0 +1,83 @@
+-- =============================================================================
+-- V50__tts_quota_reservation.sql
+-- =============================================================================
+-- Quota reservation ledger. Starting TTS for a document holds its planned chars
+-- here until the worker charges the actual count to tts_usage/tts_usage_day, or
+-- the job fails for good. A hold whose expires_at has passed no longer counts, so
+-- a job abandoned by a crashed node cannot block its user indefinitely.
+--
+-- tts_reserve_chars() is the whole admission check in one call: it serializes
+-- admissions per user on the users row, then sums usage, top-ups and live holds
+-- and inserts the hold only if both the daily and the monthly cap still fit.
+-- Each statement in a plpgsql function takes a fresh snapshot, so every hold
+-- committed by a concurrent admission on any node is counted.
+-- =============================================================================
+
+CREATE TABLE IF NOT EXISTS tts_quota_reservation (
+    doc_id     BIGINT      PRIMARY KEY REFERENCES documents(id) ON DELETE CASCADE,
+    user_id    BIGINT      NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    chars      BIGINT      NOT NULL CHECK (chars >= 0),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_tts_quota_reservation_user
+    ON tts_quota_reservation(user_id, expires_at);
+
+-- Caps are NULL when unlimited. Top-ups raise the monthly cap only.
+-- An existing hold for the same document is replaced, not added to.
+-- tts_usage_day.period_ymd is DATE (V18 creates it; V27 is a no-op after that).
+CREATE OR REPLACE FUNCTION tts_reserve_chars(
+    p_user_id    BIGINT,
+    p_doc_id     BIGINT,
+    p_chars      BIGINT,
+    p_month_cap  BIGINT,
+    p_day_cap    BIGINT,
+    p_period_ym  TEXT,
+    p_period_ymd DATE,
+    p_ttl_secs   INT
+) RETURNS TABLE (admitted BOOLEAN, month_remaining BIGINT, day_remaining BIGINT)
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_held   BIGINT;
+    v_month  BIGINT;
+    v_day    BIGINT;
+    v_topups BIGINT;
+BEGIN
+    PERFORM 1 FROM users WHERE id = p_user_id FOR NO KEY UPDATE;
+
+    SELECT COALESCE(SUM(r.chars), 0) INTO v_held
+      FROM tts_quota_reservation r
+     WHERE r.user_id = p_user_id AND r.expires_at > NOW() AND r.doc_id <> p_doc_id;
+
+    SELECT COALESCE(MAX(u.chars_used), 0) INTO v_month
+      FROM tts_usage u
+     WHERE u.user_id = p_user_id AND u.period_ym = p_period_ym;
+
+    SELECT COALESCE(MAX(d.chars_used), 0) INTO v_day
+      FROM tts_usage_day d
+     WHERE d.user_id = p_user_id AND d.period_ymd = p_period_ymd;
+
+    SELECT COALESCE(SUM(t.chars), 0) INTO v_topups
+      FROM tts_topups t
+     WHERE t.user_id = p_user_id AND t.period_ym = p_period_ym;
+
+    month_remaining := CASE WHEN p_month_cap IS NULL THEN NULL
+                            ELSE GREATEST(0, p_month_cap + v_topups - v_month - v_held) END;
+    day_remaining   := CASE WHEN p_day_cap IS NULL THEN NULL
+                            ELSE GREATEST(0, p_day_cap - v_day - v_held) END;
+    admitted := (month_remaining IS NULL OR p_chars <= month_remaining)
+            AND (day_remaining IS NULL OR p_chars <= day_remaining);
+
+    IF admitted THEN
+        INSERT INTO tts_quota_reservation (doc_id, user_id, chars, created_at, expires_at)
+        VALUES (p_doc_id, p_user_id, p_chars, NOW(), NOW() + make_interval(secs => p_ttl_secs))
+        ON CONFLICT (doc_id) DO UPDATE
+            SET user_id    = EXCLUDED.user_id,
+                chars      = EXCLUDED.chars,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at;
+    END IF;
+    RETURN NEXT;
+END
+$$;
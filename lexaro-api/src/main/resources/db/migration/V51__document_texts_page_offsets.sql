@@ -0,0 +1,5 @@
+-- Page structure of document_texts.text: page_offsets[i] is where page i (1-based)
+-- starts, in characters (code points, as substr() counts them). A page ends where the
+-- next one starts, the last one at the end of the text. NULL = extracted before pages
+-- were kept; such rows are re-extracted when page-aware reads need them.
+ALTER TABLE document_texts ADD COLUMN IF NOT EXISTS page_offsets INT[];
@@ -0,0 +1,115 @@
+package com.lexaro.api.extract;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Native text extraction of multi-hundred-page PDFs: one {@link PdfPageText} pass on the
+ * calling thread against the page range split across a pool of {@code threads}.
+ *
+ * <p>Not a test; run with
+ * {@code mvn -Pbench -Dbench.main=com.lexaro.api.extract.PdfExtractBenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PdfExtractBenchmark {
+
+    @Param({"200", "600"})
+    public int pages;
+
+    @Param({"2", "4", "8"})
+    public int threads;
+
+    @Param({"25"})
+    public int minPagesPerTask;
+
+    private byte[] pdf;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws Exception {
+        pdf = textbook(pages);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() throws Exception {
+        try (PDDocument doc = Loader.loadPDF(pdf)) {
+            return PdfPageText.pages(doc, 1, pages);
+        }
+    }
+
+    @Benchmark
+    public List<String> parallel() throws Exception {
+        return PdfPageText.pages(() -> Loader.loadPDF(pdf), pages, pool, minPagesPerTask);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PdfExtractBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /** Deterministic text-only PDF: 45 lines of prose-like words per page. */
+    static byte[] textbook(int pageCount) throws Exception {
+        String[] words = {"the", "reader", "document", "chapter", "a", "of", "lexaro", "audio", "is",
+                "synthesis", "and", "page", "with", "voice", "text", "in", "long-form", "study"};
+        Random r = new Random(42);
+        var font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        try (PDDocument doc = new PDDocument()) {
+            for (int p = 0; p < pageCount; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (var cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 10);
+                    cs.setLeading(14);
+                    cs.newLineAtOffset(50, 740);
+                    for (int line = 0; line < 45; line++) {
+                        StringBuilder sb = new StringBuilder();
+                        while (sb.length() < 90) sb.append(words[r.nextInt(words.length)]).append(' ');
+                        cs.showText(sb.toString().trim());
+                        cs.newLine();
+                    }
+                    cs.endText();
+                }
+            }
+            var out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
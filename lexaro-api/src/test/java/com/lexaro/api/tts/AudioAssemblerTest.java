@@ -0,0 +1,318 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The three {@link AudioAssembler}s on hand-built chunks: MP3 frames behind a single Xing
+ * frame with a seek TOC, Ogg pages spliced into one logical stream, PCM wrapped in one
+ * WAV header.
+ */
+class AudioAssemblerTest {
+
+    // ---------- MP3 ----------
+
+    /** MPEG-1 Layer III, no CRC, 44.1 kHz, mono; bitrate index in bits 12-15. */
+    private static final int MP3_HEADER = 0xFFFB00C0;
+    private static final int KBPS_128 = 9;
+    private static final int KBPS_64 = 5;
+
+    @Test
+    void mp3DropsPerChunkTagsAndWritesOneInfoFrame() throws IOException {
+        byte[] a = mp3Chunk(KBPS_128, 10, 0x11);
+        byte[] b = mp3Chunk(KBPS_128, 10, 0x22);
+
+        byte[] out = assemble("mp3", a, b);
+
+        int tagLen = Mp3FrameAssembler.frameLength(readIntBE(out, 0));
+        byte[] audio = Arrays.copyOfRange(out, tagLen, out.length);
+        assertArrayEquals(concat(audioFrames(KBPS_128, 10, 0x11), audioFrames(KBPS_128, 10, 0x22)), audio);
+
+        int tag = 4 + 17; // mono MPEG-1 side info
+        assertEquals("Info", ascii(out, tag, 4), "constant bitrate is tagged Info");
+        assertEquals(0x7, readIntBE(out, tag + 4), "frames, bytes and TOC present");
+        assertEquals(20, readIntBE(out, tag + 8));
+        assertEquals(out.length, readIntBE(out, tag + 12));
+    }
+
+    @Test
+    void mp3TocPointsAtFrameStartsInOrder() throws IOException {
+        byte[] out = assemble("mp3", mp3Chunk(KBPS_128, 50, 0x11), mp3Chunk(KBPS_128, 50, 0x22));
+
+        int frameLen = Mp3FrameAssembler.frameLength(MP3_HEADER | KBPS_128 << 12);
+        int tagLen = Mp3FrameAssembler.frameLength(readIntBE(out, 0));
+        int toc = 4 + 17 + 16;
+        int prev = -1;
+        for (int i = 0; i < 100; i++) {
+            int entry = out[toc + i] & 0xFF;
+            assertTrue(entry >= prev, "TOC is non-decreasing");
+            prev = entry;
+            // 100 frames, so entry i is frame i: its offset scaled to 0..255 of the file
+            long offset = tagLen + (long) i * frameLen;
+            assertEquals(offset * 256 / out.length, entry, "TOC entry " + i);
+        }
+    }
+
+    @Test
+    void mp3MixedBitratesAreTaggedXingAndTimed() throws IOException {
+        var buf = new ByteArrayOutputStream();
+        try (AudioAssembler asm = AudioAssembler.forFormat("mp3", buf, 0)) {
+            asm.append(mp3Chunk(KBPS_128, 10, 0x11));
+            assertEquals(10 * 1152 * 1000L / 44100, asm.durationMillis());
+            asm.append(concat(new byte[]{'J', 'U', 'N', 'K'}, mp3Chunk(KBPS_64, 10, 0x22)));
+            asm.finish();
+            assertEquals(20 * 1152 * 1000L / 44100, asm.durationMillis());
+        }
+        byte[] out = buf.toByteArray();
+        assertEquals("Xing", ascii(out, 4 + 17, 4));
+        assertEquals(20, readIntBE(out, 4 + 17 + 8));
+    }
+
+    /** ID3v2 tag, an Info frame describing just this chunk, then {@code frames} audio frames. */
+    private static byte[] mp3Chunk(int bitrateIndex, int frames, int fill) {
+        byte[] id3 = {'I', 'D', '3', 4, 0, 0, 0, 0, 0, 6, 'T', 'I', 'T', '2', 0, 0};
+        byte[] info = mp3Frame(bitrateIndex, 0);
+        System.arraycopy("Info".getBytes(StandardCharsets.US_ASCII), 0, info, 4 + 17, 4);
+        return concat(id3, info, audioFrames(bitrateIndex, frames, fill));
+    }
+
+    private static byte[] audioFrames(int bitrateIndex, int frames, int fill) {
+        var out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) out.writeBytes(mp3Frame(bitrateIndex, fill + i));
+        return out.toByteArray();
+    }
+
+    private static byte[] mp3Frame(int bitrateIndex, int fill) {
+        int h = MP3_HEADER | bitrateIndex << 12;
+        byte[] f = new byte[Mp3FrameAssembler.frameLength(h)];
+        Arrays.fill(f, (byte) (fill & 0x7F));
+        writeIntBE(f, 0, h);
+        return f;
+    }
+
+    // ---------- Ogg ----------
+
+    private static final int VORBIS_RATE = 24000;
+
+    @Test
+    void oggSplicesChunksIntoOneStreamWithValidPages() throws IOException {
+        byte[] a = oggChunk(11, VORBIS_RATE, "first", 1000, 2000, 2500);
+        byte[] b = oggChunk(77, VORBIS_RATE, "second", 1000, 2000, 2500);
+
+        List<byte[]> pages = pages(assemble("ogg", a, b));
+
+        assertEquals(2 + 3 + 3, pages.size(), "header pages of the second chunk are dropped");
+        long[] expected = {0, 0, 1000, 2000, 2500, 3500, 4500, 5000};
+        for (int i = 0; i < pages.size(); i++) {
+            byte[] p = pages.get(i);
+            assertEquals(crc(p), readIntLE(p, 22), "CRC of page " + i);
+            assertEquals(11, readIntLE(p, 14), "serial of page " + i);
+            assertEquals(i, readIntLE(p, 18), "sequence of page " + i);
+            assertEquals(expected[i], readLongLE(p, 6), "granule of page " + i);
+            int flags = p[5];
+            assertEquals(i == 0 ? 0x02 : i == pages.size() - 1 ? 0x04 : 0, flags, "BOS/EOS of page " + i);
+        }
+    }
+
+    @Test
+    void oggDifferentHeadersStartAChainedLink() throws IOException {
+        var buf = new ByteArrayOutputStream();
+        try (AudioAssembler asm = AudioAssembler.forFormat("ogg", buf, 0)) {
+            asm.append(oggChunk(11, VORBIS_RATE, "a", 2400));
+            asm.append(oggChunk(11, 48000, "b", 4800));
+            asm.finish();
+            assertEquals(100 + 100, asm.durationMillis());
+        }
+        List<byte[]> pages = pages(buf.toByteArray());
+
+        assertEquals(2 * 3, pages.size());
+        assertEquals(0x04, pages.get(2)[5], "first link ends with EOS");
+        assertEquals(0x02, pages.get(3)[5], "second link starts with BOS");
+        assertEquals(12, readIntLE(pages.get(3), 14), "second link has its own serial");
+        assertEquals(0, readIntLE(pages.get(3), 18), "second link restarts the sequence");
+        assertEquals(4800, readLongLE(pages.get(5), 6), "second link restarts the granule");
+        for (byte[] p : pages) assertEquals(crc(p), readIntLE(p, 22));
+    }
+
+    /** BOS page with the id header, one page with comment + setup, then one audio page per granule. */
+    private static byte[] oggChunk(int serial, int rate, String comment, long... granules) {
+        byte[] id = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 1).put("vorbis".getBytes(StandardCharsets.US_ASCII))
+                .putInt(0).put((byte) 1).putInt(rate).array();
+        byte[] commentPacket = concat(new byte[]{3}, ("vorbis" + comment).getBytes(StandardCharsets.US_ASCII));
+        byte[] setup = concat(new byte[]{5}, "vorbis-setup".getBytes(StandardCharsets.US_ASCII));
+
+        var out = new ByteArrayOutputStream();
+        int seq = 0;
+        out.writeBytes(oggPage(0x02, 0, serial, seq++, id));
+        out.writeBytes(oggPage(0, 0, serial, seq++, commentPacket, setup));
+        for (int i = 0; i < granules.length; i++) {
+            byte[] packet = new byte[300 + i]; // spans two lacing values
+            Arrays.fill(packet, (byte) (i + 1));
+            out.writeBytes(oggPage(i == granules.length - 1 ? 0x04 : 0, granules[i], serial, seq++, packet));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] oggPage(int flags, long granule, int serial, int sequence, byte[]... packets) {
+        var lacing = new ByteArrayOutputStream();
+        var body = new ByteArrayOutputStream();
+        for (byte[] p : packets) {
+            int n = p.length;
+            while (n >= 255) {
+                lacing.write(255);
+                n -= 255;
+            }
+            lacing.write(n);
+            body.writeBytes(p);
+        }
+        byte[] page = new byte[27 + lacing.size() + body.size()];
+        ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN)
+                .put("OggS".getBytes(StandardCharsets.US_ASCII)).put((byte) 0).put((byte) flags)
+                .putLong(granule).putInt(serial).putInt(sequence).putInt(0)
+                .put((byte) lacing.size()).put(lacing.toByteArray()).put(body.toByteArray());
+        writeIntLE(page, 22, crc(page));
+        return page;
+    }
+
+    private static List<byte[]> pages(byte[] ogg) {
+        List<byte[]> out = new ArrayList<>();
+        int pos = 0;
+        while (pos < ogg.length) {
+            assertEquals("OggS", ascii(ogg, pos, 4), "page at " + pos);
+            int segments = ogg[pos + 26] & 0xFF;
+            int len = 27 + segments;
+            for (int s = 0; s < segments; s++) len += ogg[pos + 27 + s] & 0xFF;
+            out.add(Arrays.copyOfRange(ogg, pos, pos + len));
+            pos += len;
+        }
+        return out;
+    }
+
+    /** Ogg CRC-32 (polynomial 0x04C11DB7, no reflection) with the CRC field taken as zero. */
+    private static int crc(byte[] page) {
+        int crc = 0;
+        for (int i = 0; i < page.length; i++) {
+            int b = i >= 22 && i < 26 ? 0 : page[i] & 0xFF;
+            crc ^= b << 24;
+            for (int k = 0; k < 8; k++) crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+        }
+        return crc;
+    }
+
+    // ---------- WAV ----------
+
+    @Test
+    void wavWrapsRawPcmInOneHeader() throws IOException {
+        byte[] a = pcm(1000, 1);
+        byte[] b = pcm(501, 2); // odd byte is dropped to stay sample-aligned
+
+        var buf = new ByteArrayOutputStream();
+        try (AudioAssembler asm = AudioAssembler.forFormat("wav", buf, 16000)) {
+            asm.append(a);
+            asm.append(b);
+            asm.finish();
+            assertEquals(1500 / 2 * 1000 / 16000, asm.durationMillis());
+        }
+        byte[] out = buf.toByteArray();
+
+        assertEquals("RIFF", ascii(out, 0, 4));
+        assertEquals(36 + 1500, readIntLE(out, 4));
+        assertEquals("WAVEfmt ", ascii(out, 8, 8));
+        assertEquals(1, readShortLE(out, 20), "PCM");
+        assertEquals(1, readShortLE(out, 22), "mono");
+        assertEquals(16000, readIntLE(out, 24));
+        assertEquals(32000, readIntLE(out, 28), "byte rate");
+        assertEquals(16, readShortLE(out, 34), "bits per sample");
+        assertEquals("data", ascii(out, 36, 4));
+        assertEquals(1500, readIntLE(out, 40));
+        assertArrayEquals(concat(a, Arrays.copyOf(b, 500)), Arrays.copyOfRange(out, 44, out.length));
+    }
+
+    @Test
+    void wavStandaloneChunksRoundTripThroughTheAssembler() throws IOException {
+        byte[] a = pcm(800, 1);
+        byte[] b = pcm(400, 2);
+
+        byte[] wavA = AudioAssembler.standalone("wav", a, 22050);
+        assertEquals(44 + 800, wavA.length);
+        assertEquals(22050, readIntLE(wavA, 24));
+        assertSame(wavA, AudioAssembler.standalone("wav", wavA, 22050));
+        assertEquals(0, AudioAssembler.standalone("wav", new byte[0], 22050).length);
+        assertSame(a, AudioAssembler.standalone("mp3", a, 22050));
+
+        // a resumed chunk comes back with its header; a fresh one without
+        byte[] joined = assemble("wav", wavA, b);
+        assertEquals(1200, readIntLE(joined, 40));
+        assertArrayEquals(concat(a, b), Arrays.copyOfRange(joined, 44, joined.length));
+    }
+
+    @Test
+    void wavWithNothingAppendedWritesNothing() throws IOException {
+        assertEquals(0, assemble("wav", new byte[0], null).length);
+    }
+
+    private static byte[] pcm(int length, int seed) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) b[i] = (byte) (i * 31 + seed);
+        return b;
+    }
+
+    // ---------- helpers ----------
+
+    private static byte[] assemble(String ext, byte[]... chunks) throws IOException {
+        var buf = new ByteArrayOutputStream();
+        try (AudioAssembler asm = AudioAssembler.forFormat(ext, buf, 16000)) {
+            for (byte[] c : chunks) asm.append(c);
+            asm.finish();
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        var out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+
+    private static String ascii(byte[] b, int pos, int len) {
+        return new String(b, pos, len, StandardCharsets.US_ASCII);
+    }
+
+    private static int readIntBE(byte[] b, int pos) {
+        return ByteBuffer.wrap(b, pos, 4).getInt();
+    }
+
+    private static void writeIntBE(byte[] b, int pos, int v) {
+        ByteBuffer.wrap(b, pos, 4).putInt(v);
+    }
+
+    private static int readShortLE(byte[] b, int pos) {
+        return ByteBuffer.wrap(b, pos, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
+    }
+
+    private static int readIntLE(byte[] b, int pos) {
+        return ByteBuffer.wrap(b, pos, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private static long readLongLE(byte[] b, int pos) {
+        return ByteBuffer.wrap(b, pos, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    private static void writeIntLE(byte[] b, int pos, int v) {
+        ByteBuffer.wrap(b, pos, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(v);
+    }
+}
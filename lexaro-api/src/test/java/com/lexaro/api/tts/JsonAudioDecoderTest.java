@@ -0,0 +1,106 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link JsonAudioDecoder} against {@link Base64}: responses fed in arbitrary splits, every
+ * padding length, the escapes Speechify's JSON may contain, and malformed input.
+ */
+class JsonAudioDecoderTest {
+
+    @Test
+    void decodesWhateverTheBufferSplits() {
+        byte[] audio = bytes(3_001, 1);
+        byte[] json = response(Base64.getEncoder().encodeToString(audio));
+
+        for (int piece = 1; piece <= 17; piece++) {
+            assertArrayEquals(audio, decode(json, piece));
+        }
+        Random r = new Random(2);
+        for (int run = 0; run < 50; run++) {
+            JsonAudioDecoder d = new JsonAudioDecoder(16);
+            for (int off = 0; off < json.length; ) {
+                int n = Math.min(json.length - off, 1 + r.nextInt(200));
+                d.feed(json, off, n);
+                off += n;
+            }
+            assertArrayEquals(audio, d.finish());
+        }
+    }
+
+    @Test
+    void everyPaddingLengthRoundTrips() {
+        for (int n = 1; n <= 9; n++) {
+            byte[] audio = bytes(n, n);
+            assertArrayEquals(audio, decode(response(Base64.getEncoder().encodeToString(audio)), 1));
+            assertArrayEquals(audio, decode(response(Base64.getEncoder().withoutPadding().encodeToString(audio)), 3));
+        }
+    }
+
+    @Test
+    void handlesEscapedSlashesAndLineBreaks() {
+        byte[] audio = bytes(2_000, 3);
+        String mime = Base64.getMimeEncoder().encodeToString(audio); // \r\n every 76 chars
+
+        assertArrayEquals(audio, decode(response(mime.replace("/", "\\/").replace("\r\n", "\\r\\n")), 7));
+        assertArrayEquals(audio, decode(response(mime.replace("\r\n", "\\n")), 5));
+        assertArrayEquals(audio, decode(response(mime), 11)); // literal line breaks
+    }
+
+    @Test
+    void acceptsTheUrlSafeAlphabet() {
+        byte[] audio = bytes(999, 4);
+
+        assertArrayEquals(audio, decode(response(Base64.getUrlEncoder().encodeToString(audio)), 2));
+    }
+
+    @Test
+    void skipsAudioDataAppearingAsAValue() {
+        byte[] json = "{\"name\":\"audio_data\", \"audio_data\" : \"AQID\"}".getBytes(StandardCharsets.US_ASCII);
+
+        assertArrayEquals(new byte[]{1, 2, 3}, decode(json, 4));
+    }
+
+    @Test
+    void rejectsMissingEmptyOrMalformedAudio() {
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_format\":\"mp3\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":null}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"AQ!D\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"AQ==AQID\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"A\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"AQ\\tD\"}"), 8));
+        assertThrows(IllegalArgumentException.class, () -> decode(ascii("{\"audio_data\":\"AQID"), 8));
+    }
+
+    /** A Speechify-shaped response with {@code audio_data} between other fields. */
+    private static byte[] response(String base64) {
+        return ascii("{\"audio_format\":\"mp3\",\n  \"audio_data\": \"" + base64
+                + "\",\"billable_characters_count\":42,\"speech_marks\":{\"chunks\":[]}}");
+    }
+
+    private static byte[] decode(byte[] json, int piece) {
+        JsonAudioDecoder d = new JsonAudioDecoder(16);
+        for (int off = 0; off < json.length; off += piece) {
+            d.feed(json, off, Math.min(piece, json.length - off));
+        }
+        return d.finish();
+    }
+
+    private static byte[] bytes(int n, long seed) {
+        byte[] b = new byte[n];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,128 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link OrderedFanout}: results reach the sink in index order with at most {@code window}
+ * tasks in flight, and the first failure cancels what is outstanding and is rethrown as is.
+ */
+class OrderedFanoutTest {
+
+    @Test
+    void deliversInIndexOrderWithinTheWindow() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Random r = new Random(1);
+            int[] delays = IntStream.range(0, 40).map(i -> r.nextInt(15)).toArray();
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            List<Integer> seen = new ArrayList<>();
+
+            OrderedFanout.run(pool, delays.length, 3, i -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(delays[i]);
+                inFlight.decrementAndGet();
+                return i * 10;
+            }, (i, result) -> {
+                assertEquals(i * 10, (int) result);
+                seen.add(i);
+            });
+
+            assertEquals(IntStream.range(0, delays.length).boxed().toList(), seen);
+            assertTrue(maxInFlight.get() <= 3, "in flight: " + maxInFlight.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aWindowOfOneRunsOnTheCallersThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        List<Integer> seen = new ArrayList<>();
+
+        OrderedFanout.run(command -> { throw new AssertionError("no executor needed"); }, 5, 1, i -> {
+            assertSame(caller, Thread.currentThread());
+            return i;
+        }, (i, result) -> seen.add(result));
+
+        assertEquals(List.of(0, 1, 2, 3, 4), seen);
+    }
+
+    @Test
+    void aFailedTaskIsRethrownAndStopsLaterTasks() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            AtomicInteger started = new AtomicInteger();
+            List<Integer> seen = new ArrayList<>();
+
+            IOException e = assertThrows(IOException.class, () -> OrderedFanout.run(pool, 20, 2, i -> {
+                started.incrementAndGet();
+                if (i == 1) throw new IOException("chunk 1 failed");
+                return i;
+            }, (i, result) -> seen.add(i)));
+
+            assertEquals("chunk 1 failed", e.getMessage());
+            assertEquals(List.of(0), seen);
+            assertTrue(started.get() <= 3, "only the window was started: " + started.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aFailureCancelsEveryOutstandingFuture() {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> OrderedFanout.runAsync(10, 4, i -> {
+            CompletableFuture<Integer> f = i == 0
+                    ? CompletableFuture.failedFuture(new IllegalStateException("provider down"))
+                    : new CompletableFuture<>();
+            started.add(f);
+            return f;
+        }, (i, result) -> { }));
+
+        assertEquals("provider down", e.getMessage());
+        assertEquals(4, started.size());
+        for (CompletableFuture<Integer> f : started.subList(1, 4)) assertTrue(f.isCancelled());
+    }
+
+    @Test
+    void aSinkFailureCancelsTheRestToo() {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+
+        assertThrows(IOException.class, () -> OrderedFanout.runAsync(10, 3, i -> {
+            CompletableFuture<Integer> f = i == 0 ? CompletableFuture.completedFuture(0) : new CompletableFuture<>();
+            started.add(f);
+            return f;
+        }, (i, result) -> { throw new IOException("upload failed"); }));
+
+        assertEquals(3, started.size());
+        assertTrue(started.get(1).isCancelled());
+        assertTrue(started.get(2).isCancelled());
+    }
+
+    @Test
+    void aTaskThatThrowsWhileStartingFailsLikeAFailedFuture() {
+        IOException e = assertThrows(IOException.class, () -> OrderedFanout.<Integer>runAsync(3, 2, i -> {
+            if (i == 0) throw new IOException("could not start");
+            return CompletableFuture.completedFuture(i);
+        }, (i, result) -> { }));
+
+        assertEquals("could not start", e.getMessage());
+    }
+}
@@ -0,0 +1,148 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * State transitions of {@link ProviderCircuitBreaker}: opening on failed or slow calls,
+ * half-open trials, handing back a trial that never ran, and the window's percentile.
+ */
+class ProviderCircuitBreakerTest {
+
+    private static final long FAST = ms(10);
+    private static final long SLOW = ms(2_000);
+
+    @Test
+    void opensOnceTheFailureRateIsReached() {
+        ProviderCircuitBreaker b = breaker(Duration.ofMinutes(1), 1);
+
+        b.onSuccess(FAST);
+        b.onSuccess(FAST);
+        b.onFailure(FAST);
+        assertEquals(ProviderCircuitBreaker.State.CLOSED, b.state(), "under minCalls");
+        b.onFailure(FAST);
+
+        assertEquals(ProviderCircuitBreaker.State.OPEN, b.state());
+        assertFalse(b.tryAcquire(), "open refuses calls until openFor has passed");
+    }
+
+    @Test
+    void staysClosedBelowTheThresholds() {
+        ProviderCircuitBreaker b = breaker(Duration.ofMinutes(1), 1);
+
+        for (int i = 0; i < 3; i++) b.onSuccess(FAST);
+        b.onFailure(FAST);
+
+        assertEquals(ProviderCircuitBreaker.State.CLOSED, b.state());
+        assertTrue(b.tryAcquire());
+    }
+
+    @Test
+    void slowSuccessesOpenItToo() {
+        ProviderCircuitBreaker b = breaker(Duration.ofMinutes(1), 1);
+
+        b.onSuccess(FAST);
+        b.onSuccess(FAST);
+        b.onSuccess(SLOW);
+        b.onSuccess(SLOW);
+
+        assertEquals(ProviderCircuitBreaker.State.OPEN, b.state());
+    }
+
+    @Test
+    void healthyTrialsCloseItAndResetTheWindow() {
+        ProviderCircuitBreaker b = tripped(2);
+
+        assertTrue(b.tryAcquire());
+        assertEquals(ProviderCircuitBreaker.State.HALF_OPEN, b.state());
+        assertTrue(b.tryAcquire());
+        assertFalse(b.tryAcquire(), "only halfOpenCalls trials at a time");
+
+        b.onSuccess(FAST);
+        assertEquals(ProviderCircuitBreaker.State.HALF_OPEN, b.state());
+        b.onSuccess(FAST);
+
+        assertEquals(ProviderCircuitBreaker.State.CLOSED, b.state());
+        assertEquals(-1, b.percentileMillis(0.5), "the failures that opened it are forgotten");
+    }
+
+    @Test
+    void aFailedOrSlowTrialOpensItAgain() {
+        ProviderCircuitBreaker failed = tripped(2);
+        failed.tryAcquire();
+        failed.onFailure(FAST);
+        assertEquals(ProviderCircuitBreaker.State.OPEN, failed.state());
+
+        ProviderCircuitBreaker slow = tripped(2);
+        slow.tryAcquire();
+        slow.onSuccess(SLOW);
+        assertEquals(ProviderCircuitBreaker.State.OPEN, slow.state());
+    }
+
+    @Test
+    void aReleasedTrialCanBeTakenAgain() {
+        ProviderCircuitBreaker b = tripped(1);
+
+        assertTrue(b.tryAcquire());
+        assertFalse(b.tryAcquire());
+        b.release();
+
+        assertTrue(b.tryAcquire(), "the trial that never ran is back");
+        assertFalse(b.tryAcquire());
+        b.onSuccess(FAST);
+        assertEquals(ProviderCircuitBreaker.State.CLOSED, b.state());
+    }
+
+    @Test
+    void releaseNeverAddsTrials() {
+        ProviderCircuitBreaker b = tripped(1);
+        b.tryAcquire();
+        b.release();
+        b.release();
+
+        assertTrue(b.tryAcquire());
+        assertFalse(b.tryAcquire(), "never more than halfOpenCalls trials");
+
+        ProviderCircuitBreaker closed = breaker(Duration.ofMinutes(1), 1);
+        closed.release();
+        assertEquals(ProviderCircuitBreaker.State.CLOSED, closed.state());
+    }
+
+    @Test
+    void percentileNeedsMinCallsAndReadsTheWindow() {
+        ProviderCircuitBreaker b = breaker(Duration.ofMinutes(1), 1);
+        b.onSuccess(ms(1));
+        b.onSuccess(ms(2));
+        b.onSuccess(ms(3));
+        assertEquals(-1, b.percentileMillis(0.5));
+
+        for (int i = 4; i <= 10; i++) b.onSuccess(ms(i));
+
+        assertEquals(5, b.percentileMillis(0.5));
+        assertEquals(9, b.percentileMillis(0.9));
+        assertEquals(10, b.percentileMillis(1.0));
+    }
+
+    /** Window 10, at least 4 calls, opens at 50% failed or slow (1 s or longer). */
+    private static ProviderCircuitBreaker breaker(Duration openFor, int halfOpenCalls) {
+        return new ProviderCircuitBreaker("test", new ProviderCircuitBreaker.Settings(
+                10, 4, 0.5, 0.5, Duration.ofSeconds(1), Duration.ofMinutes(1), openFor, halfOpenCalls));
+    }
+
+    /** Opened by failures, with openFor already over so the next call is a trial. */
+    private static ProviderCircuitBreaker tripped(int halfOpenCalls) {
+        ProviderCircuitBreaker b = breaker(Duration.ZERO, halfOpenCalls);
+        for (int i = 0; i < 4; i++) b.onFailure(FAST);
+        assertEquals(ProviderCircuitBreaker.State.OPEN, b.state());
+        return b;
+    }
+
+    private static long ms(long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+}
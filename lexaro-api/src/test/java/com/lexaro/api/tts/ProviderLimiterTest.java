@@ -0,0 +1,135 @@
+package com.lexaro.api.tts;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ProviderLimiter}: the concurrency cap, one rate token per call, slots freed when
+ * admission fails, and a 429 draining the rate source.
+ */
+class ProviderLimiterTest {
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+
+    @Test
+    void capsCallsInFlightUntilAPermitIsClosed() throws Exception {
+        ProviderLimiter limiter = new ProviderLimiter("test", 2, ProviderLimiter.unlimited(), reg);
+        ProviderLimiter.Permit a = limiter.acquire();
+        limiter.acquire();
+
+        CompletableFuture<ProviderLimiter.Permit> third = acquireAsync(limiter);
+        Thread.sleep(100);
+        assertFalse(third.isDone(), "a third call waits for a slot");
+        assertEquals(2.0, gauge("tts.provider.limiter.in_flight"), 0.0);
+        assertEquals(1.0, gauge("tts.provider.limiter.queued"), 0.0);
+
+        a.close();
+        third.get(2, TimeUnit.SECONDS);
+        assertEquals(2.0, gauge("tts.provider.limiter.in_flight"), 0.0);
+    }
+
+    @Test
+    void takesOneRateTokenPerCall() throws Exception {
+        AtomicInteger tokens = new AtomicInteger();
+        ProviderLimiter limiter = new ProviderLimiter("test", 4, tokens::incrementAndGet, reg);
+
+        for (int i = 0; i < 5; i++) limiter.acquire().close();
+
+        assertEquals(5, tokens.get());
+        assertEquals(0.0, gauge("tts.provider.limiter.in_flight"), 0.0);
+    }
+
+    @Test
+    void anInterruptedWaitFreesItsSlot() throws Exception {
+        CountDownLatch open = new CountDownLatch(1);
+        ProviderLimiter limiter = new ProviderLimiter("test", 1, open::await, reg);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        });
+        waiter.start();
+        Thread.sleep(100); // holding the only slot, blocked on the rate source
+        waiter.interrupt();
+        waiter.join(2_000);
+
+        assertTrue(error.get() instanceof InterruptedException, String.valueOf(error.get()));
+        open.countDown();
+        acquireAsync(limiter).get(2, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void aFailingRateSourceFreesItsSlot() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ProviderLimiter limiter = new ProviderLimiter("test", 1, () -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("bucket unavailable");
+        }, reg);
+
+        assertThrows(IllegalStateException.class, limiter::acquire);
+
+        acquireAsync(limiter).get(2, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void rejectionDrainsTheRateSourceAndIsCounted() {
+        AtomicInteger drains = new AtomicInteger();
+        ProviderLimiter limiter = new ProviderLimiter("test", 1, new ProviderLimiter.RateSource() {
+            @Override public void take() {}
+            @Override public void drain() { drains.incrementAndGet(); }
+        }, reg);
+
+        limiter.onRejected();
+
+        assertEquals(1, drains.get());
+        assertEquals(1.0, reg.get("tts.provider.rejected").counter().count(), 0.0);
+    }
+
+    @Test
+    void localBucketAllowsItsBurstThenWaits() throws Exception {
+        ProviderLimiter.RateSource rate = ProviderLimiter.localBucket(1, 2);
+        rate.take();
+        rate.take();
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+            try {
+                rate.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(third.isDone(), "one token per second after the burst");
+
+        ProviderLimiter.RateSource none = ProviderLimiter.localBucket(0, 1);
+        for (int i = 0; i < 1_000; i++) none.take();
+    }
+
+    private static CompletableFuture<ProviderLimiter.Permit> acquireAsync(ProviderLimiter limiter) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private double gauge(String name) {
+        return reg.get(name).gauge().value();
+    }
+}
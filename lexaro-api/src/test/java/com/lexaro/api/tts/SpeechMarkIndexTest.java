@@ -0,0 +1,158 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips and range lookups of the read-along sidecar, over enough marks to span
+ * several {@value SpeechMarkIndex#BLOCK}-mark blocks.
+ */
+class SpeechMarkIndexTest {
+
+    @Test
+    void encodeDecodeRoundTripsAcrossBlocks() throws Exception {
+        List<SpeechMark> marks = marks(3 * SpeechMarkIndex.BLOCK + 17, 1);
+
+        assertEquals(marks, SpeechMarkIndex.decode(SpeechMarkIndex.encode(marks)));
+    }
+
+    @Test
+    void emptyIndexDecodesToNothing() throws Exception {
+        assertEquals(List.of(), SpeechMarkIndex.decode(SpeechMarkIndex.encode(List.of())));
+    }
+
+    @Test
+    void rangesMatchAFilterOfAllMarks() throws Exception {
+        List<SpeechMark> marks = marks(1000, 2);
+        byte[] index = SpeechMarkIndex.encode(marks);
+        long lastTime = marks.get(marks.size() - 1).timeMs();
+        int lastStart = marks.get(marks.size() - 1).start();
+
+        Random r = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            long from = r.nextInt((int) lastTime + 50) - 10;
+            long to = from + r.nextInt(5000);
+            assertEquals(filter(marks, true, from, to), read(index, SpeechMarkIndex.Axis.TIME, from, to, 10_000),
+                    "time range [" + from + ", " + to + ")");
+
+            long cFrom = r.nextInt(lastStart + 50) - 10;
+            long cTo = cFrom + r.nextInt(3000);
+            assertEquals(filter(marks, false, cFrom, cTo), read(index, SpeechMarkIndex.Axis.CHARS, cFrom, cTo, 10_000),
+                    "char range [" + cFrom + ", " + cTo + ")");
+        }
+    }
+
+    @Test
+    void marksOnABlockBoundaryKeyAreNotMissed() throws Exception {
+        // Sentence and first word share a time and char offset, so one key can open a block
+        // while its twin closes the block before.
+        List<SpeechMark> marks = new ArrayList<>();
+        marks.add(new SpeechMark(SpeechMark.Type.WORD, 0, 0, 4));
+        for (int p = 0; p < SpeechMarkIndex.BLOCK; p++) {
+            marks.add(new SpeechMark(SpeechMark.Type.SENTENCE, 10 + p * 10L, 5 + p * 5, 14 + p * 5));
+            marks.add(new SpeechMark(SpeechMark.Type.WORD, 10 + p * 10L, 5 + p * 5, 9 + p * 5));
+        }
+        byte[] index = SpeechMarkIndex.encode(marks);
+
+        SpeechMark opening = marks.get(SpeechMarkIndex.BLOCK);
+        List<SpeechMark> twins = marks.subList(SpeechMarkIndex.BLOCK - 1, SpeechMarkIndex.BLOCK + 1);
+        assertEquals(twins, read(index, SpeechMarkIndex.Axis.TIME, opening.timeMs(), opening.timeMs() + 1, 100));
+        assertEquals(twins, read(index, SpeechMarkIndex.Axis.CHARS, opening.start(), opening.start() + 1, 100));
+    }
+
+    @Test
+    void limitStopsEarly() throws Exception {
+        List<SpeechMark> marks = marks(600, 3);
+        byte[] index = SpeechMarkIndex.encode(marks);
+
+        assertEquals(marks.subList(0, 5), read(index, SpeechMarkIndex.Axis.TIME, 0, Long.MAX_VALUE, 5));
+        assertEquals(List.of(), read(index, SpeechMarkIndex.Axis.TIME, 0, Long.MAX_VALUE, 0));
+    }
+
+    @Test
+    void narrowRangeReadsOnlyItsBlocks() throws Exception {
+        List<SpeechMark> marks = marks(20 * SpeechMarkIndex.BLOCK, 4);
+        byte[] index = SpeechMarkIndex.encode(marks);
+        long mid = marks.get(marks.size() / 2).timeMs();
+
+        AtomicLong bytesRead = new AtomicLong();
+        List<SpeechMark> got = SpeechMarkIndex.read((offset, length) -> {
+            bytesRead.addAndGet(length);
+            return Arrays.copyOfRange(index, (int) offset, (int) offset + length);
+        }, SpeechMarkIndex.Axis.TIME, mid, mid + 1000, 1000);
+
+        assertEquals(filter(marks, true, mid, mid + 1000), got);
+        assertTrue(bytesRead.get() < index.length / 5, "read " + bytesRead + " of " + index.length + " bytes");
+    }
+
+    @Test
+    void outOfOrderTimesAreClampedNotCorrupted() throws Exception {
+        List<SpeechMark> marks = List.of(
+                new SpeechMark(SpeechMark.Type.WORD, 100, 0, 4),
+                new SpeechMark(SpeechMark.Type.WORD, 90, 5, 9),
+                new SpeechMark(SpeechMark.Type.WORD, 120, 10, 14));
+
+        List<SpeechMark> decoded = SpeechMarkIndex.decode(SpeechMarkIndex.encode(marks));
+
+        assertEquals(100, decoded.get(1).timeMs());
+        assertEquals(5, decoded.get(1).start());
+        assertEquals(marks.get(2), decoded.get(2));
+    }
+
+    @Test
+    void rejectsOtherBytes() {
+        byte[] junk = new byte[64];
+        assertThrows(IOException.class, () -> SpeechMarkIndex.decode(junk));
+    }
+
+    @Test
+    void sidecarKeySwapsTheExtension() {
+        assertEquals("aud/u/1/2/x.marks", SpeechMarkIndex.sidecarKey("aud/u/1/2/x.mp3"));
+        assertEquals("tts-cache/ab/cd.marks", SpeechMarkIndex.sidecarKey("tts-cache/ab/cd"));
+        assertEquals("a.b/c.marks", SpeechMarkIndex.sidecarKey("a.b/c"));
+    }
+
+    /** A sentence mark before every tenth word; times and offsets only move forward. */
+    private static List<SpeechMark> marks(int n, long seed) {
+        Random r = new Random(seed);
+        List<SpeechMark> out = new ArrayList<>(n);
+        long time = r.nextInt(500);
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            int len = 1 + r.nextInt(12);
+            boolean sentence = i % 10 == 0;
+            out.add(new SpeechMark(sentence ? SpeechMark.Type.SENTENCE : SpeechMark.Type.WORD,
+                    time, start, start + (sentence ? len * 20 : len)));
+            if (!sentence) {
+                time += r.nextInt(400);
+                start += len + 1;
+            }
+        }
+        return out;
+    }
+
+    private static List<SpeechMark> filter(List<SpeechMark> marks, boolean byTime, long from, long to) {
+        return marks.stream()
+                .filter(m -> {
+                    long k = byTime ? m.timeMs() : m.start();
+                    return k >= from && k < to;
+                })
+                .toList();
+    }
+
+    private static List<SpeechMark> read(byte[] index, SpeechMarkIndex.Axis axis, long from, long to, int limit)
+            throws Exception {
+        return SpeechMarkIndex.read((offset, length) -> Arrays.copyOfRange(index, (int) offset, (int) offset + length),
+                axis, from, to, limit);
+    }
+}
@@ -0,0 +1,156 @@
+package com.lexaro.api.tts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of {@link TextChunker#spans} against {@link TextChunker#splitSmart}
+ * and the previous String-building BreakIterator chunker, on whitespace-normalized text as
+ * the TTS worker passes it.
+ *
+ * <p>Not a test; run with {@code mvn -Pbench test-compile exec:exec}. Allocation rate is
+ * reported by the GC profiler as {@code gc.alloc.rate.norm} (bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextChunkerBenchmark {
+
+    @Param({"100000", "1000000", "15000000"})
+    public int size;
+
+    @Param({"3000"})
+    public int maxChars;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = corpus(size);
+    }
+
+    @Benchmark
+    public List<TextChunker.Span> spans() {
+        return TextChunker.spans(text, maxChars);
+    }
+
+    @Benchmark
+    public List<String> splitSmart() {
+        return TextChunker.splitSmart(text, maxChars);
+    }
+
+    @Benchmark
+    public List<String> legacyBreakIterator() {
+        return legacySplitWithBreakIterator(text, maxChars);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(TextChunkerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /** Deterministic prose-like text: mixed sentence lengths, the odd very long sentence and token. */
+    static String corpus(int chars) {
+        String[] words = {"the", "reader", "document", "chapter", "a", "of", "lexaro", "audio", "is",
+                "synthesis", "and", "page", "with", "Dr.", "e.g.", "voice", "text", "in", "long-form"};
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder(chars + 64);
+        while (sb.length() < chars) {
+            int n = r.nextInt(100) == 0 ? 800 : 4 + r.nextInt(25);
+            for (int i = 0; i < n; i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(r.nextInt(5000) == 0 ? "x".repeat(4000) : words[r.nextInt(words.length)]);
+            }
+            sb.append(r.nextInt(6) == 0 ? "? " : ". ");
+        }
+        sb.setLength(chars);
+        return sb.toString().trim();
+    }
+
+    /** The chunker as it was before offset spans: a trimmed String per sentence, a split per long sentence. */
+    static List<String> legacySplitWithBreakIterator(String text, int maxChars) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        String s = text.trim();
+        if (s.isEmpty()) return out;
+
+        BreakIterator bi = BreakIterator.getSentenceInstance(Locale.US);
+        bi.setText(s);
+
+        int start = bi.first();
+        int end = bi.next();
+        StringBuilder buf = new StringBuilder();
+
+        while (end != BreakIterator.DONE) {
+            String sentence = s.substring(start, end).trim();
+            if (!sentence.isEmpty()) {
+                if (sentence.length() > maxChars) {
+                    legacyHardSplit(sentence, maxChars, out, buf);
+                } else if (buf.length() + (buf.length() > 0 ? 1 : 0) + sentence.length() <= maxChars) {
+                    if (buf.length() > 0) buf.append(' ');
+                    buf.append(sentence);
+                } else {
+                    out.add(buf.toString());
+                    buf.setLength(0);
+                    buf.append(sentence);
+                }
+            }
+            start = end;
+            end = bi.next();
+        }
+
+        if (buf.length() > 0) out.add(buf.toString());
+        return out;
+    }
+
+    private static void legacyHardSplit(String sentence, int maxLen, List<String> out, StringBuilder buf) {
+        for (String w : sentence.split("\\s+")) {
+            if (w.length() > maxLen) {
+                for (int i = 0; i < w.length(); i += maxLen) {
+                    legacyAppendOrFlush(out, buf, w.substring(i, Math.min(w.length(), i + maxLen)), maxLen);
+                }
+            } else {
+                legacyAppendOrFlush(out, buf, w, maxLen);
+            }
+        }
+    }
+
+    private static void legacyAppendOrFlush(List<String> out, StringBuilder buf, String token, int maxLen) {
+        if (token == null || token.isBlank()) return;
+        if (buf.length() == 0) {
+            buf.append(token);
+            return;
+        }
+        if (buf.length() + 1 + token.length() <= maxLen) {
+            buf.append(' ').append(token);
+        } else {
+            out.add(buf.toString());
+            buf.setLength(0);
+            buf.append(token);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.lexaro.api.tts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TextChunker#spans}: chunk bounds, coverage of the source, equivalence with the
+ * String-building chunker it replaced on whitespace-normalized text, and packing against
+ * a plain-text {@link TextChunker.Limit}.
+ */
+class TextChunkerTest {
+
+    @Test
+    void matchesThePreviousChunkerOnNormalizedText() {
+        for (int size : new int[]{5_000, 100_000}) {
+            String text = TextChunkerBenchmark.corpus(size);
+            for (int max : new int[]{64, 500, 3000}) {
+                assertEquals(TextChunkerBenchmark.legacySplitWithBreakIterator(text, max),
+                        texts(text, TextChunker.spans(text, max)), "size=" + size + " max=" + max);
+            }
+        }
+    }
+
+    @Test
+    void spansAreTrimmedOrderedAndWithinTheLimit() {
+        String text = TextChunkerBenchmark.corpus(50_000);
+        List<TextChunker.Span> spans = TextChunker.spans(text, 700);
+
+        int prevEnd = 0;
+        for (TextChunker.Span s : spans) {
+            assertTrue(s.start() >= prevEnd, "spans do not overlap");
+            assertTrue(s.length() > 0 && s.length() <= 700, "length " + s.length());
+            assertFalse(Character.isWhitespace(text.charAt(s.start())));
+            assertFalse(Character.isWhitespace(text.charAt(s.end() - 1)));
+            assertTrue(text.substring(prevEnd, s.start()).isBlank(), "only whitespace between spans");
+            prevEnd = s.end();
+        }
+        assertTrue(text.substring(prevEnd).isBlank(), "the whole text is covered");
+    }
+
+    @Test
+    void longSentencesSplitOnWordsAndLongTokensAreCut() {
+        String token = "x".repeat(25);
+        String text = "Short one. " + "word ".repeat(12).trim() + " " + token + ". End.";
+
+        List<String> chunks = texts(text, TextChunker.spans(text, 20));
+
+        for (String c : chunks) assertTrue(c.length() <= 20, c);
+        assertEquals("Short one. word word", chunks.get(0));
+        assertTrue(chunks.contains("x".repeat(20)), "token cut at the limit: " + chunks);
+        assertEquals(String.join("", text.split("\\s+")), String.join("", chunks).replaceAll("\\s+", ""));
+    }
+
+    @Test
+    void keepsTheSourceWhitespaceInsideAChunk() {
+        String text = "  One.\n\nTwo  three.  ";
+
+        assertEquals(List.of("One.\n\nTwo  three."), texts(text, TextChunker.spans(text, 100)));
+        assertEquals(List.of("One.", "Two  three."), texts(text, TextChunker.spans(text, 12)));
+    }
+
+    @Test
+    void emptyInputHasNoChunks() {
+        assertEquals(List.of(), TextChunker.spans("", 100));
+        assertEquals(List.of(), TextChunker.spans(null, 100));
+        assertEquals(List.of(), TextChunker.spans(" \n\t ", 100));
+    }
+
+    @Test
+    void splitBySentencesMaterializesTheSpans() {
+        String text = TextChunkerBenchmark.corpus(20_000);
+
+        assertEquals(texts(text, TextChunker.spans(text, 400)), TextChunker.splitBySentences(text, 400));
+    }
+
+    // ---------- limits ----------
+
+    @Test
+    void limitIsAtLeastOneChar() {
+        assertEquals(new TextChunker.Limit(1500), TextChunker.Limit.of(1500));
+        assertEquals(1, TextChunker.Limit.of(0).maxChars());
+        assertEquals(1, TextChunker.Limit.of(-5).maxChars());
+    }
+
+    @Test
+    void markupIsCountedLikeAnyOtherText() {
+        String text = "Word <break time=\"300ms\"/> and word. ".repeat(60).trim();
+
+        List<TextChunker.Span> spans = TextChunker.spans(text, TextChunker.Limit.of(60));
+
+        assertTrue(spans.size() > 1);
+        for (TextChunker.Span s : spans) assertTrue(s.length() <= 60, s.text(text));
+    }
+
+    @Test
+    void plainTextCountsEveryWhitespaceCharacter() {
+        // "Aa.     Bb." is 11 chars, runs of spaces included.
+        String text = "Aa.     Bb.     Cc.";
+
+        assertEquals(List.of("Aa.     Bb.", "Cc."), texts(text, TextChunker.spans(text, TextChunker.Limit.of(11))));
+        assertEquals(List.of("Aa.", "Bb.", "Cc."), texts(text, TextChunker.spans(text, TextChunker.Limit.of(10))));
+    }
+
+    private static List<String> texts(String source, List<TextChunker.Span> spans) {
+        return spans.stream().map(s -> s.text(source)).toList();
+    }
+}